@@ -0,0 +1,236 @@
+package com.win777.backend.benchmark;
+
+import com.win777.backend.entity.SmsLog;
+import com.win777.backend.entity.WalletLedger;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Nightly wallet and SMS rollups over one synthetic day (H2 on disk, so the seeded
+ * tables stay out of the heap being measured): the previous path, which hydrated
+ * every row of the day and reduced it with streams, versus the GROUP BY projections
+ * AnalyticsService now uses. Reports job duration and peak heap for each.
+ *
+ * mvn -Pbenchmarks test-compile exec:exec \
+ *     -Dbenchmark.main=com.win777.backend.benchmark.AnalyticsRollupLoadTest \
+ *     -Dbenchmark.args="5000000 4"
+ *
+ * Arguments: ledger rows in the day, brands. SMS logs are seeded at a fifth of the
+ * ledger rows. The previous path is modelled as calling the per-type method for every
+ * transaction type present; row mapping is plain JDBC, so its numbers are a lower bound
+ * on Hibernate entity loading. H2 runs in this JVM, so the aggregate's peak heap includes
+ * the database's own grouping work; against Postgres the application holds only the
+ * result rows.
+ */
+public class AnalyticsRollupLoadTest {
+    
+    private static final String[] TRANSACTION_TYPES = {"TASK_REWARD", "WITHDRAWAL", "REFUND", "ADMIN_ADJUSTMENT"};
+    private static final int USERS = 200_000;
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+    
+    // Keeps the in-memory reductions from being optimized away
+    static volatile Object sink;
+    
+    public static void main(String[] args) throws Exception {
+        long ledgerRows = args.length > 0 ? Long.parseLong(args[0]) : 5_000_000;
+        int brands = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        
+        Path directory = Files.createTempDirectory("analytics-rollup");
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:h2:file:" + directory.resolve("rollup") + ";CACHE_SIZE=65536;OPTIMIZE_REUSE_RESULTS=FALSE")) {
+            long seedStart = System.currentTimeMillis();
+            seed(connection, ledgerRows, brands);
+            System.out.printf("Seeded %,d ledger rows and %,d SMS logs across %d brands in %.1fs%n",
+                ledgerRows, ledgerRows / 5, brands, (System.currentTimeMillis() - seedStart) / 1000.0);
+            
+            // Warm the page cache and JIT on the cheap path before measuring either
+            aggregateJob(connection);
+            
+            measure("aggregate projections", () -> aggregateJob(connection));
+            measure("hydrate and stream", () -> hydratingJob(connection, brands));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+    
+    private interface Job {
+        long run() throws SQLException;
+    }
+    
+    /**
+     * WalletLedgerRepository.summarizeByBrandAndTypeBetween and SmsLogRepository.summarizeByBrandBetween
+     */
+    private static long aggregateJob(Connection connection) throws SQLException {
+        long rows = 0;
+        try (PreparedStatement wallet = connection.prepareStatement(
+                "SELECT u.brand_id, wl.transaction_type, COUNT(*), COALESCE(SUM(wl.amount), 0) FROM wallet_ledger wl " +
+                        "JOIN users u ON u.id = wl.user_id WHERE wl.created_at >= ? AND wl.created_at < ? " +
+                        "GROUP BY u.brand_id, wl.transaction_type");
+             PreparedStatement sms = connection.prepareStatement(
+                "SELECT u.brand_id, COUNT(*), COALESCE(SUM(CASE WHEN s.verified_at IS NOT NULL THEN 1 ELSE 0 END), 0), " +
+                        "COUNT(DISTINCT s.user_id) FROM sms_logs s JOIN users u ON u.id = s.user_id " +
+                        "WHERE s.created_at >= ? AND s.created_at < ? GROUP BY u.brand_id")) {
+            bindDay(wallet);
+            try (ResultSet rs = wallet.executeQuery()) {
+                while (rs.next()) {
+                    rows += rs.getLong(3);
+                }
+            }
+            bindDay(sms);
+            try (ResultSet rs = sms.executeQuery()) {
+                while (rs.next()) {
+                    rows += rs.getLong(2);
+                }
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * Previous AnalyticsService: loaded the day's ledger entities once per transaction type
+     * and the day's SMS logs, and reduced each list in memory, for every brand
+     */
+    private static long hydratingJob(Connection connection, int brands) throws SQLException {
+        long rows = 0;
+        for (int brand = 1; brand <= brands; brand++) {
+            for (String type : TRANSACTION_TYPES) {
+                List<WalletLedger> transactions = new ArrayList<>();
+                try (PreparedStatement select = connection.prepareStatement(
+                        "SELECT * FROM wallet_ledger WHERE transaction_type = ? AND created_at BETWEEN ? AND ?")) {
+                    select.setString(1, type);
+                    select.setTimestamp(2, Timestamp.valueOf(DAY.atStartOfDay()));
+                    select.setTimestamp(3, Timestamp.valueOf(DAY.plusDays(1).atStartOfDay()));
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            transactions.add(WalletLedger.builder()
+                                    .id(rs.getLong("id"))
+                                    .userId(rs.getLong("user_id"))
+                                    .transactionType(rs.getString("transaction_type"))
+                                    .amount(rs.getBigDecimal("amount"))
+                                    .referenceType(rs.getString("reference_type"))
+                                    .referenceId(rs.getLong("reference_id"))
+                                    .description(rs.getString("description"))
+                                    .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                                    .build());
+                        }
+                    }
+                }
+                BigDecimal total = transactions.stream()
+                        .map(WalletLedger::getAmount)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+                rows += transactions.size();
+                sink = total;
+            }
+            
+            List<SmsLog> smsLogs = new ArrayList<>();
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT * FROM sms_logs WHERE created_at BETWEEN ? AND ?")) {
+                select.setTimestamp(1, Timestamp.valueOf(DAY.atStartOfDay()));
+                select.setTimestamp(2, Timestamp.valueOf(DAY.plusDays(1).atStartOfDay()));
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        Timestamp verifiedAt = rs.getTimestamp("verified_at");
+                        smsLogs.add(SmsLog.builder()
+                                .id(rs.getLong("id"))
+                                .userId(rs.getLong("user_id"))
+                                .mobile(rs.getString("mobile"))
+                                .messageHash(rs.getString("message_hash"))
+                                .status(rs.getString("status"))
+                                .verifiedAt(verifiedAt == null ? null : verifiedAt.toLocalDateTime())
+                                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                                .build());
+                    }
+                }
+            }
+            long verified = smsLogs.stream().filter(log -> log.getVerifiedAt() != null).count();
+            long uniqueUsers = smsLogs.stream().map(SmsLog::getUserId).distinct().count();
+            rows += smsLogs.size();
+            sink = verified + uniqueUsers;
+        }
+        return rows;
+    }
+    
+    private static void measure(String label, Job job) {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        long baseline = heapPools.stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        
+        long start = System.nanoTime();
+        String outcome;
+        try {
+            outcome = String.format("%,d rows read", job.run());
+        } catch (OutOfMemoryError e) {
+            outcome = "OutOfMemoryError";
+        } catch (SQLException e) {
+            outcome = "failed: " + e.getMessage();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        System.out.printf("%-24s %8.2fs  peak heap %,7d MB (+%,d MB over baseline)  %s%n",
+            label, seconds, peak >> 20, Math.max(0, peak - baseline) >> 20, outcome);
+    }
+    
+    private static void seed(Connection connection, long ledgerRows, int brands) throws SQLException {
+        Timestamp dayStart = Timestamp.valueOf(DAY.atStartOfDay());
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, brand_id BIGINT)");
+            ddl.execute("CREATE TABLE wallet_ledger (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT NOT NULL, " +
+                    "transaction_type VARCHAR(50) NOT NULL, amount DECIMAL(10, 2) NOT NULL, reference_type VARCHAR(50), " +
+                    "reference_id BIGINT, description TEXT, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            ddl.execute("CREATE TABLE sms_logs (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT NOT NULL, " +
+                    "mobile VARCHAR(15) NOT NULL, message_hash VARCHAR(64) NOT NULL, verification_code VARCHAR(10), " +
+                    "status VARCHAR(20) DEFAULT 'PENDING', verified_at TIMESTAMP, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            
+            ddl.execute("INSERT INTO users SELECT X, MOD(X, " + brands + ") + 1 FROM SYSTEM_RANGE(1, " + USERS + ")");
+            // 70% rewards, 20% withdrawals, 5% refunds, 5% adjustments, spread over the day
+            ddl.execute("INSERT INTO wallet_ledger (user_id, transaction_type, amount, reference_type, reference_id, " +
+                    "description, created_at) SELECT MOD(X * 7919, " + USERS + ") + 1, " +
+                    "CASE WHEN MOD(X, 20) < 14 THEN 'TASK_REWARD' WHEN MOD(X, 20) < 18 THEN 'WITHDRAWAL' " +
+                    "WHEN MOD(X, 20) = 18 THEN 'REFUND' ELSE 'ADMIN_ADJUSTMENT' END, " +
+                    "CAST(MOD(X, 500) + 1 AS DECIMAL(10, 2)), 'TASK', X, 'Synthetic entry', " +
+                    "DATEADD(MILLISECOND, MOD(X * 104729, 86400000), TIMESTAMP '" + dayStart + "') " +
+                    "FROM SYSTEM_RANGE(1, " + ledgerRows + ")");
+            ddl.execute("INSERT INTO sms_logs (user_id, mobile, message_hash, status, verified_at, created_at) " +
+                    "SELECT MOD(X * 7919, " + USERS + ") + 1, CONCAT('9', LPAD(CAST(X AS VARCHAR), 9, '0')), " +
+                    "LPAD(CAST(X AS VARCHAR), 64, '0'), 'VERIFIED', " +
+                    "CASE WHEN MOD(X, 10) < 9 THEN TIMESTAMP '" + dayStart + "' END, " +
+                    "DATEADD(MILLISECOND, MOD(X * 104729, 86400000), TIMESTAMP '" + dayStart + "') " +
+                    "FROM SYSTEM_RANGE(1, " + ledgerRows / 5 + ")");
+            
+            // Same indexes the migrations create
+            ddl.execute("CREATE INDEX idx_wallet_ledger_created_at ON wallet_ledger(created_at)");
+            ddl.execute("CREATE INDEX idx_wallet_ledger_type_date ON wallet_ledger(transaction_type, created_at DESC)");
+            ddl.execute("CREATE INDEX idx_sms_logs_created_at ON sms_logs(created_at)");
+            ddl.execute("ANALYZE");
+        }
+    }
+    
+    private static void bindDay(PreparedStatement statement) throws SQLException {
+        LocalDateTime start = DAY.atStartOfDay();
+        statement.setTimestamp(1, Timestamp.valueOf(start));
+        statement.setTimestamp(2, Timestamp.valueOf(start.plusDays(1)));
+    }
+    
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
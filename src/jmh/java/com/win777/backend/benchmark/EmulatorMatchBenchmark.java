@@ -0,0 +1,77 @@
+package com.win777.backend.benchmark;
+
+import com.win777.backend.util.AhoCorasickMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emulator indicator matching on a real-device fingerprint (no match, so every pattern
+ * is tried): the previous toLowerCase + contains loop against AhoCorasickMatcher.
+ * The 10-pattern set is the original hard-coded list; larger sets add synthetic
+ * signatures of similar length.
+ *
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="EmulatorMatchBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmulatorMatchBenchmark {
+    
+    @Param({"10", "100", "1000"})
+    public int patterns;
+    
+    private String fingerprint;
+    private String model;
+    private String[] indicators;
+    private AhoCorasickMatcher matcher;
+    
+    @Setup
+    public void setUp() {
+        fingerprint = "Samsung/beyond1lteXX/beyond1:12/SP1A.210812.016/G973FXXSGHWC1:user/release-keys";
+        model = "SM-G973F";
+        
+        List<String> list = new ArrayList<>(List.of(
+            "generic", "unknown", "emulator", "sdk", "vbox", "genymotion",
+            "andy", "nox", "bluestacks", "memu"));
+        Random random = new Random(42);
+        while (list.size() < patterns) {
+            StringBuilder signature = new StringBuilder();
+            int length = 5 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                signature.append((char) ('a' + random.nextInt(26)));
+            }
+            list.add(signature.toString());
+        }
+        indicators = list.toArray(new String[0]);
+        matcher = new AhoCorasickMatcher(list);
+    }
+    
+    @Benchmark
+    public boolean containsLoop() {
+        String fingerprintLower = fingerprint.toLowerCase();
+        for (String indicator : indicators) {
+            if (fingerprintLower.contains(indicator)) {
+                return true;
+            }
+        }
+        String modelLower = model.toLowerCase();
+        for (String indicator : indicators) {
+            if (modelLower.contains(indicator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Benchmark
+    public boolean ahoCorasick() {
+        return matcher.matches(fingerprint) || matcher.matches(model);
+    }
+}
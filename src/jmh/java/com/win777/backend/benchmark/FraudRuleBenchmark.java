@@ -0,0 +1,77 @@
+package com.win777.backend.benchmark;
+
+import com.win777.backend.fraud.rules.CompiledRule;
+import com.win777.backend.fraud.rules.Feature;
+import com.win777.backend.fraud.rules.FraudRulesEngine;
+import com.win777.backend.fraud.rules.RuleAction;
+import com.win777.backend.fraud.rules.RuleCompiler;
+import com.win777.backend.fraud.rules.RuleEvent;
+import com.win777.backend.fraud.rules.UserFeatures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event cost of the rules engine's hot path: record an SMS in the user's sliding
+ * counters, fill the feature vector and run every compiled rule for the event.
+ * Rules are random three-clause expressions over the DSL features, so most of them
+ * evaluate in full; the target is well under 50µs per event.
+ *
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="FraudRuleBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FraudRuleBenchmark {
+    
+    @Param({"10", "50", "200"})
+    public int rules;
+    
+    private List<CompiledRule> compiled;
+    private UserFeatures features;
+    private long now;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] operators = {">", ">=", "<", "<="};
+        compiled = new ArrayList<>();
+        for (int i = 0; i < rules; i++) {
+            StringBuilder expression = new StringBuilder();
+            for (int clause = 0; clause < 3; clause++) {
+                if (clause > 0) {
+                    expression.append(random.nextBoolean() ? " AND " : " OR ");
+                }
+                Feature feature = Feature.values()[random.nextInt(Feature.COUNT)];
+                expression.append(feature.dslName()).append(' ')
+                    .append(operators[random.nextInt(operators.length)]).append(' ')
+                    .append(random.nextInt(50));
+            }
+            compiled.add(new CompiledRule((long) i, "rule-" + i, null, RuleEvent.SMS_VERIFIED,
+                RuleAction.LOG, "MEDIUM", RuleCompiler.compile(expression.toString())));
+        }
+        
+        now = System.currentTimeMillis();
+        features = new UserFeatures();
+        features.setProfile(1L, 2, now - TimeUnit.DAYS.toMillis(30), false, now);
+        for (int i = 0; i < 200; i++) {
+            features.recordSms(now - random.nextInt((int) TimeUnit.HOURS.toMillis(24)));
+        }
+    }
+    
+    @Benchmark
+    public List<CompiledRule> evaluateEvent() {
+        now += 1000;
+        features.recordSms(now);
+        double[] vector = new double[Feature.COUNT];
+        features.fill(vector, now);
+        vector[Feature.RING_SIZE.ordinal()] = 1;
+        return FraudRulesEngine.match(compiled, 1L, vector);
+    }
+}
@@ -0,0 +1,212 @@
+package com.win777.backend.benchmark;
+
+import com.win777.backend.entity.SmsLog;
+import com.win777.backend.entity.WalletLedger;
+import jakarta.persistence.*;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate insert throughput for wallet_ledger and sms_logs rows (H2 in-memory),
+ * IDENTITY ids versus the pooled-lo sequence ids with JDBC batching.
+ *
+ * "identity" maps benchmark-local copies of the entities that still use IDENTITY;
+ * "sequence" maps the real entities. Both run with batch_size=50 and order_inserts,
+ * which IDENTITY silently ignores. H2 has no network round-trip, so the gap against
+ * Postgres is larger than shown here.
+ *
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="IdGenerationBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGenerationBenchmark {
+    
+    private static final int ROWS_PER_TRANSACTION = 1000;
+    
+    @Param({"identity", "sequence"})
+    private String ids;
+    
+    private SessionFactory sessionFactory;
+    private long counter;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configuration configuration = new Configuration()
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:id_generation_" + ids + ";DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.connection.username", "sa")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .setProperty("hibernate.id.optimizer.pooled.preferred", "pooled-lo")
+                .setProperty("hibernate.jdbc.batch_size", "50")
+                .setProperty("hibernate.order_inserts", "true");
+        if ("identity".equals(ids)) {
+            configuration.addAnnotatedClass(IdentityLedger.class).addAnnotatedClass(IdentitySmsLog.class);
+        } else {
+            configuration.addAnnotatedClass(WalletLedger.class).addAnnotatedClass(SmsLog.class);
+        }
+        sessionFactory = configuration.buildSessionFactory();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+    
+    @Setup(Level.Iteration)
+    public void truncate() {
+        sessionFactory.inTransaction(session -> {
+            session.createNativeMutationQuery("TRUNCATE TABLE wallet_ledger").executeUpdate();
+            session.createNativeMutationQuery("TRUNCATE TABLE sms_logs").executeUpdate();
+        });
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public void insertLedgerEntries() {
+        sessionFactory.inTransaction(session -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+                long n = counter++;
+                if ("identity".equals(ids)) {
+                    session.persist(new IdentityLedger(null, n % 1000, "TASK_REWARD", BigDecimal.TEN, "TASK", n, "Task reward", now));
+                } else {
+                    session.persist(new WalletLedger(null, n % 1000, "TASK_REWARD", BigDecimal.TEN, "TASK", n, "Task reward", now));
+                }
+            }
+        });
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public void insertSmsLogs() {
+        sessionFactory.inTransaction(session -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+                long n = counter++;
+                String hash = String.format("%064x", n);
+                if ("identity".equals(ids)) {
+                    session.persist(new IdentitySmsLog(null, n % 1000, "9000000000", hash, "123456", "VERIFIED", now, now));
+                } else {
+                    persistSmsLog(session, n % 1000, hash, now);
+                }
+            }
+        });
+    }
+    
+    private static void persistSmsLog(Session session, long userId, String hash, LocalDateTime now) {
+        session.persist(SmsLog.builder()
+                .userId(userId)
+                .mobile("9000000000")
+                .messageHash(hash)
+                .verificationCode("123456")
+                .status("VERIFIED")
+                .verifiedAt(now)
+                .createdAt(now)
+                .build());
+    }
+    
+    /**
+     * WalletLedger as it was mapped before pooled sequence ids
+     */
+    @Entity
+    @Table(name = "wallet_ledger")
+    public static class IdentityLedger {
+        
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+        
+        @Column(name = "user_id", nullable = false)
+        private Long userId;
+        
+        @Column(name = "transaction_type", nullable = false, length = 50)
+        private String transactionType;
+        
+        @Column(nullable = false)
+        private BigDecimal amount;
+        
+        @Column(name = "reference_type", length = 50)
+        private String referenceType;
+        
+        @Column(name = "reference_id")
+        private Long referenceId;
+        
+        @Column(columnDefinition = "TEXT")
+        private String description;
+        
+        @Column(name = "created_at", nullable = false, updatable = false)
+        private LocalDateTime createdAt;
+        
+        protected IdentityLedger() {
+        }
+        
+        IdentityLedger(Long id, Long userId, String transactionType, BigDecimal amount, String referenceType,
+                       Long referenceId, String description, LocalDateTime createdAt) {
+            this.id = id;
+            this.userId = userId;
+            this.transactionType = transactionType;
+            this.amount = amount;
+            this.referenceType = referenceType;
+            this.referenceId = referenceId;
+            this.description = description;
+            this.createdAt = createdAt;
+        }
+    }
+    
+    /**
+     * SmsLog as it was mapped before pooled sequence ids
+     */
+    @Entity
+    @Table(name = "sms_logs")
+    public static class IdentitySmsLog {
+        
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+        
+        @Column(name = "user_id", nullable = false)
+        private Long userId;
+        
+        @Column(nullable = false, length = 15)
+        private String mobile;
+        
+        @Column(name = "message_hash", nullable = false, unique = true, length = 64)
+        private String messageHash;
+        
+        @Column(name = "verification_code", length = 10)
+        private String verificationCode;
+        
+        @Column(length = 20)
+        private String status;
+        
+        @Column(name = "verified_at")
+        private LocalDateTime verifiedAt;
+        
+        @Column(name = "created_at", nullable = false, updatable = false)
+        private LocalDateTime createdAt;
+        
+        protected IdentitySmsLog() {
+        }
+        
+        IdentitySmsLog(Long id, Long userId, String mobile, String messageHash, String verificationCode,
+                       String status, LocalDateTime verifiedAt, LocalDateTime createdAt) {
+            this.id = id;
+            this.userId = userId;
+            this.mobile = mobile;
+            this.messageHash = messageHash;
+            this.verificationCode = verificationCode;
+            this.status = status;
+            this.verifiedAt = verifiedAt;
+            this.createdAt = createdAt;
+        }
+    }
+}
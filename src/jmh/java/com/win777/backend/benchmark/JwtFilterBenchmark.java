@@ -0,0 +1,117 @@
+package com.win777.backend.benchmark;
+
+import com.win777.backend.security.JwtAuthenticationFilter;
+import com.win777.backend.security.JwtUtil;
+import com.win777.backend.security.TokenRevocations;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticated request throughput through JwtAuthenticationFilter (mock request, empty
+ * chain): the previous filter, which parsed the token four times with the key rebuilt
+ * for each parse, against the current filter with the token cache off and on.
+ *
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="JwtFilterBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtFilterBenchmark {
+    
+    private static final String SECRET = "YourSuperSecretKeyForJWTTokenGenerationMustBeAtLeast256BitsLong";
+    
+    private String token;
+    private JwtAuthenticationFilter uncachedFilter;
+    private JwtAuthenticationFilter cachedFilter;
+    
+    @Setup
+    public void setUp() throws Exception {
+        JwtUtil uncached = jwtUtil(0);
+        JwtUtil cached = jwtUtil(10_000);
+        token = cached.generateToken(42L, "9876543210");
+        uncachedFilter = filter(uncached);
+        cachedFilter = filter(cached);
+    }
+    
+    @Benchmark
+    public Object previousFilter() {
+        MockHttpServletRequest request = request();
+        String jwt = request.getHeader("Authorization").substring(7);
+        String mobile = legacyClaims(jwt).getSubject();
+        Long userId = legacyClaims(jwt).get("userId", Long.class);
+        if (mobile != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            if (legacyClaims(jwt).getSubject().equals(mobile) && !legacyClaims(jwt).getExpiration().before(new Date())) {
+                SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(userId, null, new ArrayList<>()));
+            }
+        }
+        return authenticated();
+    }
+    
+    @Benchmark
+    public Object singleParse() throws Exception {
+        uncachedFilter.doFilter(request(), new MockHttpServletResponse(), new MockFilterChain());
+        return authenticated();
+    }
+    
+    @Benchmark
+    public Object cachedToken() throws Exception {
+        cachedFilter.doFilter(request(), new MockHttpServletResponse(), new MockFilterChain());
+        return authenticated();
+    }
+    
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/wallet/balance");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+    
+    private static Object authenticated() {
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+    
+    private static Claims legacyClaims(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+    
+    private static JwtUtil jwtUtil(int cacheEntries) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86_400_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxEntries", cacheEntries);
+        ReflectionTestUtils.setField(jwtUtil, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+        return jwtUtil;
+    }
+    
+    private static JwtAuthenticationFilter filter(JwtUtil jwtUtil) {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        // No revocations: the check is a miss in an empty map
+        ReflectionTestUtils.setField(filter, "tokenRevocations", new TokenRevocations());
+        return filter;
+    }
+}
@@ -0,0 +1,55 @@
+package com.win777.backend.benchmark;
+
+import com.win777.backend.util.MessageHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SHA-256 hex of a typical verification SMS: the previous SmsService.generateHash
+ * (digest per call, Integer.toHexString + StringBuilder) against MessageHasher.
+ * Run with {@code -prof gc} to compare bytes allocated per hash:
+ *
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="MessageHashBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageHashBenchmark {
+    
+    private String message;
+    
+    @Setup
+    public void setUp() {
+        message = "Your WIN777 verification code is 483920. Do not share this code with anyone. Ref 77120394";
+    }
+    
+    @Benchmark
+    public String legacy() throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(message.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) hexString.append('0');
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+    
+    @Benchmark
+    public String messageHasherHex() {
+        return MessageHasher.sha256Hex(message);
+    }
+    
+    @Benchmark
+    public byte[] messageHasherBinary() {
+        return MessageHasher.sha256(message);
+    }
+}
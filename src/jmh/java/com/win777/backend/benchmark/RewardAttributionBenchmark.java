@@ -0,0 +1,174 @@
+package com.win777.backend.benchmark;
+
+import com.win777.backend.entity.TaskAssignment;
+import com.win777.backend.entity.WalletLedger;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reward attribution for one task's day in updateTaskEngagementAnalytics, with every
+ * completed assignment paid one TASK_REWARD ledger entry that references it.
+ *
+ * Compares the previous nested loop (every reward of the day checked against every
+ * assignment of the task, O(n×m)), an in-process hash join on the assignment id, and
+ * the SQL join WalletLedgerRepository.sumTaskRewardsBetween now runs (H2 in-memory).
+ *
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="RewardAttributionBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RewardAttributionBenchmark {
+    
+    private static final long TASK_ID = 1L;
+    private static final int TASKS = 10;
+    
+    @Param({"10000", "100000"})
+    private int assignmentsPerDay;
+    
+    private List<TaskAssignment> assignments;
+    private List<WalletLedger> rewards;
+    private LocalDateTime startOfDay;
+    private Connection connection;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        startOfDay = LocalDateTime.now().toLocalDate().atStartOfDay();
+        List<TaskAssignment> all = new ArrayList<>();
+        rewards = new ArrayList<>();
+        for (int i = 1; i <= assignmentsPerDay; i++) {
+            TaskAssignment assignment = TaskAssignment.builder()
+                    .id((long) i)
+                    .userId((long) i)
+                    .taskId((long) (i % TASKS) + 1)
+                    .status(i % 5 == 0 ? "PENDING" : "COMPLETED")
+                    .assignedAt(startOfDay.plusSeconds(i % 86_400))
+                    .build();
+            all.add(assignment);
+            if ("COMPLETED".equals(assignment.getStatus())) {
+                rewards.add(WalletLedger.builder()
+                        .id((long) i)
+                        .userId(assignment.getUserId())
+                        .transactionType("TASK_REWARD")
+                        .amount(BigDecimal.valueOf(5 + i % 20))
+                        .referenceType("TASK_ASSIGNMENT")
+                        .referenceId(assignment.getId())
+                        .createdAt(assignment.getAssignedAt().plusMinutes(1))
+                        .build());
+            }
+        }
+        assignments = all.stream().filter(a -> a.getTaskId() == TASK_ID).toList();
+        
+        connection = DriverManager.getConnection("jdbc:h2:mem:reward_attribution;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE task_assignments (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, " +
+                    "task_id BIGINT NOT NULL, status VARCHAR(20), assigned_at TIMESTAMP, completed_at TIMESTAMP)");
+            ddl.execute("CREATE INDEX idx_task_assignments_task_assigned ON task_assignments(task_id, assigned_at)");
+            ddl.execute("CREATE TABLE wallet_ledger (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, " +
+                    "transaction_type VARCHAR(50) NOT NULL, amount DECIMAL(10, 2) NOT NULL, reference_type VARCHAR(50), " +
+                    "reference_id BIGINT, description TEXT, created_at TIMESTAMP)");
+            ddl.execute("CREATE INDEX idx_wallet_ledger_type_date ON wallet_ledger(transaction_type, created_at DESC)");
+            // H2 has no partial indexes; V13 limits this one to task rewards
+            ddl.execute("CREATE INDEX idx_wallet_ledger_task_reward_ref ON wallet_ledger(reference_id)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO task_assignments (id, user_id, task_id, status, assigned_at) VALUES (?, ?, ?, ?, ?)")) {
+            for (TaskAssignment assignment : all) {
+                insert.setLong(1, assignment.getId());
+                insert.setLong(2, assignment.getUserId());
+                insert.setLong(3, assignment.getTaskId());
+                insert.setString(4, assignment.getStatus());
+                insert.setTimestamp(5, Timestamp.valueOf(assignment.getAssignedAt()));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO wallet_ledger (id, user_id, transaction_type, amount, reference_type, reference_id, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (WalletLedger reward : rewards) {
+                insert.setLong(1, reward.getId());
+                insert.setLong(2, reward.getUserId());
+                insert.setString(3, reward.getTransactionType());
+                insert.setBigDecimal(4, reward.getAmount());
+                insert.setString(5, reward.getReferenceType());
+                insert.setLong(6, reward.getReferenceId());
+                insert.setTimestamp(7, Timestamp.valueOf(reward.getCreatedAt()));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement drop = connection.createStatement()) {
+            drop.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+    
+    /**
+     * Previous implementation: anyMatch over the task's assignments for every reward of the day
+     */
+    @Benchmark
+    public BigDecimal nestedLoop() {
+        return rewards.stream()
+                .filter(ledger -> assignments.stream()
+                        .anyMatch(a -> a.getUserId().equals(ledger.getUserId()) && "COMPLETED".equals(a.getStatus())))
+                .map(WalletLedger::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+    
+    /**
+     * Completed assignment ids in a hash set, each reward probed once by its reference
+     */
+    @Benchmark
+    public BigDecimal hashJoin() {
+        Set<Long> completed = new HashSet<>();
+        for (TaskAssignment assignment : assignments) {
+            if ("COMPLETED".equals(assignment.getStatus())) {
+                completed.add(assignment.getId());
+            }
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (WalletLedger reward : rewards) {
+            if ("TASK_ASSIGNMENT".equals(reward.getReferenceType()) && completed.contains(reward.getReferenceId())) {
+                total = total.add(reward.getAmount());
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * WalletLedgerRepository.sumTaskRewardsBetween
+     */
+    @Benchmark
+    public BigDecimal sqlJoin() throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT COALESCE(SUM(wl.amount), 0) FROM wallet_ledger wl " +
+                        "JOIN task_assignments ta ON ta.id = wl.reference_id " +
+                        "WHERE wl.transaction_type = 'TASK_REWARD' AND wl.reference_type = 'TASK_ASSIGNMENT' " +
+                        "AND ta.task_id = ? AND ta.status = 'COMPLETED' " +
+                        "AND wl.created_at >= ? AND wl.created_at < ?")) {
+            select.setLong(1, TASK_ID);
+            select.setTimestamp(2, Timestamp.valueOf(startOfDay));
+            select.setTimestamp(3, Timestamp.valueOf(startOfDay.plusDays(1)));
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                return rs.getBigDecimal(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.win777.backend.benchmark;
+
+import com.win777.backend.dto.WalletSummary;
+import com.win777.backend.entity.WalletLedger;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wallet summary for a single user with a 50k-entry ledger (H2 in-memory).
+ *
+ * Compares the old path (SUM + hydrate every ledger row just to take its size)
+ * with the aggregate projection and the materialized balance lookup.
+ * Run with {@code -prof gc} to see bytes allocated per summary:
+ *
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="WalletSummaryBenchmark -prof gc"
+ *
+ * Row mapping here is plain JDBC, so the hydration numbers are a lower bound
+ * on what Hibernate entity loading costs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalletSummaryBenchmark {
+    
+    private static final long USER_ID = 1L;
+    
+    @Param({"50000"})
+    private int ledgerEntries;
+    
+    private Connection connection;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:wallet_summary;DB_CLOSE_DELAY=-1");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE wallet_ledger (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT NOT NULL, " +
+                    "transaction_type VARCHAR(50) NOT NULL, amount DECIMAL(10, 2) NOT NULL, reference_type VARCHAR(50), " +
+                    "reference_id BIGINT, description TEXT, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            ddl.execute("CREATE INDEX idx_wallet_ledger_user_date ON wallet_ledger(user_id, created_at DESC)");
+            ddl.execute("CREATE TABLE wallet_balances (user_id BIGINT PRIMARY KEY, balance DECIMAL(15, 2) NOT NULL, " +
+                    "entry_count BIGINT NOT NULL, updated_at TIMESTAMP)");
+        }
+        
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO wallet_ledger (user_id, transaction_type, amount, reference_type, reference_id, description, created_at) " +
+                        "VALUES (?, 'TASK_REWARD', ?, 'TASK', ?, 'Task reward', ?)")) {
+            for (int i = 0; i < ledgerEntries; i++) {
+                insert.setLong(1, USER_ID);
+                insert.setBigDecimal(2, BigDecimal.valueOf(5 + i % 20, 0));
+                insert.setLong(3, i);
+                insert.setTimestamp(4, Timestamp.valueOf(start.plusMinutes(i)));
+                insert.addBatch();
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        
+        try (Statement backfill = connection.createStatement()) {
+            backfill.execute("INSERT INTO wallet_balances SELECT user_id, SUM(amount), COUNT(*), CURRENT_TIMESTAMP " +
+                    "FROM wallet_ledger GROUP BY user_id");
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement drop = connection.createStatement()) {
+            drop.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+    
+    /**
+     * Previous implementation: calculateBalance + findByUserIdOrderByCreatedAtDesc(...).size()
+     */
+    @Benchmark
+    public WalletSummary hydrateFullLedger() throws SQLException {
+        BigDecimal balance;
+        try (PreparedStatement sum = connection.prepareStatement(
+                "SELECT COALESCE(SUM(amount), 0) FROM wallet_ledger WHERE user_id = ?")) {
+            sum.setLong(1, USER_ID);
+            try (ResultSet rs = sum.executeQuery()) {
+                rs.next();
+                balance = rs.getBigDecimal(1);
+            }
+        }
+        
+        List<WalletLedger> ledger = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT * FROM wallet_ledger WHERE user_id = ? ORDER BY created_at DESC")) {
+            select.setLong(1, USER_ID);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    ledger.add(WalletLedger.builder()
+                            .id(rs.getLong("id"))
+                            .userId(rs.getLong("user_id"))
+                            .transactionType(rs.getString("transaction_type"))
+                            .amount(rs.getBigDecimal("amount"))
+                            .referenceType(rs.getString("reference_type"))
+                            .referenceId(rs.getLong("reference_id"))
+                            .description(rs.getString("description"))
+                            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                            .build());
+                }
+            }
+        }
+        return new WalletSummary(USER_ID, balance, (long) ledger.size());
+    }
+    
+    /**
+     * WalletLedgerRepository.summarizeByUserId: balance and count in one aggregate
+     */
+    @Benchmark
+    public WalletSummary aggregateProjection() throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT COALESCE(SUM(amount), 0), COUNT(*) FROM wallet_ledger WHERE user_id = ?")) {
+            select.setLong(1, USER_ID);
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                return new WalletSummary(USER_ID, rs.getBigDecimal(1), rs.getLong(2));
+            }
+        }
+    }
+    
+    /**
+     * WalletService.getWalletSummary: primary-key lookup on wallet_balances
+     */
+    @Benchmark
+    public WalletSummary materializedBalance() throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT balance, entry_count FROM wallet_balances WHERE user_id = ?")) {
+            select.setLong(1, USER_ID);
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                return new WalletSummary(USER_ID, rs.getBigDecimal(1), rs.getLong(2));
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.win777.backend.benchmark;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for withdrawal admission against a real Redis: 1k concurrent attempts
+ * using the previous sequential round-trips versus the single Lua script.
+ *
+ * mvn -Pbenchmarks test-compile exec:exec \
+ *     -Dbenchmark.main=com.win777.backend.benchmark.WithdrawalAdmissionLoadTest \
+ *     -Dbenchmark.args="redis://localhost:6379 1000 20"
+ *
+ * Arguments: Redis URI, concurrent attempts per round, rounds. The previous
+ * ban and cooldown checks were Postgres lookups; here they are modelled as Redis
+ * GETs, so the legacy numbers are a lower bound.
+ */
+public class WithdrawalAdmissionLoadTest {
+    
+    private static final String PREFIX = "loadtest:";
+    
+    public static void main(String[] args) throws Exception {
+        String uri = args.length > 0 ? args[0] : "redis://localhost:6379";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        
+        RedisClient client = RedisClient.create(uri);
+        try (StatefulRedisConnection<String, String> connection = client.connect()) {
+            RedisCommands<String, String> redis = connection.sync();
+            String sha = redis.scriptLoad(loadScript());
+            
+            // Warm up both paths before measuring
+            run("warmup-legacy", redis, concurrency, 2, (r, user) -> legacyAdmission(r, user));
+            run("warmup-lua", redis, concurrency, 2, (r, user) -> luaAdmission(r, sha, user));
+            
+            report("legacy (4 round-trips)", run("legacy", redis, concurrency, rounds, (r, user) -> legacyAdmission(r, user)));
+            report("lua (1 round-trip)", run("lua", redis, concurrency, rounds, (r, user) -> luaAdmission(r, sha, user)));
+        } finally {
+            client.shutdown();
+        }
+    }
+    
+    private interface Attempt {
+        void admit(RedisCommands<String, String> redis, long userId);
+    }
+    
+    /**
+     * Ban check, cooldown check, lock acquire and lock release as separate commands
+     */
+    private static void legacyAdmission(RedisCommands<String, String> redis, long userId) {
+        redis.get(PREFIX + "user:banned:" + userId);
+        redis.get(PREFIX + "withdrawal:cooldown:" + userId);
+        String lockKey = PREFIX + "withdrawal:lock:" + userId;
+        if ("OK".equals(redis.set(lockKey, "locked", SetArgs.Builder.nx().px(30_000)))) {
+            redis.del(lockKey);
+        }
+    }
+    
+    private static void luaAdmission(RedisCommands<String, String> redis, String sha, long userId) {
+        String[] keys = {
+            PREFIX + "user:banned:" + userId,
+            PREFIX + "withdrawal:cooldown:" + userId,
+            PREFIX + "withdrawal:lock:" + userId,
+            PREFIX + "wallet:balance:" + userId,
+            PREFIX + "withdrawal:lock:" + userId + ":fence"
+        };
+        Long result = redis.evalsha(sha, ScriptOutputType.INTEGER, keys,
+            "100", String.valueOf(System.currentTimeMillis()), "86400000", "30000", UUID.randomUUID().toString());
+        if (result != null && result > 0) {
+            redis.del(keys[2]);
+        }
+    }
+    
+    private static long[] run(String label, RedisCommands<String, String> redis, int concurrency, int rounds,
+                              Attempt attempt) throws InterruptedException {
+        long[] latencies = new long[concurrency * rounds];
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                for (int user = 0; user < concurrency; user++) {
+                    redis.set(PREFIX + "wallet:balance:" + user, "100000000");
+                }
+                
+                CountDownLatch start = new CountDownLatch(1);
+                CountDownLatch done = new CountDownLatch(concurrency);
+                int offset = round * concurrency;
+                for (int user = 0; user < concurrency; user++) {
+                    long userId = user;
+                    int slot = offset + user;
+                    executor.execute(() -> {
+                        try {
+                            start.await();
+                            long begin = System.nanoTime();
+                            attempt.admit(redis, userId);
+                            latencies[slot] = System.nanoTime() - begin;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+                }
+                start.countDown();
+                if (!done.await(60, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException(label + " round " + round + " did not finish");
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return latencies;
+    }
+    
+    private static void report(String label, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-24s n=%d  p50=%.2fms  p99=%.2fms  p99.9=%.2fms  max=%.2fms%n",
+            label, sorted.length,
+            percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+            sorted[sorted.length - 1] / 1_000_000.0);
+    }
+    
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+    
+    private static String loadScript() throws IOException {
+        try (InputStream in = WithdrawalAdmissionLoadTest.class.getResourceAsStream("/scripts/withdrawal_admission.lua")) {
+            if (in == null) {
+                throw new IllegalStateException("withdrawal_admission.lua not found on classpath");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
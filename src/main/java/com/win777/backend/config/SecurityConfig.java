@@ -2,6 +2,7 @@ package com.win777.backend.config;
 
 import com.win777.backend.security.JwtAuthenticationFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -19,9 +20,13 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
     
+    /** BCrypt work factor; existing hashes below it are upgraded as users log in */
+    @Value("${auth.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+    
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
     
     @Bean
@@ -35,7 +40,8 @@ public class SecurityConfig {
                 .requestMatchers("/auth/**", "/health/**", "/admin/login", 
                     "/config/**", "/config/maintenance-mode", "/config/theme-color", 
                     "/config/banners").permitAll()
-                .requestMatchers("/admin/**").authenticated()
+                .requestMatchers("/admin/**", "/api/analytics/admin/**")
+                    .hasAuthority(JwtAuthenticationFilter.ADMIN_AUTHORITY)
                 .anyRequest().authenticated()
             )
             .sessionManagement(session -> session
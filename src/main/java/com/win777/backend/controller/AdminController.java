@@ -2,6 +2,7 @@ package com.win777.backend.controller;
 
 import com.win777.backend.dto.*;
 import com.win777.backend.entity.AdminUser;
+import com.win777.backend.entity.FraudRule;
 import com.win777.backend.entity.Task;
 import com.win777.backend.entity.User;
 import com.win777.backend.entity.Withdrawal;
@@ -42,7 +43,7 @@ public class AdminController {
         AdminUser adminUser = admin.get();
         
         // Generate JWT token for admin (using admin ID as userId and username as mobile)
-        String token = jwtUtil.generateToken(adminUser.getId(), adminUser.getUsername());
+        String token = jwtUtil.generateAdminToken(adminUser.getId(), adminUser.getUsername());
         
         AdminLoginResponse response = AdminLoginResponse.builder()
             .adminId(adminUser.getId())
@@ -104,6 +105,94 @@ public class AdminController {
         return ResponseEntity.ok("User unbanned successfully");
     }
     
+    /**
+     * Cluster size and risk score of the accounts linked to a user
+     */
+    @GetMapping("/users/{userId}/fraud-ring")
+    public ResponseEntity<FraudRingResponse> getFraudRing(@PathVariable Long userId) {
+        return ResponseEntity.ok(adminService.getFraudRing(userId));
+    }
+    
+    /**
+     * Release a device so it can be registered to another account
+     */
+    @DeleteMapping("/devices")
+    public ResponseEntity<?> releaseDevice(
+            @RequestParam String deviceFingerprint,
+            @RequestHeader("Authorization") String authHeader,
+            HttpServletRequest httpRequest) {
+        
+        Long adminId = getAdminIdFromToken(authHeader);
+        String ipAddress = getClientIpAddress(httpRequest);
+        
+        adminService.releaseDevice(adminId, deviceFingerprint, ipAddress);
+        return ResponseEntity.ok("Device released successfully");
+    }
+    
+    /**
+     * List fraud rules, optionally for one brand
+     */
+    @GetMapping("/fraud-rules")
+    public ResponseEntity<List<FraudRule>> getFraudRules(@RequestParam(required = false) Long brandId) {
+        return ResponseEntity.ok(adminService.getFraudRules(brandId));
+    }
+    
+    /**
+     * Create fraud rule
+     */
+    @PostMapping("/fraud-rules")
+    public ResponseEntity<FraudRule> createFraudRule(
+            @Valid @RequestBody FraudRuleRequest request,
+            @RequestHeader("Authorization") String authHeader,
+            HttpServletRequest httpRequest) {
+        
+        Long adminId = getAdminIdFromToken(authHeader);
+        String ipAddress = getClientIpAddress(httpRequest);
+        
+        return ResponseEntity.ok(adminService.createFraudRule(adminId, request, ipAddress));
+    }
+    
+    /**
+     * Update fraud rule
+     */
+    @PutMapping("/fraud-rules/{ruleId}")
+    public ResponseEntity<FraudRule> updateFraudRule(
+            @PathVariable Long ruleId,
+            @Valid @RequestBody FraudRuleRequest request,
+            @RequestHeader("Authorization") String authHeader,
+            HttpServletRequest httpRequest) {
+        
+        Long adminId = getAdminIdFromToken(authHeader);
+        String ipAddress = getClientIpAddress(httpRequest);
+        
+        return ResponseEntity.ok(adminService.updateFraudRule(adminId, ruleId, request, ipAddress));
+    }
+    
+    /**
+     * Delete fraud rule
+     */
+    @DeleteMapping("/fraud-rules/{ruleId}")
+    public ResponseEntity<?> deleteFraudRule(
+            @PathVariable Long ruleId,
+            @RequestHeader("Authorization") String authHeader,
+            HttpServletRequest httpRequest) {
+        
+        Long adminId = getAdminIdFromToken(authHeader);
+        String ipAddress = getClientIpAddress(httpRequest);
+        
+        adminService.deleteFraudRule(adminId, ruleId, ipAddress);
+        return ResponseEntity.ok("Fraud rule deleted successfully");
+    }
+    
+    /**
+     * Replay rules over past events to see how often they would have matched
+     */
+    @PostMapping("/fraud-rules/replay")
+    public ResponseEntity<FraudRuleReplayResponse> replayFraudRules(
+            @Valid @RequestBody FraudRuleReplayRequest request) {
+        return ResponseEntity.ok(adminService.replayFraudRules(request));
+    }
+    
     /**
      * Create or update task
      */
@@ -1,6 +1,8 @@
 package com.win777.backend.controller;
 
+import com.win777.backend.dto.UniqueUsersEstimate;
 import com.win777.backend.entity.*;
+import com.win777.backend.service.AnalyticsCollector;
 import com.win777.backend.service.AnalyticsService;
 import com.win777.backend.service.BrandService;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +24,7 @@ import java.util.Map;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final AnalyticsCollector analyticsCollector;
     private final BrandService brandService;
 
     /**
@@ -92,6 +95,21 @@ public class AnalyticsController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Get approximate unique users over a date range (metric: sms or wallet)
+     */
+    @GetMapping("/{brandCode}/unique-users")
+    public ResponseEntity<UniqueUsersEstimate> getUniqueUsers(
+            @PathVariable String brandCode,
+            @RequestParam(defaultValue = "sms") String metric,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        return brandService.getBrandByCode(brandCode)
+                .map(brand -> ResponseEntity.ok(analyticsService.getUniqueUsers(brand, metric, startDate, endDate)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * Get metrics snapshot (for real-time dashboard)
      */
@@ -160,10 +178,21 @@ public class AnalyticsController {
      */
     @PostMapping("/admin/collect")
     public ResponseEntity<String> collectAnalytics() {
-        analyticsService.collectDailyAnalytics();
+        analyticsCollector.collectDailyAnalytics();
         return ResponseEntity.ok("Analytics collection triggered successfully");
     }
 
+    /**
+     * Start rebuilding the unique user sketches of a date range from the raw rows (Admin only)
+     */
+    @PostMapping("/admin/backfill-unique-users")
+    public ResponseEntity<String> backfillUniqueUsers(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        analyticsCollector.backfillUniqueUsers(startDate, endDate);
+        return ResponseEntity.accepted().body("Unique user backfill started");
+    }
+
     /**
      * Update metrics snapshot (Admin only)
      */
@@ -1,21 +1,24 @@
 package com.win777.backend.controller;
 
+import com.win777.backend.dto.LedgerPage;
 import com.win777.backend.dto.WalletSummary;
-import com.win777.backend.entity.WalletLedger;
 import com.win777.backend.service.WalletService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/wallet")
 public class WalletController {
     
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
     @Autowired
     private WalletService walletService;
     
@@ -27,9 +30,19 @@ public class WalletController {
     }
     
     @GetMapping("/ledger")
-    public ResponseEntity<List<WalletLedger>> getLedger(Authentication authentication) {
+    public ResponseEntity<LedgerPage> getLedger(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        Long userId = (Long) authentication.getPrincipal();
+        LedgerPage page = walletService.getLedgerPage(userId, cursor, limit);
+        return ResponseEntity.ok(page);
+    }
+    
+    @GetMapping("/ledger/export")
+    public ResponseEntity<StreamingResponseBody> exportLedger(Authentication authentication) {
         Long userId = (Long) authentication.getPrincipal();
-        List<WalletLedger> ledger = walletService.getWalletLedger(userId);
-        return ResponseEntity.ok(ledger);
+        StreamingResponseBody body = out -> walletService.exportLedger(userId, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 }
@@ -0,0 +1,11 @@
+package com.win777.backend.dto;
+
+/**
+ * Result of claiming a device fingerprint: the owning user and whether the mapping was created
+ */
+public interface DeviceClaim {
+    
+    Long getUserId();
+    
+    Boolean getInserted();
+}
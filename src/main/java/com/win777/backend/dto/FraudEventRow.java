@@ -0,0 +1,17 @@
+package com.win777.backend.dto;
+
+import java.util.Map;
+
+/**
+ * A logged fraud event for replay; coalesced rows stand for metadata.count events
+ */
+public interface FraudEventRow extends UserEventRow {
+    
+    Map<String, Object> getMetadata();
+    
+    default int getCount() {
+        Map<String, Object> metadata = getMetadata();
+        Object count = metadata == null ? null : metadata.get("count");
+        return count instanceof Number number ? Math.max(1, number.intValue()) : 1;
+    }
+}
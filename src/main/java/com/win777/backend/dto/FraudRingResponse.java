@@ -0,0 +1,19 @@
+package com.win777.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FraudRingResponse {
+    
+    private Long userId;
+    private int clusterSize;
+    private int devices;
+    private int payoutTargets;
+    private double riskScore;
+}
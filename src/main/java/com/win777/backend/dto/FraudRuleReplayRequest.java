@@ -0,0 +1,28 @@
+package com.win777.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rules to replay: the given candidate rules, else the given stored rule ids, else the
+ * active rules. The window defaults to the last 7 days.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FraudRuleReplayRequest {
+    
+    @Valid
+    private List<FraudRuleRequest> rules;
+    
+    private List<Long> ruleIds;
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
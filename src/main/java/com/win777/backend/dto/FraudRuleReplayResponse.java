@@ -0,0 +1,22 @@
+package com.win777.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FraudRuleReplayResponse {
+    
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private long eventsScanned;
+    private long durationMs;
+    private List<FraudRuleReplayResult> results;
+}
@@ -0,0 +1,25 @@
+package com.win777.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FraudRuleReplayResult {
+    
+    /** Null for candidate rules that are not stored */
+    private Long ruleId;
+    private String name;
+    private String eventType;
+    private String action;
+    private long evaluated;
+    private long hits;
+    private double hitRate;
+    private long distinctUsers;
+    /** Matched users who also have other fraud events in the window */
+    private long usersWithFraudHistory;
+}
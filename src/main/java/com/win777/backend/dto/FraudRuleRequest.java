@@ -0,0 +1,31 @@
+package com.win777.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.constraints.NotBlank;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FraudRuleRequest {
+    
+    /** Null for a rule that applies to every brand */
+    private Long brandId;
+    
+    @NotBlank(message = "Name is required")
+    private String name;
+    
+    @NotBlank(message = "Event type is required")
+    private String eventType;
+    
+    @NotBlank(message = "Expression is required")
+    private String expression;
+    
+    private String action;
+    private String severity;
+    private Boolean isActive;
+}
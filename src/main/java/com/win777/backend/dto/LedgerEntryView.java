@@ -0,0 +1,24 @@
+package com.win777.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a wallet ledger row for API responses
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntryView {
+    private Long id;
+    private String transactionType;
+    private BigDecimal amount;
+    private String referenceType;
+    private Long referenceId;
+    private String description;
+    private LocalDateTime createdAt;
+}
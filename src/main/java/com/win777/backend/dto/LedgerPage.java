@@ -0,0 +1,16 @@
+package com.win777.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One keyset-paginated page of ledger entries; nextCursor is null on the last page
+ */
+@Data
+@AllArgsConstructor
+public class LedgerPage {
+    private List<LedgerEntryView> entries;
+    private String nextCursor;
+}
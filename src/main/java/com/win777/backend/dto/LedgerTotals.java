@@ -0,0 +1,13 @@
+package com.win777.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregate projection of a user's ledger: balance and entry count from one query
+ */
+public interface LedgerTotals {
+    
+    BigDecimal getBalance();
+    
+    Long getEntryCount();
+}
@@ -0,0 +1,11 @@
+package com.win777.backend.dto;
+
+/**
+ * Id and message hash of an SMS log row, for scanning hashes without hydrating entities
+ */
+public interface MessageHashRow {
+    
+    Long getId();
+    
+    String getMessageHash();
+}
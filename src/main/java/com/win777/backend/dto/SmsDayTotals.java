@@ -0,0 +1,15 @@
+package com.win777.backend.dto;
+
+/**
+ * Aggregate projection of one brand's SMS logs for a day: sent, verified and distinct senders
+ */
+public interface SmsDayTotals {
+    
+    Long getBrandId();
+    
+    Long getTotalSms();
+    
+    Long getVerifiedCount();
+    
+    Long getUniqueUsers();
+}
@@ -0,0 +1,13 @@
+package com.win777.backend.dto;
+
+/**
+ * Aggregate projection of one day's assignments of a task
+ */
+public interface TaskDayTotals {
+    
+    Long getTotalAssignments();
+    
+    Long getCompletedCount();
+    
+    Long getUniqueUsers();
+}
@@ -0,0 +1,17 @@
+package com.win777.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregate projection of one day's ledger entries of one brand and transaction type
+ */
+public interface TransactionTypeTotals {
+    
+    Long getBrandId();
+    
+    String getTransactionType();
+    
+    Long getTransactions();
+    
+    BigDecimal getTotalAmount();
+}
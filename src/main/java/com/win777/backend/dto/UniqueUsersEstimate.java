@@ -0,0 +1,20 @@
+package com.win777.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Approximate distinct users over a date range, merged from daily HyperLogLog sketches.
+ * standardError is relative, e.g. 0.008 for about 0.8%.
+ */
+@Data
+@AllArgsConstructor
+public class UniqueUsersEstimate {
+    private String metric;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Long uniqueUsers;
+    private Double standardError;
+}
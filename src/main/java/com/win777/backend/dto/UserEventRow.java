@@ -0,0 +1,13 @@
+package com.win777.backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user and when something happened to them, for replaying history in time order
+ */
+public interface UserEventRow {
+    
+    Long getUserId();
+    
+    LocalDateTime getAt();
+}
@@ -0,0 +1,13 @@
+package com.win777.backend.dto;
+
+/**
+ * A user and one identifier they use (device fingerprint or mobile), for keyset scans
+ */
+public interface UserIdentifierRow {
+    
+    Long getId();
+    
+    Long getUserId();
+    
+    String getIdentifier();
+}
@@ -0,0 +1,19 @@
+package com.win777.backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * The slow-changing user fields fraud rules read
+ */
+public interface UserProfileRow {
+    
+    Long getId();
+    
+    Long getBrandId();
+    
+    Integer getDeviceCount();
+    
+    LocalDateTime getCreatedAt();
+    
+    Boolean getIsEmulator();
+}
@@ -1,5 +1,6 @@
 package com.win777.backend.dto;
 
+import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -11,6 +12,7 @@ import java.util.Map;
 public class WithdrawRequest {
     @NotNull(message = "Amount is required")
     @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
+    @DecimalMax(value = "1000000000.00", message = "Amount is too large")
     private BigDecimal amount;
     
     private Map<String, Object> additionalData;
@@ -0,0 +1,15 @@
+package com.win777.backend.dto;
+
+import java.util.Map;
+
+/**
+ * Id, user and request data of a withdrawal, for scanning payout targets without hydrating entities
+ */
+public interface WithdrawalDataRow {
+    
+    Long getId();
+    
+    Long getUserId();
+    
+    Map<String, Object> getRequestData();
+}
@@ -0,0 +1,11 @@
+package com.win777.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * A withdrawal request for replay
+ */
+public interface WithdrawalEventRow extends UserEventRow {
+    
+    BigDecimal getAmount();
+}
@@ -21,7 +21,8 @@ import java.util.Map;
 public class AdminAuditLog {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "admin_audit_logs_id_seq")
+    @SequenceGenerator(name = "admin_audit_logs_id_seq", sequenceName = "admin_audit_logs_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "admin_id", nullable = false)
@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 public class ApiRequestLog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "api_request_logs_id_seq")
+    @SequenceGenerator(name = "api_request_logs_id_seq", sequenceName = "api_request_logs_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
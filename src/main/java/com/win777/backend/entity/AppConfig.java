@@ -21,7 +21,8 @@ import java.time.LocalDateTime;
 public class AppConfig {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_config_id_seq")
+    @SequenceGenerator(name = "app_config_id_seq", sequenceName = "app_config_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "config_key", unique = true, nullable = false, length = 100)
@@ -21,7 +21,8 @@ import java.time.LocalDateTime;
 public class Banner {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "banners_id_seq")
+    @SequenceGenerator(name = "banners_id_seq", sequenceName = "banners_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(length = 255)
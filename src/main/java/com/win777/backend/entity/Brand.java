@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 public class Brand {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "brands_id_seq")
+    @SequenceGenerator(name = "brands_id_seq", sequenceName = "brands_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "brand_code", unique = true, nullable = false, length = 50)
@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 public class BrandConfig {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "brand_configs_id_seq")
+    @SequenceGenerator(name = "brand_configs_id_seq", sequenceName = "brand_configs_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 public class CacheConfig {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cache_config_id_seq")
+    @SequenceGenerator(name = "cache_config_id_seq", sequenceName = "cache_config_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "cache_key", unique = true, nullable = false)
@@ -21,7 +21,8 @@ import java.time.LocalDateTime;
 public class DeviceMapping {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "device_mappings_id_seq")
+    @SequenceGenerator(name = "device_mappings_id_seq", sequenceName = "device_mappings_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "device_fingerprint", unique = true, nullable = false)
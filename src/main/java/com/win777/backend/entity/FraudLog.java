@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -21,7 +23,8 @@ import java.util.Map;
 public class FraudLog {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fraud_logs_id_seq")
+    @SequenceGenerator(name = "fraud_logs_id_seq", sequenceName = "fraud_logs_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "user_id")
@@ -43,6 +46,7 @@ public class FraudLog {
     @Column(name = "detected_at")
     private LocalDateTime detectedAt;
     
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(columnDefinition = "jsonb")
     private Map<String, Object> metadata;
 }
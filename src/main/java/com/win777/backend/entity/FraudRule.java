@@ -0,0 +1,62 @@
+package com.win777.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "fraud_rules")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EntityListeners(AuditingEntityListener.class)
+public class FraudRule {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fraud_rules_id_seq")
+    @SequenceGenerator(name = "fraud_rules_id_seq", sequenceName = "fraud_rules_id_seq", allocationSize = 50)
+    private Long id;
+    
+    /** Null for rules that apply to every brand */
+    @Column(name = "brand_id")
+    private Long brandId;
+    
+    @Column(nullable = false, length = 100)
+    private String name;
+    
+    /** REGISTRATION, SMS_VERIFIED or WITHDRAWAL_REQUESTED */
+    @Column(name = "event_type", nullable = false, length = 30)
+    private String eventType;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String expression;
+    
+    /** LOG or BLOCK */
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    private String action = "LOG";
+    
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    private String severity = "MEDIUM";
+    
+    @Builder.Default
+    @Column(name = "is_active")
+    private Boolean isActive = true;
+    
+    @CreatedDate
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+    
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class MetricsSnapshot {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "analytics_metrics_snapshot_id_seq")
+    @SequenceGenerator(name = "analytics_metrics_snapshot_id_seq", sequenceName = "analytics_metrics_snapshot_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -20,7 +20,8 @@ import java.time.LocalDateTime;
 public class SmsLog {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sms_logs_id_seq")
+    @SequenceGenerator(name = "sms_logs_id_seq", sequenceName = "sms_logs_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "user_id", nullable = false)
@@ -32,6 +33,9 @@ public class SmsLog {
     @Column(name = "message_hash", nullable = false, unique = true, length = 64)
     private String messageHash;
     
+    @Column(name = "message_digest", length = 32)
+    private byte[] messageDigest;
+    
     @Column(name = "verification_code", length = 10)
     private String verificationCode;
     
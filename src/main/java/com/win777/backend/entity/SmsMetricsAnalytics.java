@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class SmsMetricsAnalytics {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "analytics_sms_metrics_id_seq")
+    @SequenceGenerator(name = "analytics_sms_metrics_id_seq", sequenceName = "analytics_sms_metrics_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
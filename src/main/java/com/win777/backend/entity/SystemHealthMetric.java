@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class SystemHealthMetric {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "system_health_metrics_id_seq")
+    @SequenceGenerator(name = "system_health_metrics_id_seq", sequenceName = "system_health_metrics_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "metric_type", nullable = false, length = 50)
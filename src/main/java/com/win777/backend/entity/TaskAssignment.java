@@ -20,7 +20,8 @@ import java.time.LocalDateTime;
 public class TaskAssignment {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_assignments_id_seq")
+    @SequenceGenerator(name = "task_assignments_id_seq", sequenceName = "task_assignments_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "user_id", nullable = false)
@@ -20,7 +20,8 @@ import java.time.LocalDateTime;
 public class UserBan {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_bans_id_seq")
+    @SequenceGenerator(name = "user_bans_id_seq", sequenceName = "user_bans_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "user_id", nullable = false)
@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class UserGrowthAnalytics {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "analytics_user_growth_id_seq")
+    @SequenceGenerator(name = "analytics_user_growth_id_seq", sequenceName = "analytics_user_growth_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,39 @@
+package com.win777.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Materialized running balance per user, derived from wallet_ledger
+ */
+@Entity
+@Table(name = "wallet_balances")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletBalance {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal balance;
+    
+    @Column(name = "entry_count", nullable = false)
+    private Long entryCount;
+    
+    @Column(name = "withdrawal_fence", nullable = false)
+    @Builder.Default
+    private Long withdrawalFence = 0L;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -21,7 +21,8 @@ import java.time.LocalDateTime;
 public class WalletLedger {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wallet_ledger_id_seq")
+    @SequenceGenerator(name = "wallet_ledger_id_seq", sequenceName = "wallet_ledger_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "user_id", nullable = false)
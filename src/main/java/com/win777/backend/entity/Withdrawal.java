@@ -25,7 +25,8 @@ import java.util.Map;
 public class Withdrawal {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "withdrawals_id_seq")
+    @SequenceGenerator(name = "withdrawals_id_seq", sequenceName = "withdrawals_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "user_id", nullable = false)
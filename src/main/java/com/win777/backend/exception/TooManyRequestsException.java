@@ -0,0 +1,11 @@
+package com.win777.backend.exception;
+
+/**
+ * Rejected because a bounded resource is saturated; answered with 429 so clients back off
+ */
+public class TooManyRequestsException extends RuntimeException {
+    
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
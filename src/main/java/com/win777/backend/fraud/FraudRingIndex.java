@@ -0,0 +1,300 @@
+package com.win777.backend.fraud;
+
+import com.win777.backend.dto.UserIdentifierRow;
+import com.win777.backend.dto.WithdrawalDataRow;
+import com.win777.backend.repository.DeviceMappingRepository;
+import com.win777.backend.repository.WithdrawalRepository;
+import com.win777.backend.util.MessageHasher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory connected components over accounts and the devices and payout targets they
+ * use. Two accounts end up in one cluster when any chain of shared identifiers connects
+ * them.
+ *
+ * Updated as mappings and withdrawals commit, and rebuilt from device_mappings and
+ * withdrawals in the background after startup and nightly (links cannot be removed
+ * incrementally, so a released device stays connected until then).
+ *
+ * Mobiles are not linked: the account's own mobile is unique to it and so can never join
+ * two accounts, and a mobile a client merely claims (an SMS from a number that is not the
+ * account's) is unverified. Claimed mobiles are kept in a separate record that never
+ * joins clusters, so submitting someone else's number cannot merge into their ring.
+ */
+@Component
+@Slf4j
+public class FraudRingIndex {
+    
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final int MAX_TRACKED_USERS = 100_000;
+    
+    @Value("${fraud.rings.ring-size:5}")
+    private int ringSize;
+    
+    @Value("${fraud.rings.payout-keys:upiId,upi_id,vpa,accountNumber,account_number,bankAccount,walletNumber,paytmNumber}")
+    private String[] payoutKeys;
+    
+    @Autowired
+    private DeviceMappingRepository deviceMappingRepository;
+    
+    @Autowired
+    private WithdrawalRepository withdrawalRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private record Link(long userId, IdentifierKind kind, long identifierKey) {
+    }
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private RingGraph graph = new RingGraph();
+    private RingGraph building;
+    
+    /**
+     * Claimed but unverified mobiles per user; never unioned into the graph
+     */
+    private final Map<Long, Set<Long>> unverifiedMobiles = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("fraud.rings.users", this, index -> index.read(RingGraph::userCount))
+            .register(meterRegistry);
+        Gauge.builder("fraud.rings.nodes", this, index -> index.read(RingGraph::nodeCount))
+            .register(meterRegistry);
+    }
+    
+    public int getRingSize() {
+        return ringSize;
+    }
+    
+    /**
+     * Cluster containing the user; a single-account cluster if the user has no links yet
+     */
+    public RingStats stats(Long userId) {
+        RingStats stats = read(current -> current.stats(userId));
+        return stats != null ? stats : RingStats.single(userId);
+    }
+    
+    /**
+     * Each link returns the user's cluster if the link grew it to ring size or beyond
+     */
+    public Optional<RingStats> linkDevice(Long userId, String deviceFingerprint) {
+        return link(new Link(userId, IdentifierKind.DEVICE, key(IdentifierKind.DEVICE, deviceFingerprint)));
+    }
+    
+    /**
+     * Record a mobile the user claimed without owning it; returns how many distinct
+     * unverified mobiles the user has tried
+     */
+    public int recordUnverifiedMobile(Long userId, String mobile) {
+        Set<Long> mobiles = unverifiedMobiles.get(userId);
+        if (mobiles == null) {
+            mobiles = ConcurrentHashMap.newKeySet();
+            remember(unverifiedMobiles, userId, mobiles);
+        }
+        mobiles.add(hash("MOBILE:" + mobile));
+        return mobiles.size();
+    }
+    
+    public Optional<RingStats> linkPayoutTargets(Long userId, Map<String, Object> requestData) {
+        Optional<RingStats> flagged = Optional.empty();
+        for (String target : payoutTargets(requestData)) {
+            Optional<RingStats> result = link(
+                new Link(userId, IdentifierKind.PAYOUT_TARGET, key(IdentifierKind.PAYOUT_TARGET, target)));
+            if (result.isPresent()) {
+                flagged = result;
+            }
+        }
+        return flagged;
+    }
+    
+    /**
+     * First build off the startup thread; until it completes, clusters only hold the links
+     * made since startup
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+    
+    /**
+     * Rebuild from the database into a new graph and swap it in. Links made while the
+     * rebuild runs go to both graphs.
+     */
+    @Scheduled(cron = "${fraud.rings.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        RingGraph next = new RingGraph();
+        lock.writeLock().lock();
+        try {
+            if (building != null) {
+                log.info("Fraud ring rebuild already running");
+                return;
+            }
+            building = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        try {
+            scan(deviceMappingRepository::findDeviceOwnersAfter, IdentifierKind.DEVICE);
+            scanWithdrawals();
+            
+            lock.writeLock().lock();
+            try {
+                graph = next;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Rebuilt fraud ring index: {} users, {} nodes in {} ms",
+                next.userCount(), next.nodeCount(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Fraud ring rebuild failed, keeping the current index", e);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                building = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+    
+    private Optional<RingStats> link(Link link) {
+        lock.writeLock().lock();
+        try {
+            RingStats before = graph.stats(link.userId());
+            graph.link(link.userId(), link.kind(), link.identifierKey());
+            if (building != null) {
+                building.link(link.userId(), link.kind(), link.identifierKey());
+            }
+            
+            RingStats after = graph.stats(link.userId());
+            int usersBefore = before == null ? 1 : before.users();
+            return after.users() > usersBefore && after.users() >= ringSize ? Optional.of(after) : Optional.empty();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void scan(KeysetQuery query, IdentifierKind kind) {
+        PageRequest batch = PageRequest.of(0, REBUILD_BATCH_SIZE);
+        long afterId = 0;
+        List<UserIdentifierRow> rows;
+        do {
+            rows = query.after(afterId, batch);
+            lock.writeLock().lock();
+            try {
+                for (UserIdentifierRow row : rows) {
+                    if (row.getIdentifier() == null) {
+                        building.addUser(row.getUserId());
+                    } else {
+                        building.link(row.getUserId(), kind, key(kind, row.getIdentifier()));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!rows.isEmpty()) {
+                afterId = rows.get(rows.size() - 1).getId();
+            }
+        } while (rows.size() == REBUILD_BATCH_SIZE);
+    }
+    
+    private void scanWithdrawals() {
+        PageRequest batch = PageRequest.of(0, REBUILD_BATCH_SIZE);
+        long afterId = 0;
+        List<WithdrawalDataRow> rows;
+        do {
+            rows = withdrawalRepository.findRequestDataAfter(afterId, batch);
+            lock.writeLock().lock();
+            try {
+                for (WithdrawalDataRow row : rows) {
+                    for (String target : payoutTargets(row.getRequestData())) {
+                        building.link(row.getUserId(), IdentifierKind.PAYOUT_TARGET,
+                            key(IdentifierKind.PAYOUT_TARGET, target));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!rows.isEmpty()) {
+                afterId = rows.get(rows.size() - 1).getId();
+            }
+        } while (rows.size() == REBUILD_BATCH_SIZE);
+    }
+    
+    @FunctionalInterface
+    private interface KeysetQuery {
+        List<UserIdentifierRow> after(Long afterId, PageRequest batch);
+    }
+    
+    /**
+     * Normalized payout destinations found in withdrawal request data
+     */
+    private List<String> payoutTargets(Map<String, Object> requestData) {
+        if (requestData == null || requestData.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(payoutKeys)
+            .map(requestData::get)
+            .filter(value -> value != null && !value.toString().isBlank())
+            .map(value -> value.toString().trim().toLowerCase(Locale.ROOT))
+            .distinct()
+            .toList();
+    }
+    
+    private static <V> void remember(Map<Long, V> map, Long userId, V value) {
+        if (map.size() >= MAX_TRACKED_USERS) {
+            // Full: forget every user's attempts; the multi-SIM check only needs recent ones,
+            // so a reset at worst lets one burst start counting from zero
+            map.clear();
+        }
+        map.put(userId, value);
+    }
+    
+    private <T> T read(Function<RingGraph, T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(graph);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private static long key(IdentifierKind kind, String identifier) {
+        return hash(kind.name() + ':' + identifier);
+    }
+    
+    private static long hash(String identifier) {
+        byte[] digest = MessageHasher.sha256(identifier);
+        long key = 0;
+        for (int i = 0; i < 8; i++) {
+            key = (key << 8) | (digest[i] & 0xff);
+        }
+        return key;
+    }
+}
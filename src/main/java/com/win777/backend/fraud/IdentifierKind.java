@@ -0,0 +1,9 @@
+package com.win777.backend.fraud;
+
+/**
+ * Identifiers that can tie accounts together
+ */
+public enum IdentifierKind {
+    DEVICE,
+    PAYOUT_TARGET
+}
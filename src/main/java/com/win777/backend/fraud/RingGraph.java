@@ -0,0 +1,115 @@
+package com.win777.backend.fraud;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Union-find over users and the identifiers they use (devices, payout targets).
+ * Union by size with path halving; every root carries per-kind member counts so
+ * cluster statistics are O(α(n)) to read.
+ *
+ * Not thread-safe; FraudRingIndex serializes writers and guards readers.
+ */
+final class RingGraph {
+    
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    private final Map<Long, Integer> userNodes = new HashMap<>();
+    private final Map<Long, Integer> identifierNodes = new HashMap<>();
+    
+    private int[] parent = new int[INITIAL_CAPACITY];
+    private int[] size = new int[INITIAL_CAPACITY];
+    /** Per root: members by kind, indexed by ordinal (users first) */
+    private int[][] members = new int[1 + IdentifierKind.values().length][INITIAL_CAPACITY];
+    private int nodeCount;
+    
+    /**
+     * Connect the user to the identifier (already hashed into a 64-bit key)
+     */
+    void link(long userId, IdentifierKind kind, long identifierKey) {
+        int user = userNodes.computeIfAbsent(userId, id -> newNode(0));
+        int identifier = identifierNodes.computeIfAbsent(identifierKey, key -> newNode(1 + kind.ordinal()));
+        union(user, identifier);
+    }
+    
+    /**
+     * Make sure the user exists as a (possibly single-member) cluster
+     */
+    void addUser(long userId) {
+        userNodes.computeIfAbsent(userId, id -> newNode(0));
+    }
+    
+    /**
+     * Cluster statistics for the user, or null if the user was never linked.
+     * Read-only: does not compress paths, so it is safe under a shared read lock.
+     */
+    RingStats stats(long userId) {
+        Integer node = userNodes.get(userId);
+        if (node == null) {
+            return null;
+        }
+        int root = root(node);
+        return new RingStats(userId, members[0][root],
+            members[1 + IdentifierKind.DEVICE.ordinal()][root],
+            members[1 + IdentifierKind.PAYOUT_TARGET.ordinal()][root]);
+    }
+    
+    int userCount() {
+        return userNodes.size();
+    }
+    
+    int nodeCount() {
+        return nodeCount;
+    }
+    
+    private int root(int node) {
+        int root = node;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        return root;
+    }
+    
+    private int newNode(int memberKind) {
+        if (nodeCount == parent.length) {
+            int capacity = parent.length * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            size = Arrays.copyOf(size, capacity);
+            for (int kind = 0; kind < members.length; kind++) {
+                members[kind] = Arrays.copyOf(members[kind], capacity);
+            }
+        }
+        int node = nodeCount++;
+        parent[node] = node;
+        size[node] = 1;
+        members[memberKind][node] = 1;
+        return node;
+    }
+    
+    private int find(int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+    
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (size[rootA] < size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+        for (int[] counts : members) {
+            counts[rootA] += counts[rootB];
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.win777.backend.fraud;
+
+/**
+ * Connected component containing a user: how many accounts and identifiers it spans
+ */
+public record RingStats(long userId, int users, int devices, int payoutTargets) {
+    
+    public static RingStats single(long userId) {
+        return new RingStats(userId, 1, 0, 0);
+    }
+    
+    /**
+     * 0 for an account that shares nothing, rising to 1 once the cluster reaches ringSize accounts
+     */
+    public double riskScore(int ringSize) {
+        if (users <= 1) {
+            return 0;
+        }
+        return Math.min(1.0, (users - 1) / (double) Math.max(ringSize - 1, 1));
+    }
+}
@@ -0,0 +1,12 @@
+package com.win777.backend.fraud.rules;
+
+/**
+ * A fraud rule ready for evaluation; brandId is null for rules that apply to every brand
+ */
+public record CompiledRule(Long id, String name, Long brandId, RuleEvent event, RuleAction action,
+                           String severity, RuleCondition condition) {
+    
+    public boolean appliesTo(Long userBrandId) {
+        return brandId == null || brandId.equals(userBrandId);
+    }
+}
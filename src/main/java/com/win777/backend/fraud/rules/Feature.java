@@ -0,0 +1,45 @@
+package com.win777.backend.fraud.rules;
+
+import java.util.Locale;
+
+/**
+ * Per-user features available to rule expressions, by their DSL name.
+ * Sliding windows are hour-bucketed and weight the oldest partial hour.
+ */
+public enum Feature {
+    SMS_1H("sms_1h"),
+    SMS_24H("sms_24h"),
+    WITHDRAWALS_24H("withdrawals_24h"),
+    WITHDRAWAL_AMOUNT_24H("withdrawal_amount_24h"),
+    FRAUD_EVENTS_24H("fraud_events_24h"),
+    DEVICE_COUNT("device_count"),
+    ACCOUNT_AGE_HOURS("account_age_hours"),
+    /** 1 if the account registered from a detected emulator, else 0 */
+    EMULATOR("emulator"),
+    /** Accounts in the user's fraud ring cluster, including the user */
+    RING_SIZE("ring_size"),
+    /** Amount of the event being evaluated (withdrawals), else 0 */
+    AMOUNT("amount");
+    
+    public static final int COUNT = values().length;
+    
+    private final String dslName;
+    
+    Feature(String dslName) {
+        this.dslName = dslName;
+    }
+    
+    public String dslName() {
+        return dslName;
+    }
+    
+    public static Feature fromDslName(String name) {
+        String normalized = name.toLowerCase(Locale.ROOT);
+        for (Feature feature : values()) {
+            if (feature.dslName.equals(normalized)) {
+                return feature;
+            }
+        }
+        return null;
+    }
+}
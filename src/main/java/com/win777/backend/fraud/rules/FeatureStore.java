@@ -0,0 +1,118 @@
+package com.win777.backend.fraud.rules;
+
+import com.win777.backend.dto.UserProfileRow;
+import com.win777.backend.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node-local feature state for users with recent activity. Counters start when a user
+ * is first seen on this node, so behind a load balancer each node sees its share of a
+ * user's events; rules should be written with that in mind (or sticky routing used).
+ *
+ * The slow-changing profile fields (brand, device count, age, emulator flag) are loaded
+ * from users and refreshed every ten minutes. Users idle for a day are dropped.
+ */
+@Component
+public class FeatureStore {
+    
+    private static final long PROFILE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long IDLE_MILLIS = TimeUnit.HOURS.toMillis(24);
+    
+    @Value("${fraud.rules.max-tracked-users:100000}")
+    private int maxTrackedUsers;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<Long, UserFeatures> users = new ConcurrentHashMap<>();
+    private Counter untracked;
+    
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("fraud.rules.tracked_users", users, Map::size)
+            .register(meterRegistry);
+        untracked = Counter.builder("fraud.rules.untracked")
+            .description("Evaluations for users not tracked because the feature store was full")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * The user's features with a current profile. When the store is full a new user gets
+     * a throwaway instance (profile only, no history) rather than displacing others.
+     */
+    public UserFeatures features(Long userId, long now) {
+        UserFeatures features = users.get(userId);
+        if (features == null) {
+            features = new UserFeatures();
+            if (users.size() < maxTrackedUsers) {
+                UserFeatures existing = users.putIfAbsent(userId, features);
+                if (existing != null) {
+                    features = existing;
+                }
+            } else {
+                untracked.increment();
+            }
+        }
+        if (now - features.getProfileLoadedAt() > PROFILE_TTL_MILLIS) {
+            loadProfiles(Map.of(userId, features), now);
+        }
+        return features;
+    }
+    
+    /**
+     * Count a logged fraud event against a user who is already tracked
+     */
+    public void recordFraud(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        UserFeatures features = users.get(userId);
+        if (features != null) {
+            features.recordFraud(System.currentTimeMillis());
+        }
+    }
+    
+    @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_MILLIS;
+        users.values().removeIf(features -> features.getLastSeenAt() < cutoff);
+    }
+    
+    /**
+     * Load profiles for a batch of users in one query; also used by replay
+     */
+    void loadProfiles(Map<Long, UserFeatures> batch, long now) {
+        Map<Long, UserProfileRow> rows = new HashMap<>();
+        for (UserProfileRow row : userRepository.findProfilesByIdIn(batch.keySet())) {
+            rows.put(row.getId(), row);
+        }
+        batch.forEach((userId, features) -> {
+            UserProfileRow row = rows.get(userId);
+            if (row == null) {
+                // Unknown user: remember that, so it is not looked up on every event
+                features.setProfile(null, 0, 0, false, now);
+                return;
+            }
+            long createdAt = row.getCreatedAt() == null
+                ? 0 : row.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            features.setProfile(row.getBrandId(), row.getDeviceCount() == null ? 0 : row.getDeviceCount(),
+                createdAt, Boolean.TRUE.equals(row.getIsEmulator()), now);
+        });
+    }
+}
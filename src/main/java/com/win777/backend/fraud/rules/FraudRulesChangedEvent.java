@@ -0,0 +1,7 @@
+package com.win777.backend.fraud.rules;
+
+/**
+ * Published when fraud rules are created, updated or deleted
+ */
+public record FraudRulesChangedEvent(Long ruleId) {
+}
@@ -0,0 +1,145 @@
+package com.win777.backend.fraud.rules;
+
+import com.win777.backend.entity.FraudRule;
+import com.win777.backend.fraud.FraudRingIndex;
+import com.win777.backend.repository.FraudRuleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates the active fraud rules against a user's sliding feature vector.
+ *
+ * Rules are compiled once when loaded and swapped in as a whole; an evaluation is a
+ * feature fill plus the compiled conditions, with no I/O except the ten-minute profile
+ * refresh. Changes made on this node apply on commit; other nodes pick them up within
+ * a minute. A rule that fails to compile is skipped and logged, the rest still load.
+ */
+@Component
+@Slf4j
+public class FraudRulesEngine {
+    
+    @Autowired
+    private FraudRuleRepository fraudRuleRepository;
+    
+    @Autowired
+    private FeatureStore featureStore;
+    
+    @Autowired
+    private FraudRingIndex fraudRingIndex;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private volatile Map<RuleEvent, List<CompiledRule>> rules = new EnumMap<>(RuleEvent.class);
+    private Timer evaluations;
+    
+    @PostConstruct
+    void registerMetrics() {
+        evaluations = Timer.builder("fraud.rules.evaluation")
+            .description("Time to update features and evaluate the rules for one event")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Record the event in the user's features and return the rules it matches.
+     * Counters include the event being evaluated.
+     */
+    public List<CompiledRule> evaluate(RuleEvent event, Long userId, double amount) {
+        long start = System.nanoTime();
+        try {
+            long now = System.currentTimeMillis();
+            UserFeatures features = featureStore.features(userId, now);
+            if (event == RuleEvent.SMS_VERIFIED) {
+                features.recordSms(now);
+            } else if (event == RuleEvent.WITHDRAWAL_REQUESTED) {
+                features.recordWithdrawal(now, amount);
+            }
+            
+            List<CompiledRule> candidates = rules.get(event);
+            if (candidates == null) {
+                return List.of();
+            }
+            double[] vector = new double[Feature.COUNT];
+            features.fill(vector, now);
+            vector[Feature.RING_SIZE.ordinal()] = fraudRingIndex.stats(userId).users();
+            vector[Feature.AMOUNT.ordinal()] = amount;
+            return match(candidates, features.getBrandId(), vector);
+        } finally {
+            evaluations.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRulesChanged(FraudRulesChangedEvent event) {
+        reload();
+    }
+    
+    @Scheduled(fixedDelay = 60, initialDelay = 0, timeUnit = TimeUnit.SECONDS)
+    public void reload() {
+        try {
+            rules = compileAll(fraudRuleRepository.findByIsActiveTrue());
+        } catch (Exception e) {
+            log.warn("Could not reload fraud rules, keeping the current set", e);
+        }
+    }
+    
+    /**
+     * Compile a rule, throwing IllegalArgumentException if its event, action or expression is invalid
+     */
+    public static CompiledRule compile(FraudRule rule) {
+        RuleEvent event = parse(RuleEvent.class, rule.getEventType(), "event type");
+        RuleAction action = parse(RuleAction.class, rule.getAction(), "action");
+        return new CompiledRule(rule.getId(), rule.getName(), rule.getBrandId(), event, action,
+            rule.getSeverity(), RuleCompiler.compile(rule.getExpression()));
+    }
+    
+    /**
+     * Compile rules grouped by event, skipping (and logging) any that do not compile
+     */
+    static Map<RuleEvent, List<CompiledRule>> compileAll(List<FraudRule> source) {
+        Map<RuleEvent, List<CompiledRule>> compiled = new EnumMap<>(RuleEvent.class);
+        for (FraudRule rule : source) {
+            try {
+                CompiledRule compiledRule = compile(rule);
+                compiled.computeIfAbsent(compiledRule.event(), event -> new ArrayList<>()).add(compiledRule);
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping fraud rule {} ({}): {}", rule.getId(), rule.getName(), e.getMessage());
+            }
+        }
+        return compiled;
+    }
+    
+    public static List<CompiledRule> match(List<CompiledRule> candidates, Long brandId, double[] vector) {
+        List<CompiledRule> matched = null;
+        for (CompiledRule rule : candidates) {
+            if (rule.appliesTo(brandId) && rule.condition().test(vector)) {
+                if (matched == null) {
+                    matched = new ArrayList<>(2);
+                }
+                matched.add(rule);
+            }
+        }
+        return matched == null ? List.of() : matched;
+    }
+    
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, String label) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid " + label + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.win777.backend.fraud.rules;
+
+/**
+ * What happens when a rule matches: LOG records a fraud event, BLOCK also rejects the request
+ */
+public enum RuleAction {
+    LOG,
+    BLOCK
+}
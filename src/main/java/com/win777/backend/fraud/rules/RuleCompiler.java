@@ -0,0 +1,177 @@
+package com.win777.backend.fraud.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiles rule expressions into a tree of closures, once, so evaluation is a few
+ * array reads and comparisons. Grammar:
+ * <pre>
+ * expression := and ("OR" and)*
+ * and        := unary ("AND" unary)*
+ * unary      := "NOT" unary | "(" expression ")" | comparison
+ * comparison := feature (">" | ">=" | "<" | "<=" | "==" | "!=") number
+ * </pre>
+ * Keywords are case-insensitive; features are the Feature DSL names.
+ */
+public final class RuleCompiler {
+    
+    private final String source;
+    private final List<String> tokens;
+    private final List<Integer> positions;
+    private int index;
+    
+    private RuleCompiler(String source) {
+        this.source = source;
+        this.tokens = new ArrayList<>();
+        this.positions = new ArrayList<>();
+        tokenize();
+    }
+    
+    /**
+     * Compile the expression; throws IllegalArgumentException describing the first error
+     */
+    public static RuleCondition compile(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("Rule expression is required");
+        }
+        RuleCompiler compiler = new RuleCompiler(expression);
+        RuleCondition condition = compiler.parseOr();
+        if (compiler.index < compiler.tokens.size()) {
+            throw compiler.error("Unexpected '" + compiler.peek() + "'");
+        }
+        return condition;
+    }
+    
+    private RuleCondition parseOr() {
+        RuleCondition left = parseAnd();
+        while (acceptKeyword("OR")) {
+            RuleCondition first = left;
+            RuleCondition second = parseAnd();
+            left = features -> first.test(features) || second.test(features);
+        }
+        return left;
+    }
+    
+    private RuleCondition parseAnd() {
+        RuleCondition left = parseUnary();
+        while (acceptKeyword("AND")) {
+            RuleCondition first = left;
+            RuleCondition second = parseUnary();
+            left = features -> first.test(features) && second.test(features);
+        }
+        return left;
+    }
+    
+    private RuleCondition parseUnary() {
+        if (acceptKeyword("NOT")) {
+            RuleCondition inner = parseUnary();
+            return features -> !inner.test(features);
+        }
+        if (accept("(")) {
+            RuleCondition inner = parseOr();
+            if (!accept(")")) {
+                throw error("Expected ')'");
+            }
+            return inner;
+        }
+        return parseComparison();
+    }
+    
+    private RuleCondition parseComparison() {
+        String name = next("a feature name");
+        Feature feature = Feature.fromDslName(name);
+        if (feature == null) {
+            throw error("Unknown feature '" + name + "'", index - 1);
+        }
+        String operator = next("a comparison operator");
+        String literal = next("a number");
+        double value;
+        try {
+            value = Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            throw error("Expected a number but found '" + literal + "'", index - 1);
+        }
+        
+        int slot = feature.ordinal();
+        return switch (operator) {
+            case ">" -> features -> features[slot] > value;
+            case ">=" -> features -> features[slot] >= value;
+            case "<" -> features -> features[slot] < value;
+            case "<=" -> features -> features[slot] <= value;
+            case "==" -> features -> features[slot] == value;
+            case "!=" -> features -> features[slot] != value;
+            default -> throw error("Expected a comparison operator but found '" + operator + "'", index - 2);
+        };
+    }
+    
+    private void tokenize() {
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            if (c == '(' || c == ')') {
+                i++;
+            } else if (c == '<' || c == '>' || c == '=' || c == '!') {
+                i++;
+                if (i < source.length() && source.charAt(i) == '=') {
+                    i++;
+                }
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-') {
+                while (i < source.length()) {
+                    char next = source.charAt(i);
+                    if (!(Character.isLetterOrDigit(next) || next == '_' || next == '.' || next == '-')) {
+                        break;
+                    }
+                    i++;
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid rule expression at position " + (i + 1)
+                    + ": unexpected character '" + c + "'");
+            }
+            tokens.add(source.substring(start, i));
+            positions.add(start);
+        }
+    }
+    
+    private boolean accept(String token) {
+        if (index < tokens.size() && tokens.get(index).equals(token)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+    
+    private boolean acceptKeyword(String keyword) {
+        if (index < tokens.size() && tokens.get(index).toUpperCase(Locale.ROOT).equals(keyword)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+    
+    private String next(String expected) {
+        if (index >= tokens.size()) {
+            throw error("Expected " + expected + " at end of expression");
+        }
+        return tokens.get(index++);
+    }
+    
+    private String peek() {
+        return tokens.get(index);
+    }
+    
+    private IllegalArgumentException error(String message) {
+        return error(message, index);
+    }
+    
+    private IllegalArgumentException error(String message, int tokenIndex) {
+        int position = tokenIndex < positions.size() ? positions.get(tokenIndex) + 1 : source.length() + 1;
+        return new IllegalArgumentException("Invalid rule expression at position " + position + ": " + message);
+    }
+}
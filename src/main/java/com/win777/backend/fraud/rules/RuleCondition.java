@@ -0,0 +1,10 @@
+package com.win777.backend.fraud.rules;
+
+/**
+ * Compiled rule expression over a feature vector indexed by Feature ordinal
+ */
+@FunctionalInterface
+public interface RuleCondition {
+    
+    boolean test(double[] features);
+}
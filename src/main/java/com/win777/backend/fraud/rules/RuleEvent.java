@@ -0,0 +1,10 @@
+package com.win777.backend.fraud.rules;
+
+/**
+ * Points at which fraud rules are evaluated
+ */
+public enum RuleEvent {
+    REGISTRATION,
+    SMS_VERIFIED,
+    WITHDRAWAL_REQUESTED
+}
@@ -0,0 +1,111 @@
+package com.win777.backend.fraud.rules;
+
+/**
+ * Sliding per-user counters behind the rule features. Events land in hourly buckets
+ * (25 kept); a window of N hours sums the current partial hour, the N-1 full hours
+ * before it and the overlapping share of the oldest hour, like the sliding-window
+ * rate limiter. All times are passed in, so replay can feed historical timestamps.
+ */
+public final class UserFeatures {
+    
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final int SLOTS = 25;
+    
+    private final int[] slotHour = new int[SLOTS];
+    private final double[] sms = new double[SLOTS];
+    private final double[] withdrawals = new double[SLOTS];
+    private final double[] fraudEvents = new double[SLOTS];
+    private final double[] withdrawalAmounts = new double[SLOTS];
+    
+    private Long brandId;
+    private int deviceCount;
+    private long createdAtMillis;
+    private boolean emulator;
+    private long profileLoadedAt = Long.MIN_VALUE;
+    private volatile long lastSeenAt;
+    
+    public synchronized void recordSms(long now) {
+        sms[slot(now)]++;
+    }
+    
+    public synchronized void recordWithdrawal(long now, double amount) {
+        int slot = slot(now);
+        withdrawals[slot]++;
+        withdrawalAmounts[slot] += amount;
+    }
+    
+    public synchronized void recordFraud(long now) {
+        recordFraud(now, 1);
+    }
+    
+    public synchronized void recordFraud(long now, int count) {
+        fraudEvents[slot(now)] += count;
+    }
+    
+    public synchronized void setProfile(Long brandId, int deviceCount, long createdAtMillis, boolean emulator, long now) {
+        this.brandId = brandId;
+        this.deviceCount = deviceCount;
+        this.createdAtMillis = createdAtMillis;
+        this.emulator = emulator;
+        this.profileLoadedAt = now;
+        lastSeenAt = Math.max(lastSeenAt, now);
+    }
+    
+    public synchronized Long getBrandId() {
+        return brandId;
+    }
+    
+    public synchronized long getProfileLoadedAt() {
+        return profileLoadedAt;
+    }
+    
+    public long getLastSeenAt() {
+        return lastSeenAt;
+    }
+    
+    /**
+     * Write this user's features as of now into the vector (ring size and amount are left to the caller)
+     */
+    public synchronized void fill(double[] features, long now) {
+        features[Feature.SMS_1H.ordinal()] = window(sms, now, 1);
+        features[Feature.SMS_24H.ordinal()] = window(sms, now, 24);
+        features[Feature.WITHDRAWALS_24H.ordinal()] = window(withdrawals, now, 24);
+        features[Feature.WITHDRAWAL_AMOUNT_24H.ordinal()] = window(withdrawalAmounts, now, 24);
+        features[Feature.FRAUD_EVENTS_24H.ordinal()] = window(fraudEvents, now, 24);
+        features[Feature.DEVICE_COUNT.ordinal()] = deviceCount;
+        features[Feature.ACCOUNT_AGE_HOURS.ordinal()] = createdAtMillis == 0
+            ? 0 : Math.max(0, (now - createdAtMillis) / (double) HOUR_MILLIS);
+        features[Feature.EMULATOR.ordinal()] = emulator ? 1 : 0;
+    }
+    
+    private int slot(long now) {
+        lastSeenAt = Math.max(lastSeenAt, now);
+        int hour = (int) (now / HOUR_MILLIS);
+        int slot = hour % SLOTS;
+        if (slotHour[slot] != hour) {
+            slotHour[slot] = hour;
+            sms[slot] = 0;
+            withdrawals[slot] = 0;
+            fraudEvents[slot] = 0;
+            withdrawalAmounts[slot] = 0;
+        }
+        return slot;
+    }
+    
+    private double window(double[] values, long now, int hours) {
+        int hour = (int) (now / HOUR_MILLIS);
+        double elapsed = (now % HOUR_MILLIS) / (double) HOUR_MILLIS;
+        double total = 0;
+        for (int back = 0; back < hours; back++) {
+            int slot = (hour - back) % SLOTS;
+            if (slotHour[slot] == hour - back) {
+                total += values[slot];
+            }
+        }
+        int oldest = (hour - hours) % SLOTS;
+        if (slotHour[oldest] == hour - hours) {
+            total += values[oldest] * (1 - elapsed);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,223 @@
+package com.win777.backend.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded queue drained by a single writer thread that flushes batches of up to
+ * maxBatchSize records, or whatever has arrived maxDelay after the first record.
+ *
+ * Producers get backpressure: submit() waits up to offerTimeout for space and then
+ * fails. Each record's future completes once its batch is written (true), skipped
+ * by the sink (false, e.g. a unique-key conflict) or dropped after a failed flush.
+ * A flush that could not get a connection is retried once; other failures are not, as
+ * the batch may already be committed. A failed flush, even with an Error, never stops
+ * the writer thread.
+ * Fire-and-forget producers use offer(), which never waits and reports a full queue.
+ */
+@Slf4j
+public class BatchWriter<T> implements AutoCloseable {
+    
+    /**
+     * Writes one batch; returns per record whether it was written (false = skipped)
+     */
+    @FunctionalInterface
+    public interface Sink<T> {
+        boolean[] write(List<T> batch);
+    }
+    
+    private record Pending<T>(T item, CompletableFuture<Boolean> written) {
+    }
+    
+    private final String name;
+    private final BlockingQueue<Pending<T>> queue;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long offerTimeoutNanos;
+    private final Sink<T> sink;
+    private final Thread drainer;
+    private volatile boolean running = true;
+    
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter written;
+    private final Counter skipped;
+    private final Counter dropped;
+    private final Counter rejected;
+    
+    public BatchWriter(String name, int capacity, int maxBatchSize, Duration maxDelay, Duration offerTimeout,
+                       Sink<T> sink, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.sink = sink;
+        
+        Gauge.builder("ingest.queue.depth", queue, BlockingQueue::size)
+            .tag("writer", name)
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("ingest.flush.duration")
+            .tag("writer", name)
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("ingest.batch.size")
+            .tag("writer", name)
+            .register(meterRegistry);
+        this.written = records(meterRegistry, "written");
+        this.skipped = records(meterRegistry, "skipped");
+        this.dropped = records(meterRegistry, "dropped");
+        this.rejected = records(meterRegistry, "rejected");
+        
+        this.drainer = new Thread(this::drain, name + "-batch-writer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+    
+    /**
+     * Queue a record, waiting up to offerTimeout for space
+     */
+    public CompletableFuture<Boolean> submit(T item) {
+        if (!running) {
+            throw new IllegalStateException(name + " batch writer is closed");
+        }
+        Pending<T> pending = new Pending<>(item, new CompletableFuture<>());
+        try {
+            if (!queue.offer(pending, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                throw new RuntimeException("Service is busy. Please try again later.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing " + name + " record", e);
+        }
+        return pending.written();
+    }
+    
+    /**
+     * Queue a record without waiting; returns false (counted as rejected) if the queue is full
+     */
+    public boolean offer(T item) {
+        if (!running) {
+            return false;
+        }
+        if (!queue.offer(new Pending<>(item, new CompletableFuture<>()))) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+    
+    public int queueDepth() {
+        return queue.size();
+    }
+    
+    /**
+     * Stop accepting records and flush everything still queued
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.error("{} batch writer closed with {} records still queued", name, queue.size());
+        }
+    }
+    
+    private void drain() {
+        List<Pending<T>> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void flush(List<Pending<T>> batch) {
+        List<T> items = new ArrayList<>(batch.size());
+        for (Pending<T> pending : batch) {
+            items.add(pending.item());
+        }
+        batchSizes.record(items.size());
+        
+        long start = System.nanoTime();
+        try {
+            boolean[] result = writeWithRetry(items);
+            for (int i = 0; i < batch.size(); i++) {
+                (result[i] ? written : skipped).increment();
+                batch.get(i).written().complete(result[i]);
+            }
+        } catch (Throwable e) {
+            // Includes Errors: fail the batch's futures and keep draining
+            log.error("{} batch writer dropped {} records after a failed flush", name, batch.size(), e);
+            dropped.increment(batch.size());
+            for (Pending<T> pending : batch) {
+                pending.written().completeExceptionally(e);
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    /**
+     * Retries once only when the flush failed before reaching the database. Any later
+     * failure may have come after the commit, and re-running it would report the records
+     * as duplicates of themselves or, without a unique key, write them twice.
+     */
+    private boolean[] writeWithRetry(List<T> items) {
+        try {
+            return sink.write(items);
+        } catch (CannotGetJdbcConnectionException | CannotCreateTransactionException e) {
+            log.warn("{} batch flush of {} records could not get a connection, retrying once", name, items.size(), e);
+            return sink.write(items);
+        }
+    }
+    
+    private Counter records(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("ingest.records")
+            .tag("writer", name)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,119 @@
+package com.win777.backend.lock;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis lock with owner tokens, compare-and-delete release, watchdog lease renewal
+ * and monotonically increasing fencing tokens.
+ *
+ * The fencing token is what protects the data: a holder that stalls past its lease
+ * still carries an older token, so the store it writes to must reject tokens that
+ * are not newer than the last one it accepted.
+ */
+@Component
+@Slf4j
+public class DistributedLock {
+    
+    private static final RedisScript<Long> ACQUIRE_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/lock_acquire.lua"), Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/lock_release.lua"), Long.class);
+    private static final RedisScript<Long> RENEW_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/lock_renew.lua"), Long.class);
+    private static final RedisScript<Long> RAISE_FENCE_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/fence_raise.lua"), Long.class);
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lock-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * Try once to take the lock; on success the lease is renewed until the handle is released
+     */
+    public Optional<LockHandle> tryAcquire(String key, Duration ttl) {
+        String owner = newOwnerToken();
+        Long fence = stringRedisTemplate.execute(ACQUIRE_SCRIPT, List.of(key, fenceKey(key)),
+            owner, String.valueOf(ttl.toMillis()));
+        
+        if (fence == null || fence == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(adopt(key, owner, fence, ttl));
+    }
+    
+    /**
+     * Take over a lock that was set by another script (same key, owner and fence layout)
+     * so it gets watchdog renewal and compare-and-delete release
+     */
+    public LockHandle adopt(String key, String owner, long fence, Duration ttl) {
+        LockHandle handle = new LockHandle(this, key, owner, fence);
+        long period = Math.max(ttl.toMillis() / 3, 1);
+        ScheduledFuture<?> renewal = watchdog.scheduleAtFixedRate(
+            () -> renew(handle, ttl), period, period, TimeUnit.MILLISECONDS);
+        handle.setRenewal(renewal);
+        return handle;
+    }
+    
+    /**
+     * Make sure the next fencing token for the key is above the given floor,
+     * e.g. after Redis lost its data and the counter restarted
+     */
+    public void raiseFence(String key, long floor) {
+        stringRedisTemplate.execute(RAISE_FENCE_SCRIPT, List.of(fenceKey(key)), String.valueOf(floor));
+    }
+    
+    public static String fenceKey(String key) {
+        return key + ":fence";
+    }
+    
+    public static String newOwnerToken() {
+        return UUID.randomUUID().toString();
+    }
+    
+    void release(LockHandle handle) {
+        Long released = stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(handle.getKey()), handle.getOwner());
+        if (released == null || released == 0) {
+            log.warn("Lock {} (fence {}) had already expired or changed owner on release",
+                handle.getKey(), handle.getFence());
+        }
+    }
+    
+    private void renew(LockHandle handle, Duration ttl) {
+        try {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(handle.getKey()),
+                handle.getOwner(), String.valueOf(ttl.toMillis()));
+            if (renewed == null || renewed == 0) {
+                log.warn("Lost lock {} (fence {}) before release", handle.getKey(), handle.getFence());
+                handle.markLost();
+            }
+        } catch (Exception e) {
+            // Keep trying until the lease runs out; the fencing token still guards the writes
+            log.warn("Could not renew lock {}", handle.getKey(), e);
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        watchdog.shutdownNow();
+    }
+}
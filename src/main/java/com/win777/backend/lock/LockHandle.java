@@ -0,0 +1,73 @@
+package com.win777.backend.lock;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * A held distributed lock. Closing it stops the lease renewal and releases the lock
+ * if this handle still owns it.
+ */
+public class LockHandle implements AutoCloseable {
+    
+    private final DistributedLock lock;
+    private final String key;
+    private final String owner;
+    private final long fence;
+    
+    private volatile ScheduledFuture<?> renewal;
+    private volatile boolean lost;
+    private volatile boolean released;
+    
+    LockHandle(DistributedLock lock, String key, String owner, long fence) {
+        this.lock = lock;
+        this.key = key;
+        this.owner = owner;
+        this.fence = fence;
+    }
+    
+    public String getKey() {
+        return key;
+    }
+    
+    public String getOwner() {
+        return owner;
+    }
+    
+    /**
+     * Fencing token issued with this lock; strictly greater than any earlier holder's
+     */
+    public long getFence() {
+        return fence;
+    }
+    
+    /**
+     * False once the watchdog saw the lease expire or pass to another owner
+     */
+    public boolean isHeld() {
+        return !lost && !released;
+    }
+    
+    @Override
+    public void close() {
+        if (released) {
+            return;
+        }
+        released = true;
+        if (renewal != null) {
+            renewal.cancel(false);
+        }
+        if (!lost) {
+            lock.release(this);
+        }
+    }
+    
+    void setRenewal(ScheduledFuture<?> renewal) {
+        this.renewal = renewal;
+    }
+    
+    void markLost() {
+        lost = true;
+        if (renewal != null) {
+            renewal.cancel(false);
+        }
+    }
+}
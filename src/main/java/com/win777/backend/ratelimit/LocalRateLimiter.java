@@ -0,0 +1,51 @@
+package com.win777.backend.ratelimit;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process fallback used while Redis is unavailable. Every policy is approximated by a
+ * token bucket per key on this node, so across N nodes a key may get up to N times its
+ * limit - good enough to stop floods until Redis is back.
+ */
+@Component
+public class LocalRateLimiter {
+    
+    private static final int MAX_BUCKETS = 100_000;
+    
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+        
+        Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+    
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    
+    public RateLimitDecision tryAcquire(String key, RateLimitPolicy policy) {
+        long now = System.currentTimeMillis();
+        double capacity = policy.limit();
+        double ratePerMilli = capacity / policy.window().toMillis();
+        
+        if (buckets.size() >= MAX_BUCKETS && !buckets.containsKey(key)) {
+            // Buckets idle for a full window are full again and can be forgotten
+            buckets.values().removeIf(bucket -> now - bucket.refilledAt >= policy.window().toMillis());
+        }
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+        
+        synchronized (bucket) {
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.refilledAt) * ratePerMilli);
+            bucket.refilledAt = now;
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return RateLimitDecision.allow((long) bucket.tokens);
+            }
+            return RateLimitDecision.deny((long) Math.ceil((1 - bucket.tokens) / ratePerMilli), true);
+        }
+    }
+}
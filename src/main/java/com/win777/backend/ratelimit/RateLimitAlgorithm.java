@@ -0,0 +1,22 @@
+package com.win777.backend.ratelimit;
+
+/**
+ * Rate limiting algorithms, each backed by an atomic Redis Lua script
+ */
+public enum RateLimitAlgorithm {
+    
+    /**
+     * Exact: one sorted-set entry per request in the window. Memory grows with the limit.
+     */
+    SLIDING_LOG,
+    
+    /**
+     * Approximate: two fixed-window counters, the previous one weighted by overlap. O(1) memory.
+     */
+    SLIDING_WINDOW,
+    
+    /**
+     * Allows bursts up to the limit, refilling continuously over the window. O(1) memory.
+     */
+    TOKEN_BUCKET
+}
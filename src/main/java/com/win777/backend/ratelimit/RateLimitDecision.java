@@ -0,0 +1,17 @@
+package com.win777.backend.ratelimit;
+
+/**
+ * Outcome of a rate limit check. {@code local} is true when the denial was answered on
+ * this node without asking Redis: from the near-cache, or by the fallback limiter
+ * during a Redis outage.
+ */
+public record RateLimitDecision(boolean allowed, long remaining, long retryAfterMillis, boolean local) {
+    
+    static RateLimitDecision allow(long remaining) {
+        return new RateLimitDecision(true, remaining, 0, false);
+    }
+    
+    static RateLimitDecision deny(long retryAfterMillis, boolean local) {
+        return new RateLimitDecision(false, 0, retryAfterMillis, local);
+    }
+}
@@ -0,0 +1,85 @@
+package com.win777.backend.ratelimit;
+
+import com.win777.backend.entity.BrandConfig;
+import com.win777.backend.repository.BrandConfigRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the policy for a named limit, per brand. Brand configs override the
+ * application defaults:
+ * <pre>
+ * ratelimit.&lt;name&gt;.algorithm       SLIDING_LOG | SLIDING_WINDOW | TOKEN_BUCKET
+ * ratelimit.&lt;name&gt;.limit           requests per window
+ * ratelimit.&lt;name&gt;.window-seconds  window length
+ * </pre>
+ * Resolved policies are kept in memory for a minute, so brand config changes
+ * take effect within that time.
+ */
+@Component
+@Slf4j
+public class RateLimitPolicies {
+    
+    private static final long CACHE_TTL_MILLIS = 60_000;
+    
+    @Autowired
+    private BrandConfigRepository brandConfigRepository;
+    
+    @Autowired
+    private Environment environment;
+    
+    private record Cached(RateLimitPolicy policy, long expiresAt) {
+    }
+    
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    
+    /**
+     * Policy for the named limit; brandId may be null for users without a brand
+     */
+    public RateLimitPolicy resolve(String name, Long brandId) {
+        String cacheKey = name + ":" + brandId;
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(cacheKey);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.policy();
+        }
+        
+        RateLimitPolicy policy = load(name, brandId);
+        cache.put(cacheKey, new Cached(policy, now + CACHE_TTL_MILLIS));
+        return policy;
+    }
+    
+    private RateLimitPolicy load(String name, Long brandId) {
+        String prefix = "ratelimit." + name + ".";
+        String algorithm = environment.getProperty(prefix + "algorithm", "SLIDING_WINDOW");
+        String limit = environment.getProperty(prefix + "limit", "10");
+        String windowSeconds = environment.getProperty(prefix + "window-seconds", "3600");
+        
+        if (brandId != null) {
+            for (BrandConfig config : brandConfigRepository.findByBrandIdAndConfigKeyStartingWithAndIsActiveTrue(brandId, prefix)) {
+                String value = config.getConfigValue();
+                switch (config.getConfigKey().substring(prefix.length())) {
+                    case "algorithm" -> algorithm = value;
+                    case "limit" -> limit = value;
+                    case "window-seconds" -> windowSeconds = value;
+                    default -> log.warn("Unknown rate limit setting {} for brand {}", config.getConfigKey(), brandId);
+                }
+            }
+        }
+        
+        try {
+            return new RateLimitPolicy(RateLimitAlgorithm.valueOf(algorithm.trim().toUpperCase()),
+                Long.parseLong(limit.trim()), Duration.ofSeconds(Long.parseLong(windowSeconds.trim())));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid rate limit policy {} for brand {}: {} {} / {}s, using defaults",
+                name, brandId, algorithm, limit, windowSeconds, e);
+            return new RateLimitPolicy(RateLimitAlgorithm.SLIDING_WINDOW, 10, Duration.ofHours(1));
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.win777.backend.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * At most {@code limit} requests per {@code window} under the given algorithm
+ */
+public record RateLimitPolicy(RateLimitAlgorithm algorithm, long limit, Duration window) {
+}
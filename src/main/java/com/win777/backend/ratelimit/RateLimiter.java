@@ -0,0 +1,96 @@
+package com.win777.backend.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis-backed rate limiter. Each check is a single atomic script call; the clock is
+ * Redis TIME, so nodes with skewed clocks still agree on the window.
+ *
+ * Denials are remembered locally until their retry-after elapses, so a client hammering
+ * an exhausted key is turned away without a Redis round-trip.
+ */
+@Component
+@Slf4j
+public class RateLimiter {
+    
+    private static final String KEY_PREFIX = "ratelimit:";
+    private static final int NEAR_CACHE_MAX_ENTRIES = 100_000;
+    
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SLIDING_LOG_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/ratelimit_sliding_log.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SLIDING_WINDOW_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/ratelimit_sliding_window.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TOKEN_BUCKET_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/ratelimit_token_bucket.lua"), List.class);
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    /**
+     * Key -> epoch millis until which the key is known to be over its limit
+     */
+    private final Map<String, Long> deniedUntil = new ConcurrentHashMap<>();
+    
+    /**
+     * Consume one permit for the key under the policy
+     */
+    public RateLimitDecision tryAcquire(String key, RateLimitPolicy policy) {
+        // Hash-tagged, so any keys a script derives for this limit share its cluster slot
+        String redisKey = KEY_PREFIX + policy.algorithm().name().toLowerCase() + ":{" + key + "}";
+        
+        long now = System.currentTimeMillis();
+        Long blockedUntil = deniedUntil.get(redisKey);
+        if (blockedUntil != null) {
+            if (blockedUntil > now) {
+                return RateLimitDecision.deny(blockedUntil - now, true);
+            }
+            deniedUntil.remove(redisKey, blockedUntil);
+        }
+        
+        String limit = String.valueOf(policy.limit());
+        String window = String.valueOf(policy.window().toMillis());
+        List<?> result = switch (policy.algorithm()) {
+            case SLIDING_LOG -> stringRedisTemplate.execute(SLIDING_LOG_SCRIPT, List.of(redisKey),
+                limit, window, UUID.randomUUID().toString());
+            case SLIDING_WINDOW -> stringRedisTemplate.execute(SLIDING_WINDOW_SCRIPT, List.of(redisKey), limit, window);
+            case TOKEN_BUCKET -> stringRedisTemplate.execute(TOKEN_BUCKET_SCRIPT, List.of(redisKey), limit, window);
+        };
+        
+        if (result == null || result.size() < 3) {
+            throw new IllegalStateException("Unexpected rate limiter response for " + redisKey);
+        }
+        
+        if (((Number) result.get(0)).longValue() == 1) {
+            return RateLimitDecision.allow(((Number) result.get(1)).longValue());
+        }
+        
+        long retryAfter = ((Number) result.get(2)).longValue();
+        remember(redisKey, now + retryAfter);
+        return RateLimitDecision.deny(retryAfter, false);
+    }
+    
+    private void remember(String redisKey, long until) {
+        if (deniedUntil.size() >= NEAR_CACHE_MAX_ENTRIES) {
+            long now = System.currentTimeMillis();
+            deniedUntil.values().removeIf(expiry -> expiry <= now);
+            if (deniedUntil.size() >= NEAR_CACHE_MAX_ENTRIES) {
+                // Still full of live denials: skip caching rather than grow without bound
+                return;
+            }
+        }
+        deniedUntil.put(redisKey, until);
+    }
+}
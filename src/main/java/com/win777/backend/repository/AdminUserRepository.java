@@ -2,7 +2,11 @@ package com.win777.backend.repository;
 
 import com.win777.backend.entity.AdminUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,4 +23,12 @@ public interface AdminUserRepository extends JpaRepository<AdminUser, Long> {
     boolean existsByUsername(String username);
     
     boolean existsByEmail(String email);
+    
+    /**
+     * Replace the hash only if it is still the one that was checked
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE AdminUser a SET a.passwordHash = :newHash WHERE a.id = :id AND a.passwordHash = :oldHash")
+    int replacePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
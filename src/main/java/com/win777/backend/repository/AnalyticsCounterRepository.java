@@ -0,0 +1,160 @@
+package com.win777.backend.repository;
+
+import com.win777.backend.util.HyperLogLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds streamed counter deltas onto the daily analytics rows, creating them on first use.
+ * Each batch commits as a whole, so a failed flush can be retried without double counting.
+ * Unique users are kept as HyperLogLog sketches per brand, metric and day.
+ */
+@Repository
+public class AnalyticsCounterRepository {
+    
+    public record WalletDelta(Long brandId, LocalDate date, String transactionType, long transactions, BigDecimal amount) {
+    }
+    
+    public record SmsDelta(Long brandId, LocalDate date, long sent, long verified) {
+    }
+    
+    // Every ledger entry counts as a success until the ledger tracks failures
+    private static final String WALLET_UPSERT_SQL =
+            "INSERT INTO analytics_wallet_transactions AS a (brand_id, date, transaction_type, total_transactions, " +
+            "total_amount, success_count, failure_count, success_rate, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 0, CASE WHEN ? > 0 THEN 100.00 ELSE 0 END, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (brand_id, date, transaction_type) DO UPDATE SET " +
+            "total_transactions = a.total_transactions + EXCLUDED.total_transactions, " +
+            "total_amount = a.total_amount + EXCLUDED.total_amount, " +
+            "success_count = a.success_count + EXCLUDED.success_count, " +
+            "success_rate = CASE WHEN a.total_transactions + EXCLUDED.total_transactions > 0 " +
+            "THEN ROUND((a.success_count + EXCLUDED.success_count) * 100.0 / " +
+            "(a.total_transactions + EXCLUDED.total_transactions), 2) ELSE 0 END, " +
+            "updated_at = EXCLUDED.updated_at";
+    
+    private static final String SMS_UPSERT_SQL =
+            "INSERT INTO analytics_sms_metrics AS a (brand_id, date, total_sms_sent, verified_count, failed_count, " +
+            "verification_rate, unique_users, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, CASE WHEN ? > 0 THEN ROUND(? * 100.0 / ?, 2) ELSE 0 END, 0, " +
+            "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (brand_id, date) DO UPDATE SET " +
+            "total_sms_sent = a.total_sms_sent + EXCLUDED.total_sms_sent, " +
+            "verified_count = a.verified_count + EXCLUDED.verified_count, " +
+            "failed_count = a.failed_count + EXCLUDED.failed_count, " +
+            "verification_rate = CASE WHEN a.total_sms_sent + EXCLUDED.total_sms_sent > 0 " +
+            "THEN ROUND((a.verified_count + EXCLUDED.verified_count) * 100.0 / " +
+            "(a.total_sms_sent + EXCLUDED.total_sms_sent), 2) ELSE 0 END, " +
+            "updated_at = EXCLUDED.updated_at";
+    
+    private static final String SKETCH_INSERT_SQL =
+            "INSERT INTO analytics_unique_users (brand_id, metric, date, sketch, updated_at) " +
+            "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP) ON CONFLICT (brand_id, metric, date) DO NOTHING";
+    
+    // Distinct brand and user pairs of each metric's raw table, keyed by AnalyticsCounters.Metric name
+    private static final Map<String, String> RAW_USERS_SQL = Map.of(
+            "SMS", "SELECT DISTINCT u.brand_id, s.user_id FROM sms_logs s JOIN users u ON u.id = s.user_id " +
+                    "WHERE s.created_at >= ? AND s.created_at < ? AND u.brand_id IS NOT NULL",
+            "WALLET", "SELECT DISTINCT u.brand_id, wl.user_id FROM wallet_ledger wl JOIN users u ON u.id = wl.user_id " +
+                    "WHERE wl.created_at >= ? AND wl.created_at < ? AND u.brand_id IS NOT NULL");
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Transactional
+    public void addWalletDeltas(List<WalletDelta> deltas) {
+        jdbcTemplate.batchUpdate(WALLET_UPSERT_SQL, deltas, deltas.size(), (statement, delta) -> {
+            statement.setLong(1, delta.brandId());
+            statement.setDate(2, Date.valueOf(delta.date()));
+            statement.setString(3, delta.transactionType());
+            statement.setLong(4, delta.transactions());
+            statement.setBigDecimal(5, delta.amount());
+            statement.setLong(6, delta.transactions());
+            statement.setLong(7, delta.transactions());
+        });
+    }
+    
+    @Transactional
+    public void addSmsDeltas(List<SmsDelta> deltas) {
+        jdbcTemplate.batchUpdate(SMS_UPSERT_SQL, deltas, deltas.size(), (statement, delta) -> {
+            statement.setLong(1, delta.brandId());
+            statement.setDate(2, Date.valueOf(delta.date()));
+            statement.setLong(3, delta.sent());
+            statement.setLong(4, delta.verified());
+            statement.setLong(5, delta.sent() - delta.verified());
+            statement.setLong(6, delta.sent());
+            statement.setLong(7, delta.verified());
+            statement.setLong(8, delta.sent());
+        });
+    }
+    
+    /**
+     * Merge the sketch into the stored one for that day and return the combined sketch.
+     * Merging is idempotent, so the same sketch may be flushed any number of times.
+     */
+    @Transactional
+    public HyperLogLog mergeUniqueUsers(long brandId, String metric, LocalDate date, HyperLogLog sketch) {
+        if (jdbcTemplate.update(SKETCH_INSERT_SQL, brandId, metric, Date.valueOf(date), sketch.toBytes()) > 0) {
+            return sketch;
+        }
+        
+        byte[] stored = jdbcTemplate.queryForObject(
+                "SELECT sketch FROM analytics_unique_users WHERE brand_id = ? AND metric = ? AND date = ? FOR UPDATE",
+                byte[].class, brandId, metric, Date.valueOf(date));
+        HyperLogLog merged = HyperLogLog.fromBytes(stored);
+        merged.merge(sketch);
+        jdbcTemplate.update(
+                "UPDATE analytics_unique_users SET sketch = ?, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE brand_id = ? AND metric = ? AND date = ?",
+                merged.toBytes(), brandId, metric, Date.valueOf(date));
+        return merged;
+    }
+    
+    /**
+     * Union of the daily sketches in the range, merged row by row
+     */
+    public HyperLogLog mergeUniqueUsersBetween(long brandId, String metric, LocalDate startDate, LocalDate endDate) {
+        HyperLogLog union = new HyperLogLog();
+        jdbcTemplate.query(
+                "SELECT sketch FROM analytics_unique_users WHERE brand_id = ? AND metric = ? AND date BETWEEN ? AND ?",
+                rs -> {
+                    union.merge(HyperLogLog.fromBytes(rs.getBytes(1)));
+                },
+                brandId, metric, Date.valueOf(startDate), Date.valueOf(endDate));
+        return union;
+    }
+    
+    /**
+     * Sketch per brand of the users with raw rows of the metric in [start, end), built
+     * row by row without holding the user ids
+     */
+    public Map<Long, HyperLogLog> sketchRawUsersBetween(String metric, LocalDateTime start, LocalDateTime end) {
+        String sql = RAW_USERS_SQL.get(metric);
+        if (sql == null) {
+            throw new IllegalArgumentException("No raw table for unique users metric " + metric);
+        }
+        Map<Long, HyperLogLog> sketches = new HashMap<>();
+        jdbcTemplate.query(sql,
+                rs -> {
+                    sketches.computeIfAbsent(rs.getLong(1), brandId -> new HyperLogLog()).add(rs.getLong(2));
+                },
+                Timestamp.valueOf(start), Timestamp.valueOf(end));
+        return sketches;
+    }
+    
+    public void setSmsUniqueUsers(long brandId, LocalDate date, long uniqueUsers) {
+        jdbcTemplate.update(
+                "UPDATE analytics_sms_metrics SET unique_users = ? WHERE brand_id = ? AND date = ?",
+                uniqueUsers, brandId, Date.valueOf(date));
+    }
+}
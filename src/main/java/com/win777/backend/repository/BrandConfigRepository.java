@@ -19,4 +19,6 @@ public interface BrandConfigRepository extends JpaRepository<BrandConfig, Long>
     Optional<BrandConfig> findByBrandAndConfigKeyAndIsActiveTrue(Brand brand, String configKey);
     
     List<BrandConfig> findByBrand(Brand brand);
+    
+    List<BrandConfig> findByBrandIdAndConfigKeyStartingWithAndIsActiveTrue(Long brandId, String configKeyPrefix);
 }
@@ -1,7 +1,13 @@
 package com.win777.backend.repository;
 
+import com.win777.backend.dto.DeviceClaim;
+import com.win777.backend.dto.UserIdentifierRow;
 import com.win777.backend.entity.DeviceMapping;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,4 +23,35 @@ public interface DeviceMappingRepository extends JpaRepository<DeviceMapping, Lo
     boolean existsByDeviceFingerprint(String deviceFingerprint);
     
     long countByUserId(Long userId);
+    
+    /**
+     * Map the device to the user unless it already belongs to someone, in one statement.
+     * Refreshes last_seen_at only for the same owner; returns the owner either way.
+     */
+    @Query(value = "INSERT INTO device_mappings (device_fingerprint, user_id, first_seen_at, last_seen_at, is_suspicious) " +
+            "VALUES (:deviceFingerprint, :userId, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, FALSE) " +
+            "ON CONFLICT (device_fingerprint) DO UPDATE SET last_seen_at = CASE " +
+            "WHEN device_mappings.user_id = EXCLUDED.user_id THEN EXCLUDED.last_seen_at " +
+            "ELSE device_mappings.last_seen_at END " +
+            "RETURNING user_id AS userId, (xmax = 0) AS inserted", nativeQuery = true)
+    DeviceClaim claim(@Param("deviceFingerprint") String deviceFingerprint, @Param("userId") Long userId);
+    
+    /**
+     * Returns 1 if this call removed the mapping, 0 if it was already gone
+     */
+    @Modifying
+    @Query("DELETE FROM DeviceMapping dm WHERE dm.id = :id")
+    int deleteMapping(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE DeviceMapping dm SET dm.lastSeenAt = CURRENT_TIMESTAMP " +
+            "WHERE dm.deviceFingerprint = :deviceFingerprint AND dm.userId = :userId")
+    int touch(@Param("deviceFingerprint") String deviceFingerprint, @Param("userId") Long userId);
+    
+    /**
+     * Keyset scan over device owners, in id order
+     */
+    @Query("SELECT dm.id AS id, dm.userId AS userId, dm.deviceFingerprint AS identifier FROM DeviceMapping dm " +
+            "WHERE dm.id > :afterId ORDER BY dm.id")
+    List<UserIdentifierRow> findDeviceOwnersAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
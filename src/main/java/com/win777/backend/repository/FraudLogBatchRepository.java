@@ -0,0 +1,54 @@
+package com.win777.backend.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.win777.backend.entity.FraudLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Batched fraud log inserts for the asynchronous fraud event sink
+ */
+@Repository
+public class FraudLogBatchRepository {
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO fraud_logs (user_id, device_fingerprint, fraud_type, description, severity, " +
+            "detected_at, metadata) VALUES (?, ?, ?, ?, ?, ?, ?::jsonb)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * Insert all rows in one JDBC batch (rewritten into multi-row inserts by the driver)
+     */
+    public void insertAll(List<FraudLog> logs) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, logs, logs.size(), (statement, log) -> {
+            statement.setObject(1, log.getUserId());
+            statement.setString(2, log.getDeviceFingerprint());
+            statement.setString(3, log.getFraudType());
+            statement.setString(4, log.getDescription());
+            statement.setString(5, log.getSeverity());
+            statement.setTimestamp(6, Timestamp.valueOf(log.getDetectedAt()));
+            statement.setString(7, toJson(log));
+        });
+    }
+    
+    private String toJson(FraudLog log) {
+        if (log.getMetadata() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(log.getMetadata());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Fraud log metadata is not serializable", e);
+        }
+    }
+}
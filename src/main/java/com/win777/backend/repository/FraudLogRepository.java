@@ -1,7 +1,10 @@
 package com.win777.backend.repository;
 
+import com.win777.backend.dto.FraudEventRow;
 import com.win777.backend.entity.FraudLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -17,4 +20,13 @@ public interface FraudLogRepository extends JpaRepository<FraudLog, Long> {
     List<FraudLog> findByDetectedAtAfter(LocalDateTime dateTime);
     
     List<FraudLog> findByUserIdAndFraudType(Long userId, String fraudType);
+    
+    /**
+     * Fraud events of users in [start, end) other than the given type, in time order, for fraud rule replay.
+     * The metadata carries the coalesced count of each row.
+     */
+    @Query("SELECT f.userId AS userId, f.detectedAt AS at, f.metadata AS metadata FROM FraudLog f WHERE f.userId IS NOT NULL " +
+           "AND f.fraudType <> :excludedType AND f.detectedAt >= :start AND f.detectedAt < :end ORDER BY f.detectedAt")
+    List<FraudEventRow> findEventsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                          @Param("excludedType") String excludedType);
 }
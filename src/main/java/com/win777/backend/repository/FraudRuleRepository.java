@@ -0,0 +1,15 @@
+package com.win777.backend.repository;
+
+import com.win777.backend.entity.FraudRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FraudRuleRepository extends JpaRepository<FraudRule, Long> {
+    
+    List<FraudRule> findByIsActiveTrue();
+    
+    List<FraudRule> findByBrandId(Long brandId);
+}
@@ -0,0 +1,101 @@
+package com.win777.backend.repository;
+
+import com.win777.backend.entity.SmsLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-row SMS log inserts for the batched ingestion path
+ */
+@Repository
+public class SmsLogBatchRepository {
+    
+    /**
+     * One statement per batch: columns are bound as arrays and unnested into rows.
+     * Rows that hit a unique index (duplicate message) are skipped, not failed.
+     */
+    private static final String INSERT_SQL =
+            "INSERT INTO sms_logs (user_id, mobile, message_hash, message_digest, verification_code, " +
+            "status, verified_at, created_at) " +
+            "SELECT * FROM unnest(?::bigint[], ?::varchar[], ?::varchar[], ?::bytea[], ?::varchar[], " +
+            "?::varchar[], ?::timestamp[], ?::timestamp[]) " +
+            "ON CONFLICT DO NOTHING RETURNING message_hash";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Insert the batch; returns per row whether it was inserted (false = duplicate)
+     */
+    public boolean[] insertIgnoringDuplicates(List<SmsLog> logs) {
+        List<String> inserted = jdbcTemplate.query(
+                connection -> prepareInsert(connection, logs),
+                (rs, rowNum) -> rs.getString(1));
+        
+        Map<String, Integer> remaining = new HashMap<>();
+        for (String hash : inserted) {
+            remaining.merge(hash, 1, Integer::sum);
+        }
+        
+        boolean[] result = new boolean[logs.size()];
+        for (int i = 0; i < logs.size(); i++) {
+            Integer count = remaining.get(logs.get(i).getMessageHash());
+            if (count != null && count > 0) {
+                result[i] = true;
+                remaining.put(logs.get(i).getMessageHash(), count - 1);
+            }
+        }
+        return result;
+    }
+    
+    private PreparedStatement prepareInsert(Connection connection, List<SmsLog> logs) throws SQLException {
+        int size = logs.size();
+        Long[] userIds = new Long[size];
+        String[] mobiles = new String[size];
+        String[] hashes = new String[size];
+        byte[][] digests = new byte[size][];
+        String[] codes = new String[size];
+        String[] statuses = new String[size];
+        Timestamp[] verifiedAt = new Timestamp[size];
+        Timestamp[] createdAt = new Timestamp[size];
+        
+        for (int i = 0; i < size; i++) {
+            SmsLog log = logs.get(i);
+            userIds[i] = log.getUserId();
+            mobiles[i] = log.getMobile();
+            hashes[i] = log.getMessageHash();
+            digests[i] = log.getMessageDigest();
+            codes[i] = log.getVerificationCode();
+            statuses[i] = log.getStatus();
+            verifiedAt[i] = log.getVerifiedAt() == null ? null : Timestamp.valueOf(log.getVerifiedAt());
+            createdAt[i] = Timestamp.valueOf(log.getCreatedAt());
+        }
+        
+        List<Array> arrays = new ArrayList<>(8);
+        arrays.add(connection.createArrayOf("bigint", userIds));
+        arrays.add(connection.createArrayOf("varchar", mobiles));
+        arrays.add(connection.createArrayOf("varchar", hashes));
+        arrays.add(connection.createArrayOf("bytea", digests));
+        arrays.add(connection.createArrayOf("varchar", codes));
+        arrays.add(connection.createArrayOf("varchar", statuses));
+        arrays.add(connection.createArrayOf("timestamp", verifiedAt));
+        arrays.add(connection.createArrayOf("timestamp", createdAt));
+        
+        PreparedStatement statement = connection.prepareStatement(INSERT_SQL);
+        for (int i = 0; i < arrays.size(); i++) {
+            statement.setArray(i + 1, arrays.get(i));
+        }
+        return statement;
+    }
+}
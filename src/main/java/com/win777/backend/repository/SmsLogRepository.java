@@ -1,7 +1,13 @@
 package com.win777.backend.repository;
 
+import com.win777.backend.dto.MessageHashRow;
+import com.win777.backend.dto.SmsDayTotals;
+import com.win777.backend.dto.UserEventRow;
 import com.win777.backend.entity.SmsLog;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -12,7 +18,30 @@ import java.util.Optional;
 public interface SmsLogRepository extends JpaRepository<SmsLog, Long> {
     Optional<SmsLog> findByMessageHash(String messageHash);
     boolean existsByMessageHash(String messageHash);
+    boolean existsByMessageDigest(byte[] messageDigest);
+    
+    /**
+     * Keyset scan over all message hashes, in id order
+     */
+    @Query("SELECT s.id AS id, s.messageHash AS messageHash FROM SmsLog s WHERE s.id > :afterId ORDER BY s.id")
+    List<MessageHashRow> findMessageHashesAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * SMS verifications in [start, end), in time order, for fraud rule replay
+     */
+    @Query("SELECT s.userId AS userId, s.createdAt AS at FROM SmsLog s " +
+           "WHERE s.createdAt >= :start AND s.createdAt < :end ORDER BY s.createdAt")
+    List<UserEventRow> findEventsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
     
     // Analytics queries
-    List<SmsLog> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+    /**
+     * Sent, verified and distinct-sender counts per brand of the SMS logs in [start, end), in one pass
+     */
+    @Query("SELECT u.brand.id AS brandId, COUNT(s) AS totalSms, " +
+           "COALESCE(SUM(CASE WHEN s.verifiedAt IS NOT NULL THEN 1 ELSE 0 END), 0) AS verifiedCount, " +
+           "COUNT(DISTINCT s.userId) AS uniqueUsers " +
+           "FROM SmsLog s JOIN User u ON u.id = s.userId " +
+           "WHERE s.createdAt >= :start AND s.createdAt < :end " +
+           "GROUP BY u.brand.id")
+    List<SmsDayTotals> summarizeByBrandBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
@@ -1,7 +1,10 @@
 package com.win777.backend.repository;
 
+import com.win777.backend.dto.TaskDayTotals;
 import com.win777.backend.entity.TaskAssignment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -14,6 +17,15 @@ public interface TaskAssignmentRepository extends JpaRepository<TaskAssignment,
     Optional<TaskAssignment> findByUserIdAndTaskId(Long userId, Long taskId);
     
     // Analytics queries
-    List<TaskAssignment> findByTaskIdAndCreatedAtBetween(Long taskId, LocalDateTime start, LocalDateTime end);
-    long countByStatusAndCreatedAtBetween(String status, LocalDateTime start, LocalDateTime end);
+    long countByStatusAndCompletedAtBetween(String status, LocalDateTime start, LocalDateTime end);
+    
+    /**
+     * Assigned, completed and distinct-user counts of the task's assignments made in [start, end)
+     */
+    @Query("SELECT COUNT(ta) AS totalAssignments, " +
+           "COALESCE(SUM(CASE WHEN ta.status = 'COMPLETED' THEN 1 ELSE 0 END), 0) AS completedCount, " +
+           "COUNT(DISTINCT ta.userId) AS uniqueUsers " +
+           "FROM TaskAssignment ta WHERE ta.taskId = :taskId AND ta.assignedAt >= :start AND ta.assignedAt < :end")
+    TaskDayTotals summarizeBetween(@Param("taskId") Long taskId, @Param("start") LocalDateTime start,
+                                   @Param("end") LocalDateTime end);
 }
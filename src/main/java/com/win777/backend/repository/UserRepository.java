@@ -1,11 +1,20 @@
 package com.win777.backend.repository;
 
+import com.win777.backend.dto.UserEventRow;
+import com.win777.backend.dto.UserIdentifierRow;
+import com.win777.backend.dto.UserProfileRow;
 import com.win777.backend.entity.User;
 import com.win777.backend.entity.Brand;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +24,55 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByMobile(String mobile);
     List<User> findByMobileContaining(String mobile);
     
+    // Withdrawal admission state mirrored into Redis
+    @Query("SELECT u.id FROM User u WHERE u.isBanned = true")
+    List<Long> findBannedUserIds();
+    List<User> findByLastWithdrawalAtAfter(LocalDateTime after);
+    
+    @Query("SELECT u.brand.id FROM User u WHERE u.id = :userId")
+    Optional<Long> findBrandIdById(@Param("userId") Long userId);
+    
+    /**
+     * Fraud rule profiles; users without a brand are kept
+     */
+    @Query("SELECT u.id AS id, b.id AS brandId, u.deviceCount AS deviceCount, u.createdAt AS createdAt, " +
+           "u.isEmulator AS isEmulator FROM User u LEFT JOIN u.brand b WHERE u.id IN :userIds")
+    List<UserProfileRow> findProfilesByIdIn(@Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Registrations in [start, end), in time order, for fraud rule replay
+     */
+    @Query("SELECT u.id AS userId, u.createdAt AS at FROM User u " +
+           "WHERE u.createdAt >= :start AND u.createdAt < :end ORDER BY u.createdAt")
+    List<UserEventRow> findRegistrationsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    /**
+     * Keyset scan over user mobiles, in id order
+     */
+    @Query("SELECT u.id AS id, u.id AS userId, u.mobile AS identifier FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserIdentifierRow> findMobilesAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Mobiles registered since the given time, for catching the mobile filter up
+     */
+    @Query("SELECT u.mobile FROM User u WHERE u.createdAt >= :since")
+    List<String> findMobilesCreatedSince(@Param("since") LocalDateTime since);
+    
+    /**
+     * Maintain device_count as device mappings are added or released
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.deviceCount = COALESCE(u.deviceCount, 0) + :delta WHERE u.id = :userId")
+    int adjustDeviceCount(@Param("userId") Long userId, @Param("delta") int delta);
+    
+    /**
+     * Replace the hash only if it is still the one that was checked (login rehash)
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :newHash WHERE u.id = :id AND u.passwordHash = :oldHash")
+    int replacePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+    
     // Brand-specific queries
     long countByBrand(Brand brand);
     long countByBrandAndCreatedAtBetween(Brand brand, LocalDateTime start, LocalDateTime end);
@@ -0,0 +1,82 @@
+package com.win777.backend.repository;
+
+import com.win777.backend.entity.WalletBalance;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WalletBalanceRepository extends JpaRepository<WalletBalance, Long> {
+    
+    /**
+     * Apply a single ledger entry to the running balance, creating the row on first use
+     */
+    @Modifying
+    @Query(value = "INSERT INTO wallet_balances (user_id, balance, entry_count, updated_at) " +
+            "VALUES (:userId, :amount, 1, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (user_id) DO UPDATE SET " +
+            "balance = wallet_balances.balance + EXCLUDED.balance, " +
+            "entry_count = wallet_balances.entry_count + 1, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int applyEntry(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+    
+    /**
+     * Create an empty balance row for the user unless one exists
+     */
+    @Modifying
+    @Query(value = "INSERT INTO wallet_balances (user_id, balance, entry_count, updated_at) " +
+            "VALUES (:userId, 0, 0, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int createIfAbsent(@Param("userId") Long userId);
+    
+    /**
+     * Overwrite the running balance with values recomputed from the ledger
+     */
+    @Modifying
+    @Query(value = "INSERT INTO wallet_balances (user_id, balance, entry_count, updated_at) " +
+            "VALUES (:userId, :balance, :entryCount, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (user_id) DO UPDATE SET " +
+            "balance = EXCLUDED.balance, " +
+            "entry_count = EXCLUDED.entry_count, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int resetBalance(@Param("userId") Long userId, @Param("balance") BigDecimal balance,
+                     @Param("entryCount") Long entryCount);
+    
+    /**
+     * Record a withdrawal fencing token if it is newer than the last accepted one.
+     * Returns 0 when the token is stale. The row stays locked until commit, so
+     * concurrent holders are serialized on it.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO wallet_balances (user_id, balance, entry_count, withdrawal_fence, updated_at) " +
+            "VALUES (:userId, 0, 0, :fence, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (user_id) DO UPDATE SET withdrawal_fence = EXCLUDED.withdrawal_fence " +
+            "WHERE wallet_balances.withdrawal_fence < EXCLUDED.withdrawal_fence", nativeQuery = true)
+    int advanceWithdrawalFence(@Param("userId") Long userId, @Param("fence") long fence);
+    
+    @Query("SELECT wb.withdrawalFence FROM WalletBalance wb WHERE wb.userId = :userId")
+    Optional<Long> findWithdrawalFence(@Param("userId") Long userId);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT wb FROM WalletBalance wb WHERE wb.userId = :userId")
+    Optional<WalletBalance> findByUserIdForUpdate(@Param("userId") Long userId);
+    
+    /**
+     * Users whose materialized balance disagrees with the ledger (or is missing on either side)
+     */
+    @Query(value = "SELECT COALESCE(wb.user_id, l.user_id) FROM wallet_balances wb " +
+            "FULL OUTER JOIN (SELECT user_id, SUM(amount) AS balance, COUNT(*) AS entry_count " +
+            "FROM wallet_ledger GROUP BY user_id) l ON l.user_id = wb.user_id " +
+            "WHERE wb.user_id IS NULL " +
+            "OR (l.user_id IS NULL AND (wb.balance <> 0 OR wb.entry_count <> 0)) " +
+            "OR wb.balance <> l.balance OR wb.entry_count <> l.entry_count", nativeQuery = true)
+    List<Long> findDriftedUserIds();
+}
@@ -1,14 +1,22 @@
 package com.win777.backend.repository;
 
+import com.win777.backend.dto.LedgerEntryView;
+import com.win777.backend.dto.LedgerTotals;
+import com.win777.backend.dto.TransactionTypeTotals;
 import com.win777.backend.entity.WalletLedger;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface WalletLedgerRepository extends JpaRepository<WalletLedger, Long> {
@@ -17,6 +25,55 @@ public interface WalletLedgerRepository extends JpaRepository<WalletLedger, Long
     @Query("SELECT COALESCE(SUM(wl.amount), 0) FROM WalletLedger wl WHERE wl.userId = :userId")
     BigDecimal calculateBalance(@Param("userId") Long userId);
     
+    @Query("SELECT COALESCE(SUM(wl.amount), 0) AS balance, COUNT(wl) AS entryCount FROM WalletLedger wl WHERE wl.userId = :userId")
+    LedgerTotals summarizeByUserId(@Param("userId") Long userId);
+    
+    // Keyset pagination over idx_wallet_ledger_user_date, newest first, id as tie-breaker
+    @Query("SELECT new com.win777.backend.dto.LedgerEntryView(wl.id, wl.transactionType, wl.amount, " +
+           "wl.referenceType, wl.referenceId, wl.description, wl.createdAt) " +
+           "FROM WalletLedger wl WHERE wl.userId = :userId ORDER BY wl.createdAt DESC, wl.id DESC")
+    List<LedgerEntryView> findLedgerPage(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query("SELECT new com.win777.backend.dto.LedgerEntryView(wl.id, wl.transactionType, wl.amount, " +
+           "wl.referenceType, wl.referenceId, wl.description, wl.createdAt) " +
+           "FROM WalletLedger wl WHERE wl.userId = :userId " +
+           "AND (wl.createdAt < :createdAt OR (wl.createdAt = :createdAt AND wl.id < :id)) " +
+           "ORDER BY wl.createdAt DESC, wl.id DESC")
+    List<LedgerEntryView> findLedgerPageBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") Long id, Pageable pageable);
+    
+    // Server-side cursor for exports; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.win777.backend.dto.LedgerEntryView(wl.id, wl.transactionType, wl.amount, " +
+           "wl.referenceType, wl.referenceId, wl.description, wl.createdAt) " +
+           "FROM WalletLedger wl WHERE wl.userId = :userId ORDER BY wl.createdAt DESC, wl.id DESC")
+    Stream<LedgerEntryView> streamByUserId(@Param("userId") Long userId);
+    
     // Analytics queries
-    List<WalletLedger> findByTransactionTypeAndCreatedAtBetween(String transactionType, LocalDateTime start, LocalDateTime end);
+    /**
+     * Task rewards paid in [start, end) for completed assignments of the task. A reward that
+     * references its assignment (referenceType TASK_ASSIGNMENT, referenceId the assignment id)
+     * is matched on it; any other reward falls back to matching the user against the task's
+     * completed assignments made in the same range.
+     */
+    @Query("SELECT COALESCE(SUM(wl.amount), 0) FROM WalletLedger wl " +
+           "WHERE wl.transactionType = 'TASK_REWARD' AND wl.createdAt >= :start AND wl.createdAt < :end " +
+           "AND ((wl.referenceType = 'TASK_ASSIGNMENT' AND EXISTS (SELECT 1 FROM TaskAssignment ta " +
+           "WHERE ta.id = wl.referenceId AND ta.taskId = :taskId AND ta.status = 'COMPLETED')) " +
+           "OR ((wl.referenceType IS NULL OR wl.referenceType <> 'TASK_ASSIGNMENT') AND EXISTS (SELECT 1 FROM TaskAssignment ta " +
+           "WHERE ta.userId = wl.userId AND ta.taskId = :taskId AND ta.status = 'COMPLETED' " +
+           "AND ta.assignedAt >= :start AND ta.assignedAt < :end)))")
+    BigDecimal sumTaskRewardsBetween(@Param("taskId") Long taskId, @Param("start") LocalDateTime start,
+                                     @Param("end") LocalDateTime end);
+    
+    /**
+     * Count and total per brand and transaction type of the entries in [start, end), in one pass
+     */
+    @Query("SELECT u.brand.id AS brandId, wl.transactionType AS transactionType, COUNT(wl) AS transactions, " +
+           "COALESCE(SUM(wl.amount), 0) AS totalAmount " +
+           "FROM WalletLedger wl JOIN User u ON u.id = wl.userId " +
+           "WHERE wl.createdAt >= :start AND wl.createdAt < :end " +
+           "GROUP BY u.brand.id, wl.transactionType")
+    List<TransactionTypeTotals> summarizeByBrandAndTypeBetween(@Param("start") LocalDateTime start,
+                                                               @Param("end") LocalDateTime end);
 }
@@ -1,9 +1,15 @@
 package com.win777.backend.repository;
 
+import com.win777.backend.dto.WithdrawalDataRow;
+import com.win777.backend.dto.WithdrawalEventRow;
 import com.win777.backend.entity.Withdrawal;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -13,4 +19,18 @@ public interface WithdrawalRepository extends JpaRepository<Withdrawal, Long> {
     
     // Analytics queries
     long countByStatus(String status);
+    
+    /**
+     * Keyset scan over withdrawal request data, in id order
+     */
+    @Query("SELECT w.id AS id, w.userId AS userId, w.requestData AS requestData FROM Withdrawal w " +
+            "WHERE w.id > :afterId ORDER BY w.id")
+    List<WithdrawalDataRow> findRequestDataAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Withdrawal requests in [start, end), in time order, for fraud rule replay
+     */
+    @Query("SELECT w.userId AS userId, w.createdAt AS at, w.amount AS amount FROM Withdrawal w " +
+           "WHERE w.createdAt >= :start AND w.createdAt < :end ORDER BY w.createdAt")
+    List<WithdrawalEventRow> findEventsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
@@ -0,0 +1,187 @@
+package com.win777.backend.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Count-based circuit breaker.
+ *
+ * CLOSED: calls go through; the outcome of the last windowSize calls is kept, and once
+ * at least minimumCalls are recorded with a failure rate at or above the threshold the
+ * breaker opens. OPEN: calls are refused until openDuration has passed. HALF_OPEN: up to
+ * halfOpenCalls trial calls are let through; all succeeding closes the breaker, any
+ * failure opens it again.
+ */
+@Slf4j
+public class CircuitBreaker {
+    
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+    
+    private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+    
+    private final Counter successes;
+    private final Counter failures;
+    private final Counter notPermitted;
+    
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int halfOpenCalls, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        
+        Gauge.builder("circuit.state", this, breaker -> breaker.state.ordinal())
+            .description("0 = closed, 1 = open, 2 = half-open")
+            .tag("name", name)
+            .register(meterRegistry);
+        this.successes = calls(meterRegistry, "success");
+        this.failures = calls(meterRegistry, "failure");
+        this.notPermitted = calls(meterRegistry, "not_permitted");
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    /**
+     * Run when the breaker goes back to CLOSED
+     */
+    public void onClose(Runnable listener) {
+        closeListeners.add(listener);
+    }
+    
+    /**
+     * Whether a call may be attempted now; every permitted call must be followed by
+     * onSuccess(), onFailure() or release()
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                notPermitted.increment();
+                return false;
+            }
+            transition(State.HALF_OPEN);
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermitted >= halfOpenCalls) {
+                notPermitted.increment();
+                return false;
+            }
+            halfOpenPermitted++;
+        }
+        return true;
+    }
+    
+    public void onSuccess() {
+        successes.increment();
+        boolean closed = false;
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                halfOpenSucceeded++;
+                if (halfOpenSucceeded >= halfOpenCalls) {
+                    resetWindow();
+                    transition(State.CLOSED);
+                    closed = true;
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        }
+        if (closed) {
+            closeListeners.forEach(Runnable::run);
+        }
+    }
+    
+    /**
+     * Give back a permit whose call ended without telling anything about the remote side,
+     * e.g. it failed on a caller bug; records neither outcome
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && halfOpenPermitted > 0) {
+            halfOpenPermitted--;
+        }
+    }
+    
+    public synchronized void onFailure() {
+        failures.increment();
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minimumCalls && (double) windowFailures / windowCount >= failureRateThreshold) {
+                open();
+            }
+        }
+    }
+    
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+    
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+    
+    private void open() {
+        openedAt = System.nanoTime();
+        resetWindow();
+        transition(State.OPEN);
+    }
+    
+    private void transition(State next) {
+        if (state != next) {
+            log.warn("Circuit breaker {} {} -> {}", name, state, next);
+            state = next;
+        }
+    }
+    
+    private Counter calls(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("circuit.calls")
+            .tag("name", name)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
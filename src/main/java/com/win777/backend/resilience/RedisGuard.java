@@ -0,0 +1,173 @@
+package com.win777.backend.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker shared by the Redis calls on request paths. Together with the short
+ * spring.data.redis.timeout it bounds how long a Redis brownout can hold a request thread:
+ * once the breaker opens, calls go straight to their fallback.
+ */
+@Component
+@Slf4j
+public class RedisGuard {
+    
+    @Value("${redis.circuit.window-size:50}")
+    private int windowSize;
+    
+    @Value("${redis.circuit.minimum-calls:20}")
+    private int minimumCalls;
+    
+    @Value("${redis.circuit.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+    
+    @Value("${redis.circuit.open-duration-ms:5000}")
+    private long openDurationMillis;
+    
+    @Value("${redis.circuit.half-open-calls:5}")
+    private int halfOpenCalls;
+    
+    @Value("${redis.circuit.deferred-capacity:10000}")
+    private int deferredCapacity;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private CircuitBreaker breaker;
+    private BlockingQueue<Runnable> deferred;
+    private final ExecutorService replayer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "redis-deferred-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private Counter fallbacks;
+    private Counter deferredDropped;
+    
+    @PostConstruct
+    void init() {
+        breaker = new CircuitBreaker("redis", windowSize, minimumCalls, failureRateThreshold,
+            Duration.ofMillis(openDurationMillis), halfOpenCalls, meterRegistry);
+        deferred = new LinkedBlockingQueue<>(deferredCapacity);
+        breaker.onClose(() -> replayer.execute(this::replayDeferred));
+        
+        fallbacks = Counter.builder("redis.fallbacks")
+            .description("Redis calls answered by their fallback")
+            .register(meterRegistry);
+        deferredDropped = Counter.builder("redis.deferred.dropped")
+            .description("Deferred Redis writes dropped because the replay queue was full")
+            .register(meterRegistry);
+        Gauge.builder("redis.deferred.pending", deferred, BlockingQueue::size)
+            .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        replayer.shutdownNow();
+    }
+    
+    public boolean isAvailable() {
+        return breaker.getState() != CircuitBreaker.State.OPEN;
+    }
+    
+    /**
+     * Run a Redis call, or the fallback if the breaker is open or Redis fails. Only data
+     * access failures (connection, timeout, command errors) count against the breaker;
+     * any other exception is a bug in the caller and propagates.
+     */
+    public <T> T call(String operation, Supplier<T> action, Supplier<T> fallback) {
+        if (!breaker.tryAcquirePermission()) {
+            fallbacks.increment();
+            return fallback.get();
+        }
+        T result;
+        boolean recorded = false;
+        try {
+            result = action.get();
+            recorded = true;
+            breaker.onSuccess();
+        } catch (DataAccessException e) {
+            recorded = true;
+            breaker.onFailure();
+            fallbacks.increment();
+            log.warn("Redis call {} failed, using fallback: {}", operation, e.toString());
+            return fallback.get();
+        } catch (RuntimeException e) {
+            recorded = true;
+            breaker.release();
+            throw e;
+        } finally {
+            // An Error still counts as a failure, so a half-open trial permit is never left taken
+            if (!recorded) {
+                breaker.onFailure();
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Best-effort Redis write; skipped while the breaker is open
+     */
+    public void run(String operation, Runnable action) {
+        call(operation, () -> {
+            action.run();
+            return null;
+        }, () -> null);
+    }
+    
+    /**
+     * Redis write that is queued for replay once the breaker closes again if it cannot
+     * run now. Only use for writes that are safe to apply late (deletes, idempotent sets).
+     */
+    public void runOrDefer(String operation, Runnable action) {
+        runOrDefer(operation, action, action);
+    }
+    
+    /**
+     * As above, but replays a different action - e.g. one that re-reads the current
+     * value from the database, so a late replay cannot overwrite a newer write
+     */
+    public void runOrDefer(String operation, Runnable action, Runnable replay) {
+        call(operation, () -> {
+            action.run();
+            return null;
+        }, () -> {
+            if (!deferred.offer(replay)) {
+                deferredDropped.increment();
+                log.error("Dropping deferred Redis write {}: replay queue full", operation);
+            }
+            return null;
+        });
+    }
+    
+    private void replayDeferred() {
+        int replayed = 0;
+        Runnable action;
+        while (isAvailable() && (action = deferred.poll()) != null) {
+            try {
+                action.run();
+                replayed++;
+            } catch (RuntimeException e) {
+                log.warn("Deferred Redis write failed on replay", e);
+            }
+        }
+        if (replayed > 0) {
+            log.info("Replayed {} deferred Redis writes", replayed);
+        }
+    }
+}
@@ -6,20 +6,27 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
+    public static final String ADMIN_AUTHORITY = "ADMIN";
+    
     @Autowired
     private JwtUtil jwtUtil;
     
+    @Autowired
+    private TokenRevocations tokenRevocations;
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -29,20 +36,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
             
-            try {
-                String mobile = jwtUtil.extractMobile(token);
-                Long userId = jwtUtil.extractUserId(token);
-                
-                if (mobile != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    if (jwtUtil.validateToken(token, mobile)) {
-                        UsernamePasswordAuthenticationToken authentication = 
-                            new UsernamePasswordAuthenticationToken(userId, null, new ArrayList<>());
-                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authentication);
-                    }
-                }
-            } catch (Exception e) {
-                // Invalid token
+            // One verification per request; repeat tokens are answered from JwtUtil's cache
+            // and revocations from the node-local epochs, so neither touches the database
+            VerifiedToken verified = jwtUtil.verify(token);
+            if (verified != null && verified.subject() != null && !tokenRevocations.isRevoked(verified)
+                    && SecurityContextHolder.getContext().getAuthentication() == null) {
+                // Only admin tokens get the ADMIN authority that /admin/** requires
+                List<GrantedAuthority> authorities = verified.admin()
+                    ? List.of(new SimpleGrantedAuthority(ADMIN_AUTHORITY)) : List.of();
+                UsernamePasswordAuthenticationToken authentication = 
+                    new UsernamePasswordAuthenticationToken(verified.userId(), null, authorities);
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         }
         
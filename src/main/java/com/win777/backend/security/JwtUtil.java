@@ -1,9 +1,15 @@
 package com.win777.backend.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -11,59 +17,177 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtUtil {
     
+    /** Principal type claim; user and admin ids come from separate tables and can collide */
+    static final String TYPE_CLAIM = "type";
+    static final String USER = "USER";
+    static final String ADMIN = "ADMIN";
+    
+    /** Issue time in milliseconds; iat has whole seconds, too coarse to order against a revocation */
+    static final String ISSUED_AT_MILLIS_CLAIM = "iatMillis";
+    
     @Value("${jwt.secret}")
     private String secret;
     
     @Value("${jwt.expiration}")
     private Long expiration;
     
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    /** Verified tokens kept so repeat requests skip parsing and the HMAC check; 0 disables */
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Key signingKey;
+    private JwtParser parser;
+    
+    /**
+     * Keyed by the full token, so a hit is an exact match of a token that was verified
+     */
+    private final Map<String, VerifiedToken> verified = new ConcurrentHashMap<>();
+    private Counter cached;
+    private Counter parsed;
+    private Counter rejected;
+    
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        cached = verifications("cached");
+        parsed = verifications("verified");
+        rejected = verifications("rejected");
     }
     
     public String generateToken(Long userId, String mobile) {
+        return generate(userId, mobile, USER);
+    }
+    
+    /**
+     * Admin tokens carry the admin id as userId and the username as subject
+     */
+    public String generateAdminToken(Long adminId, String username) {
+        return generate(adminId, username, ADMIN);
+    }
+    
+    private String generate(Long userId, String subject, String type) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
-        claims.put("mobile", mobile);
+        claims.put("mobile", subject);
+        claims.put(TYPE_CLAIM, type);
+        long now = System.currentTimeMillis();
+        claims.put(ISSUED_AT_MILLIS_CLAIM, now);
         
         return Jwts.builder()
                 .setClaims(claims)
-                .setSubject(mobile)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setId(UUID.randomUUID().toString())
+                .setSubject(subject)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
+    /**
+     * Check the token once and return its claims, or null if it is invalid or expired.
+     * Tokens seen before are answered from the cache until they expire.
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        VerifiedToken cachedToken = verified.get(token);
+        if (cachedToken != null) {
+            if (!cachedToken.isExpired(now)) {
+                cached.increment();
+                return cachedToken;
+            }
+            verified.remove(token);
+        }
+        
+        VerifiedToken result;
+        try {
+            Claims claims = extractAllClaims(token);
+            if (claims.getExpiration() == null) {
+                rejected.increment();
+                return null;
+            }
+            // Older tokens only have iat, rounded down to the second, so a revocation later in
+            // that second still covers them; tokens without iat count as issued at 0
+            Long issuedAtMillis = claims.get(ISSUED_AT_MILLIS_CLAIM, Long.class);
+            long issuedAt = issuedAtMillis != null ? issuedAtMillis
+                : claims.getIssuedAt() == null ? 0 : claims.getIssuedAt().getTime();
+            // Tokens without a type predate admin tokens being marked and count as user tokens
+            result = new VerifiedToken(claims.getId(), claims.get("userId", Long.class), claims.getSubject(),
+                ADMIN.equals(claims.get(TYPE_CLAIM, String.class)), issuedAt, claims.getExpiration().getTime());
+        } catch (JwtException | IllegalArgumentException e) {
+            rejected.increment();
+            return null;
+        }
+        parsed.increment();
+        remember(token, result, now);
+        return result;
+    }
+    
     public Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
     
     public String extractMobile(String token) {
-        return extractAllClaims(token).getSubject();
+        return requireValid(token).subject();
     }
     
     public String extractUsername(String token) {
-        return extractAllClaims(token).getSubject();
+        return requireValid(token).subject();
     }
     
     public Long extractUserId(String token) {
-        return extractAllClaims(token).get("userId", Long.class);
+        return requireValid(token).userId();
     }
     
     public boolean isTokenExpired(String token) {
-        return extractAllClaims(token).getExpiration().before(new Date());
+        return verify(token) == null;
     }
     
     public boolean validateToken(String token, String mobile) {
-        return (extractMobile(token).equals(mobile) && !isTokenExpired(token));
+        VerifiedToken verifiedToken = verify(token);
+        return verifiedToken != null && Objects.equals(verifiedToken.subject(), mobile);
+    }
+    
+    private VerifiedToken requireValid(String token) {
+        VerifiedToken verifiedToken = verify(token);
+        if (verifiedToken == null) {
+            throw new JwtException("Invalid or expired token");
+        }
+        return verifiedToken;
+    }
+    
+    private void remember(String token, VerifiedToken verifiedToken, long now) {
+        if (cacheMaxEntries <= 0) {
+            return;
+        }
+        if (verified.size() >= cacheMaxEntries) {
+            verified.values().removeIf(entry -> entry.isExpired(now));
+            if (verified.size() >= cacheMaxEntries) {
+                // Still full of live tokens: drop them; a miss only re-checks the signature
+                verified.clear();
+            }
+        }
+        verified.put(token, verifiedToken);
+    }
+    
+    private Counter verifications(String result) {
+        return Counter.builder("auth.jwt.verifications")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 }
@@ -0,0 +1,144 @@
+package com.win777.backend.security;
+
+import com.win777.backend.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on its own small pool (one thread per core by default) instead
+ * of on request threads, so a login storm queues here rather than taking every Tomcat
+ * thread's CPU. At most threads + queue-capacity hashes are admitted; beyond that a
+ * request is refused at once with 429 instead of waiting.
+ */
+@Component
+public class PasswordHasher {
+    
+    @Value("${auth.hashing.threads:0}")
+    private int threads;
+    
+    @Value("${auth.hashing.queue-capacity:64}")
+    private int queueCapacity;
+    
+    @Value("${auth.hashing.timeout-ms:5000}")
+    private long timeoutMs;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private ExecutorService executor;
+    private Semaphore admitted;
+    private Timer queueTime;
+    private Timer hashTime;
+    private Counter rejected;
+    
+    @PostConstruct
+    void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int capacity = poolSize + queueCapacity;
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        admitted = new Semaphore(capacity);
+        
+        queueTime = Timer.builder("auth.password_hashing.queue")
+            .description("Time a password hash waited for a hashing thread")
+            .register(meterRegistry);
+        hashTime = Timer.builder("auth.password_hashing.duration")
+            .register(meterRegistry);
+        rejected = Counter.builder("auth.password_hashing.rejected")
+            .description("Password hashes refused because the hashing pool was saturated")
+            .register(meterRegistry);
+        Gauge.builder("auth.password_hashing.in_flight", admitted, semaphore -> capacity - semaphore.availablePermits())
+            .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+    
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+    
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+    
+    /**
+     * True if the hash uses a lower work factor than currently configured
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+    
+    private <T> T submit(Supplier<T> hash) {
+        if (!admitted.tryAcquire()) {
+            rejected.increment();
+            throw new TooManyRequestsException("Too many sign-in requests. Please try again shortly.");
+        }
+        
+        long submittedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    // Skip work the caller has already given up on
+                    if (!result.isDone()) {
+                        queueTime.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                        result.complete(hashTime.record(hash));
+                    }
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    admitted.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            admitted.release();
+            throw e;
+        }
+        
+        try {
+            return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            result.cancel(false);
+            rejected.increment();
+            throw new TooManyRequestsException("Too many sign-in requests. Please try again shortly.");
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while hashing password");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
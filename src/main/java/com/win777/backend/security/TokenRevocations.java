@@ -0,0 +1,153 @@
+package com.win777.backend.security;
+
+import com.win777.backend.repository.UserRepository;
+import com.win777.backend.resilience.RedisGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user "tokens issued before" epochs. A token is revoked when it was issued before
+ * its user's epoch, so a ban or password reset cuts off every session at once.
+ *
+ * Epochs live in the Redis hash auth:revoked-before and are mirrored in a node-local map
+ * that the authentication filter reads, with no database or Redis call per request.
+ * New epochs are broadcast over pub/sub and the map is resynced every minute in case a
+ * message was missed. At startup, users banned in the database are revoked as of then,
+ * which covers epochs Redis lost. Entries older than jwt.expiration are dropped, since
+ * every token they could revoke has expired. Epochs are keyed by user id and apply to
+ * user tokens only, never to an admin token whose admin id happens to match.
+ */
+@Component
+@Slf4j
+public class TokenRevocations {
+    
+    static final String EPOCHS_KEY = "auth:revoked-before";
+    static final String CHANNEL = "auth:revocations";
+    
+    @Value("${jwt.expiration}")
+    private Long expiration;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    
+    @Autowired
+    private RedisGuard redisGuard;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<Long, Long> revokedBefore = new ConcurrentHashMap<>();
+    private Counter rejected;
+    
+    @PostConstruct
+    void start() {
+        rejected = Counter.builder("auth.jwt.revoked")
+            .description("Requests rejected because their token was revoked")
+            .register(meterRegistry);
+        Gauge.builder("auth.jwt.revocations", revokedBefore, Map::size)
+            .register(meterRegistry);
+        
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.US_ASCII);
+            int separator = body.indexOf(':');
+            try {
+                apply(Long.parseLong(body.substring(0, separator)), Long.parseLong(body.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                log.warn("Ignoring malformed token revocation");
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+    
+    /**
+     * True if the user token was issued before its user's revocation epoch, compared to
+     * the millisecond
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        Long epoch = token.admin() || token.userId() == null ? null : revokedBefore.get(token.userId());
+        if (epoch != null && token.issuedAtMillis() < epoch) {
+            rejected.increment();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Revoke every token issued to the user so far, on this node at once and on the others
+     * via pub/sub (deferred until Redis is back if it is unavailable). Callers inside a
+     * transaction should call this after commit.
+     */
+    public void revokeUser(Long userId) {
+        long epoch = System.currentTimeMillis();
+        apply(userId, epoch);
+        // A late replay publishes the newest epoch, never an older one over a newer one
+        redisGuard.runOrDefer("auth.revoke", () -> publish(userId, epoch),
+            () -> publish(userId, revokedBefore.getOrDefault(userId, epoch)));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadBannedUsers() {
+        long now = System.currentTimeMillis();
+        try {
+            List<Long> banned = userRepository.findBannedUserIds();
+            banned.forEach(userId -> apply(userId, now));
+            log.info("Revoked tokens of {} banned users", banned.size());
+        } catch (RuntimeException e) {
+            log.error("Could not load banned users for token revocation", e);
+        }
+    }
+    
+    @Scheduled(fixedDelay = 60, initialDelay = 0, timeUnit = TimeUnit.SECONDS)
+    public void resync() {
+        long cutoff = System.currentTimeMillis() - expiration;
+        revokedBefore.values().removeIf(epoch -> epoch < cutoff);
+        
+        Map<Object, Object> stored = redisGuard.call("auth.revocations.sync",
+            () -> stringRedisTemplate.opsForHash().entries(EPOCHS_KEY), Map::of);
+        stored.forEach((field, value) -> {
+            try {
+                long epoch = Long.parseLong(value.toString());
+                if (epoch < cutoff) {
+                    redisGuard.run("auth.revocations.prune",
+                        () -> stringRedisTemplate.opsForHash().delete(EPOCHS_KEY, field));
+                } else {
+                    apply(Long.parseLong(field.toString()), epoch);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed revocation entry {}", field);
+            }
+        });
+    }
+    
+    private void publish(Long userId, long epoch) {
+        stringRedisTemplate.opsForHash().put(EPOCHS_KEY, userId.toString(), Long.toString(epoch));
+        stringRedisTemplate.convertAndSend(CHANNEL, userId + ":" + epoch);
+    }
+    
+    private void apply(Long userId, long epoch) {
+        revokedBefore.merge(userId, epoch, Math::max);
+    }
+}
@@ -0,0 +1,12 @@
+package com.win777.backend.security;
+
+/**
+ * The claims of a token whose signature and expiry have been checked. For admin tokens
+ * userId is the admin id.
+ */
+public record VerifiedToken(String tokenId, Long userId, String subject, boolean admin, long issuedAtMillis, long expiresAtMillis) {
+    
+    public boolean isExpired(long now) {
+        return now >= expiresAtMillis;
+    }
+}
@@ -1,25 +1,40 @@
 package com.win777.backend.service;
 
+import com.win777.backend.dto.FraudRingResponse;
+import com.win777.backend.dto.FraudRuleReplayRequest;
+import com.win777.backend.dto.FraudRuleReplayResponse;
+import com.win777.backend.dto.FraudRuleRequest;
 import com.win777.backend.entity.AdminAuditLog;
 import com.win777.backend.entity.AdminUser;
+import com.win777.backend.entity.FraudRule;
 import com.win777.backend.entity.Task;
 import com.win777.backend.entity.User;
 import com.win777.backend.entity.Withdrawal;
+import com.win777.backend.exception.TooManyRequestsException;
+import com.win777.backend.fraud.FraudRingIndex;
+import com.win777.backend.fraud.RingStats;
+import com.win777.backend.fraud.rules.FraudRuleReplay;
+import com.win777.backend.fraud.rules.FraudRulesChangedEvent;
+import com.win777.backend.fraud.rules.FraudRulesEngine;
 import com.win777.backend.repository.AdminAuditLogRepository;
 import com.win777.backend.repository.AdminUserRepository;
+import com.win777.backend.repository.FraudRuleRepository;
 import com.win777.backend.repository.TaskRepository;
 import com.win777.backend.repository.UserRepository;
 import com.win777.backend.repository.WithdrawalRepository;
+import com.win777.backend.security.PasswordHasher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
@@ -48,7 +63,23 @@ public class AdminService {
     private FraudPreventionService fraudPreventionService;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
+    
+    @Autowired
+    private FraudRingIndex fraudRingIndex;
+    
+    @Autowired
+    private FraudRuleRepository fraudRuleRepository;
+    
+    @Autowired
+    private FraudRuleReplay fraudRuleReplay;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    private static final List<String> SEVERITIES = List.of("LOW", "MEDIUM", "HIGH", "CRITICAL");
+    private static final Duration DEFAULT_REPLAY_WINDOW = Duration.ofDays(7);
+    private static final Duration MAX_REPLAY_WINDOW = Duration.ofDays(31);
     
     /**
      * Authenticate admin user
@@ -57,7 +88,8 @@ public class AdminService {
         Optional<AdminUser> admin = adminUserRepository.findByUsername(username);
         
         if (admin.isPresent() && admin.get().getIsActive()) {
-            if (passwordEncoder.matches(password, admin.get().getPasswordHash())) {
+            if (passwordHasher.matches(password, admin.get().getPasswordHash())) {
+                upgradePasswordHash(admin.get(), password);
                 return admin;
             }
         }
@@ -65,6 +97,20 @@ public class AdminService {
         return Optional.empty();
     }
     
+    /**
+     * Rehash at the current work factor after a successful login; skipped if the hashing pool is busy
+     */
+    private void upgradePasswordHash(AdminUser admin, String password) {
+        if (!passwordHasher.needsUpgrade(admin.getPasswordHash())) {
+            return;
+        }
+        try {
+            adminUserRepository.replacePasswordHash(admin.getId(), admin.getPasswordHash(), passwordHasher.encode(password));
+        } catch (TooManyRequestsException e) {
+            // Try again on a later login
+        }
+    }
+    
     /**
      * Create admin user
      */
@@ -80,7 +126,7 @@ public class AdminService {
         
         AdminUser admin = AdminUser.builder()
             .username(username)
-            .passwordHash(passwordEncoder.encode(password))
+            .passwordHash(passwordHasher.encode(password))
             .email(email)
             .role(role)
             .isActive(true)
@@ -124,6 +170,131 @@ public class AdminService {
         logAuditAction(adminId, "UNBAN_USER", "USER", userId, null, ipAddress);
     }
     
+    /**
+     * Accounts linked to the user through shared devices or payout targets
+     */
+    public FraudRingResponse getFraudRing(Long userId) {
+        RingStats ring = fraudRingIndex.stats(userId);
+        return FraudRingResponse.builder()
+            .userId(userId)
+            .clusterSize(ring.users())
+            .devices(ring.devices())
+            .payoutTargets(ring.payoutTargets())
+            .riskScore(ring.riskScore(fraudRingIndex.getRingSize()))
+            .build();
+    }
+    
+    /**
+     * Release a device fingerprint from its account (admin action)
+     */
+    @Transactional
+    public void releaseDevice(Long adminId, String deviceFingerprint, String ipAddress) {
+        fraudPreventionService.releaseDeviceMapping(deviceFingerprint);
+        
+        logAuditAction(adminId, "RELEASE_DEVICE", "DEVICE", null, 
+            Map.of("deviceFingerprint", deviceFingerprint), ipAddress);
+    }
+    
+    /**
+     * All fraud rules, or those of one brand
+     */
+    public List<FraudRule> getFraudRules(Long brandId) {
+        return brandId == null ? fraudRuleRepository.findAll() : fraudRuleRepository.findByBrandId(brandId);
+    }
+    
+    /**
+     * Create a fraud rule; the expression is compiled first so invalid rules are rejected
+     */
+    @Transactional
+    public FraudRule createFraudRule(Long adminId, FraudRuleRequest request, String ipAddress) {
+        FraudRule rule = toFraudRule(request, new FraudRule());
+        rule = fraudRuleRepository.save(rule);
+        eventPublisher.publishEvent(new FraudRulesChangedEvent(rule.getId()));
+        
+        logAuditAction(adminId, "CREATE_FRAUD_RULE", "FRAUD_RULE", rule.getId(), 
+            Map.of("name", rule.getName(), "expression", rule.getExpression(), "action", rule.getAction()), ipAddress);
+        
+        return rule;
+    }
+    
+    /**
+     * Replace a fraud rule's definition
+     */
+    @Transactional
+    public FraudRule updateFraudRule(Long adminId, Long ruleId, FraudRuleRequest request, String ipAddress) {
+        FraudRule existing = fraudRuleRepository.findById(ruleId)
+            .orElseThrow(() -> new RuntimeException("Fraud rule not found"));
+        FraudRule rule = fraudRuleRepository.save(toFraudRule(request, existing));
+        eventPublisher.publishEvent(new FraudRulesChangedEvent(ruleId));
+        
+        logAuditAction(adminId, "UPDATE_FRAUD_RULE", "FRAUD_RULE", ruleId, 
+            Map.of("name", rule.getName(), "expression", rule.getExpression(), "action", rule.getAction(),
+                "isActive", rule.getIsActive()), ipAddress);
+        
+        return rule;
+    }
+    
+    /**
+     * Delete a fraud rule
+     */
+    @Transactional
+    public void deleteFraudRule(Long adminId, Long ruleId, String ipAddress) {
+        FraudRule rule = fraudRuleRepository.findById(ruleId)
+            .orElseThrow(() -> new RuntimeException("Fraud rule not found"));
+        fraudRuleRepository.delete(rule);
+        eventPublisher.publishEvent(new FraudRulesChangedEvent(ruleId));
+        
+        logAuditAction(adminId, "DELETE_FRAUD_RULE", "FRAUD_RULE", ruleId, 
+            Map.of("name", rule.getName(), "expression", rule.getExpression()), ipAddress);
+    }
+    
+    /**
+     * Measure how often candidate (or stored) rules would have matched over past events
+     */
+    public FraudRuleReplayResponse replayFraudRules(FraudRuleReplayRequest request) {
+        LocalDateTime to = request.getTo() != null ? request.getTo() : LocalDateTime.now();
+        LocalDateTime from = request.getFrom() != null ? request.getFrom() : to.minus(DEFAULT_REPLAY_WINDOW);
+        if (!from.isBefore(to)) {
+            throw new RuntimeException("Replay start must be before its end");
+        }
+        if (Duration.between(from, to).compareTo(MAX_REPLAY_WINDOW) > 0) {
+            throw new RuntimeException("Replay window cannot exceed " + MAX_REPLAY_WINDOW.toDays() + " days");
+        }
+        
+        List<FraudRule> rules;
+        if (request.getRules() != null && !request.getRules().isEmpty()) {
+            rules = request.getRules().stream()
+                .map(candidate -> toFraudRule(candidate, new FraudRule()))
+                .toList();
+        } else if (request.getRuleIds() != null && !request.getRuleIds().isEmpty()) {
+            rules = fraudRuleRepository.findAllById(request.getRuleIds());
+        } else {
+            rules = fraudRuleRepository.findByIsActiveTrue();
+        }
+        if (rules.isEmpty()) {
+            throw new RuntimeException("No fraud rules to replay");
+        }
+        
+        return fraudRuleReplay.replay(rules, from, to);
+    }
+    
+    private FraudRule toFraudRule(FraudRuleRequest request, FraudRule rule) {
+        rule.setBrandId(request.getBrandId());
+        rule.setName(request.getName());
+        rule.setEventType(request.getEventType().trim().toUpperCase(Locale.ROOT));
+        rule.setExpression(request.getExpression());
+        rule.setAction(request.getAction() != null ? request.getAction().trim().toUpperCase(Locale.ROOT) : "LOG");
+        rule.setSeverity(request.getSeverity() != null ? request.getSeverity().trim().toUpperCase(Locale.ROOT) : "MEDIUM");
+        rule.setIsActive(request.getIsActive() == null || request.getIsActive());
+        
+        if (!SEVERITIES.contains(rule.getSeverity())) {
+            throw new RuntimeException("Invalid severity: " + request.getSeverity());
+        }
+        // Throws with the position of the first error if the rule does not compile
+        FraudRulesEngine.compile(rule);
+        return rule;
+    }
+    
     /**
      * Create or update task
      */
@@ -0,0 +1,207 @@
+package com.win777.backend.service;
+
+import com.win777.backend.entity.Brand;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the daily analytics collection as independent units on a small pool sized
+ * against the connection pool. Each unit is one AnalyticsService call and so its own
+ * short transaction; a failing unit is retried with backoff without holding up the rest.
+ * Wallet and SMS rollups cover every brand in one grouped query; user growth and the
+ * metrics snapshot run per brand. The unique user sketches are rebuilt from the raw rows,
+ * and can be backfilled for days before the sketches existed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsCollector {
+
+    private static final String ALL_BRANDS = "all";
+
+    private final AnalyticsService analyticsService;
+    private final BrandService brandService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${analytics.collector.threads:0}")
+    private int threads;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${analytics.collector.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${analytics.collector.retry-backoff-ms:2000}")
+    private long retryBackoffMs;
+
+    @Value("${analytics.collector.backfill-max-days:90}")
+    private int backfillMaxDays;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ExecutorService executor;
+
+    private record Unit(String name, String brand, Runnable action) {
+    }
+
+    @PostConstruct
+    void start() {
+        // By default a quarter of the connection pool, leaving the rest to request traffic
+        int poolSize = threads > 0 ? threads : Math.max(1, connectionPoolSize / 4);
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "analytics-collector-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Analytics collector running {} units at a time", poolSize);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Scheduled job to collect daily analytics
+     * Runs every day at 1 AM
+     */
+    @Scheduled(cron = "${analytics.collector.cron:0 0 1 * * *}")
+    public void collectDailyAnalytics() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Analytics collection is already running");
+        }
+        try {
+            collect(LocalDate.now().minusDays(1));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Rebuild the unique user sketches of every day in [startDate, endDate] from the raw rows,
+     * one day at a time on the collector pool. Returns once the backfill is queued; the range
+     * is capped at analytics.collector.backfill-max-days.
+     */
+    public void backfillUniqueUsers(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new RuntimeException("End date must not be before start date");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= backfillMaxDays) {
+            throw new RuntimeException("Backfill range must not exceed " + backfillMaxDays + " days");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Analytics collection is already running");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    backfill(startDate, endDate);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    private void backfill(LocalDate startDate, LocalDate endDate) {
+        List<Brand> brands = brandService.getAllActiveBrands();
+        long failed = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            LocalDate day = date;
+            if (!runWithRetry(new Unit("unique_users", ALL_BRANDS, () -> analyticsService.rebuildUniqueUsers(brands, day)))) {
+                failed++;
+            }
+        }
+        log.info("Unique user backfill from {} to {} completed, {} days failed", startDate, endDate, failed);
+    }
+
+    private void collect(LocalDate date) {
+        log.info("Starting daily analytics collection for {}", date);
+        long start = System.currentTimeMillis();
+
+        List<Brand> brands = brandService.getAllActiveBrands();
+        List<Unit> units = new ArrayList<>();
+        units.add(new Unit("wallet_transactions", ALL_BRANDS,
+                () -> analyticsService.updateWalletTransactionAnalytics(brands, date)));
+        units.add(new Unit("sms_metrics", ALL_BRANDS,
+                () -> analyticsService.updateSmsMetricsAnalytics(brands, date)));
+        units.add(new Unit("unique_users", ALL_BRANDS,
+                () -> analyticsService.rebuildUniqueUsers(brands, date)));
+        for (Brand brand : brands) {
+            units.add(new Unit("user_growth", brand.getBrandCode(),
+                    () -> analyticsService.updateUserGrowthAnalytics(brand, date)));
+            units.add(new Unit("metrics_snapshot", brand.getBrandCode(),
+                    () -> analyticsService.updateMetricsSnapshot(brand)));
+        }
+
+        List<CompletableFuture<Boolean>> results = units.stream()
+                .map(unit -> CompletableFuture.supplyAsync(() -> runWithRetry(unit), executor))
+                .toList();
+        long failed = results.stream().filter(result -> !result.join()).count();
+
+        log.info("Daily analytics collection for {} completed: {} units, {} failed, {} ms",
+                date, units.size(), failed, System.currentTimeMillis() - start);
+    }
+
+    private boolean runWithRetry(Unit unit) {
+        for (int attempt = 1; ; attempt++) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                unit.action().run();
+                sample.stop(unitTimer(unit, "success"));
+                return true;
+            } catch (RuntimeException e) {
+                sample.stop(unitTimer(unit, "failure"));
+                if (attempt >= maxAttempts) {
+                    log.error("Analytics unit {} for brand {} failed after {} attempts", unit.name(), unit.brand(), attempt, e);
+                    return false;
+                }
+                log.warn("Analytics unit {} for brand {} failed on attempt {}, retrying: {}",
+                        unit.name(), unit.brand(), attempt, e.getMessage());
+                Counter.builder("analytics.collection.retries")
+                        .tag("unit", unit.name())
+                        .register(meterRegistry)
+                        .increment();
+            }
+
+            try {
+                Thread.sleep(retryBackoffMs << (attempt - 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private Timer unitTimer(Unit unit, String outcome) {
+        return Timer.builder("analytics.collection.unit")
+                .description("Duration of one analytics collection unit attempt")
+                .tag("unit", unit.name())
+                .tag("brand", unit.brand())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,317 @@
+package com.win777.backend.service;
+
+import com.win777.backend.dto.UserProfileRow;
+import com.win777.backend.repository.AnalyticsCounterRepository;
+import com.win777.backend.repository.AnalyticsCounterRepository.SmsDelta;
+import com.win777.backend.repository.AnalyticsCounterRepository.WalletDelta;
+import com.win777.backend.repository.UserRepository;
+import com.win777.backend.util.HyperLogLog;
+import com.win777.backend.util.TransactionHooks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Near-real-time wallet and SMS analytics. Each committed ledger entry and stored SMS
+ * log bumps a per brand/day(/type) cell of LongAdders, so recording never contends on
+ * a lock; every few seconds the growth since the last flush is added onto the analytics
+ * rows with an UPSERT. A failed flush is simply carried into the next one, and flushes
+ * never overlap. Events count on the day their row was created, as the nightly rollups
+ * bucket them, so those rollups only reconcile the totals with the raw tables.
+ *
+ * Events from users whose brand is not cached yet are queued and resolved in one query
+ * at flush time, so the recording thread never waits on the database.
+ *
+ * Distinct users per brand/day go into HyperLogLog sketches, merged into the stored
+ * daily sketch on flush so date ranges can be answered by merging days.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsCounters {
+
+    private final AnalyticsCounterRepository analyticsCounterRepository;
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${analytics.counters.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.counters.brand-cache-size:100000}")
+    private int brandCacheSize;
+
+    @Value("${analytics.counters.max-unresolved:100000}")
+    private int maxUnresolved;
+
+    public enum Metric {
+        WALLET,
+        SMS
+    }
+
+    private record CellKey(Metric metric, long brandId, LocalDate date, String transactionType) {
+    }
+
+    private record SketchKey(Metric metric, long brandId, LocalDate date) {
+    }
+
+    private record Event(Metric metric, long userId, LocalDate date, String transactionType, long count, long value) {
+    }
+
+    /**
+     * Running totals since startup; only the flusher reads them and tracks what it has written
+     */
+    private static final class Cell {
+        final LongAdder count = new LongAdder();
+        final LongAdder value = new LongAdder();
+        long flushedCount;
+        long flushedValue;
+    }
+
+    /**
+     * Users seen that day; dirty once a register was raised since the last flush
+     */
+    private static final class Sketch {
+        final HyperLogLog users = new HyperLogLog();
+        final AtomicBoolean dirty = new AtomicBoolean();
+    }
+
+    private final Map<CellKey, Cell> cells = new ConcurrentHashMap<>();
+    private final Map<SketchKey, Sketch> sketches = new ConcurrentHashMap<>();
+    private final Map<Long, Long> brandByUser = new ConcurrentHashMap<>();
+    private final Queue<Event> unresolved = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger unresolvedCount = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private Timer flushTimer;
+    private Counter dropped;
+
+    @PostConstruct
+    void registerMetrics() {
+        flushTimer = Timer.builder("analytics.counters.flush")
+                .register(meterRegistry);
+        dropped = Counter.builder("analytics.counters.dropped")
+                .description("Events not counted because the unresolved queue was full; the nightly rollup corrects them")
+                .register(meterRegistry);
+        Gauge.builder("analytics.counters.cells", cells, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Count a ledger entry once the surrounding transaction commits, on the day it was created
+     */
+    public void recordWalletTransaction(Long userId, String transactionType, BigDecimal amount, LocalDateTime createdAt) {
+        long cents = amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        LocalDate date = dayOf(createdAt);
+        TransactionHooks.afterCommit(() -> record(new Event(Metric.WALLET, userId, date, transactionType, 1, cents)));
+    }
+
+    /**
+     * Count a stored SMS log once the surrounding transaction, if any, commits, on the day it was created
+     */
+    public void recordSms(Long userId, boolean verified, LocalDateTime createdAt) {
+        LocalDate date = dayOf(createdAt);
+        TransactionHooks.afterCommit(() -> record(new Event(Metric.SMS, userId, date, null, 1, verified ? 1 : 0)));
+    }
+
+    /**
+     * Runs on the scheduler and once more at shutdown; the lock keeps the two from
+     * reading the same deltas and adding them twice
+     */
+    @Scheduled(fixedDelayString = "${analytics.counters.flush-ms:5000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            flushTimer.record(this::flushLocked);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private void flushLocked() {
+        try {
+            resolvePending();
+        } catch (RuntimeException e) {
+            log.warn("Could not resolve brands for analytics counters, retrying next flush: {}", e.getMessage());
+        }
+        try {
+            writeDeltas();
+        } catch (RuntimeException e) {
+            log.warn("Analytics counter flush failed, deltas carry over to the next flush: {}", e.getMessage());
+        }
+        writeSketches();
+    }
+
+    private void record(Event event) {
+        if (!enabled) {
+            return;
+        }
+        Long brandId = brandByUser.get(event.userId());
+        if (brandId != null) {
+            add(event, brandId);
+        } else if (unresolvedCount.incrementAndGet() <= maxUnresolved) {
+            unresolved.add(event);
+        } else {
+            unresolvedCount.decrementAndGet();
+            dropped.increment();
+        }
+    }
+
+    private void add(Event event, long brandId) {
+        Cell cell = cells.computeIfAbsent(
+                new CellKey(event.metric(), brandId, event.date(), event.transactionType()), key -> new Cell());
+        cell.count.add(event.count());
+        cell.value.add(event.value());
+
+        Sketch sketch = sketches.computeIfAbsent(
+                new SketchKey(event.metric(), brandId, event.date()), key -> new Sketch());
+        // Set after the register so a concurrent flush either writes it or sees the flag
+        if (sketch.users.add(event.userId())) {
+            sketch.dirty.set(true);
+        }
+    }
+
+    private void resolvePending() {
+        List<Event> events = new ArrayList<>();
+        for (Event event = unresolved.poll(); event != null; event = unresolved.poll()) {
+            unresolvedCount.decrementAndGet();
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Set<Long> userIds = events.stream().map(Event::userId).collect(Collectors.toSet());
+        Map<Long, Long> brands = new HashMap<>();
+        try {
+            for (UserProfileRow row : userRepository.findProfilesByIdIn(userIds)) {
+                if (row.getBrandId() != null) {
+                    brands.put(row.getId(), row.getBrandId());
+                }
+            }
+        } catch (RuntimeException e) {
+            // Put the events back and try again on the next flush
+            events.forEach(this::record);
+            throw e;
+        }
+
+        if (brandByUser.size() + brands.size() > brandCacheSize) {
+            // Full: drop it; this batch's brands are added back below and the rest are
+            // reloaded by the flush that next needs them
+            brandByUser.clear();
+        }
+        brandByUser.putAll(brands);
+        // Users without a brand have no analytics rows to count into
+        for (Event event : events) {
+            Long brandId = brands.get(event.userId());
+            if (brandId != null) {
+                add(event, brandId);
+            }
+        }
+    }
+
+    private void writeDeltas() {
+        Map<CellKey, long[]> pending = new HashMap<>();
+        List<WalletDelta> walletDeltas = new ArrayList<>();
+        List<SmsDelta> smsDeltas = new ArrayList<>();
+        cells.forEach((key, cell) -> {
+            long count = cell.count.sum();
+            long value = cell.value.sum();
+            long countDelta = count - cell.flushedCount;
+            long valueDelta = value - cell.flushedValue;
+            if (countDelta == 0 && valueDelta == 0) {
+                return;
+            }
+            pending.put(key, new long[] {count, value});
+            if (key.metric() == Metric.WALLET) {
+                walletDeltas.add(new WalletDelta(key.brandId(), key.date(), key.transactionType(),
+                        countDelta, BigDecimal.valueOf(valueDelta, 2)));
+            } else {
+                smsDeltas.add(new SmsDelta(key.brandId(), key.date(), countDelta, valueDelta));
+            }
+        });
+
+        if (!walletDeltas.isEmpty()) {
+            analyticsCounterRepository.addWalletDeltas(walletDeltas);
+            markFlushed(pending, Metric.WALLET);
+        }
+        if (!smsDeltas.isEmpty()) {
+            analyticsCounterRepository.addSmsDeltas(smsDeltas);
+            markFlushed(pending, Metric.SMS);
+        }
+
+        // Days before yesterday can no longer change; drop their cells once fully written
+        LocalDate oldest = LocalDate.now().minusDays(1);
+        cells.entrySet().removeIf(entry -> entry.getKey().date().isBefore(oldest)
+                && entry.getValue().count.sum() == entry.getValue().flushedCount
+                && entry.getValue().value.sum() == entry.getValue().flushedValue);
+    }
+
+    private void writeSketches() {
+        sketches.forEach((key, sketch) -> {
+            if (!sketch.dirty.getAndSet(false)) {
+                return;
+            }
+            try {
+                HyperLogLog merged = analyticsCounterRepository.mergeUniqueUsers(
+                        key.brandId(), key.metric().name(), key.date(), sketch.users);
+                if (key.metric() == Metric.SMS) {
+                    analyticsCounterRepository.setSmsUniqueUsers(key.brandId(), key.date(), merged.estimate());
+                }
+            } catch (RuntimeException e) {
+                sketch.dirty.set(true);
+                log.warn("Could not flush {} unique users for brand {} on {}: {}",
+                        key.metric(), key.brandId(), key.date(), e.getMessage());
+            }
+        });
+
+        LocalDate oldest = LocalDate.now().minusDays(1);
+        sketches.entrySet().removeIf(entry -> entry.getKey().date().isBefore(oldest) && !entry.getValue().dirty.get());
+    }
+
+    private void markFlushed(Map<CellKey, long[]> pending, Metric metric) {
+        pending.forEach((key, totals) -> {
+            if (key.metric() == metric) {
+                Cell cell = cells.get(key);
+                cell.flushedCount = totals[0];
+                cell.flushedValue = totals[1];
+            }
+        });
+    }
+
+    private static LocalDate dayOf(LocalDateTime createdAt) {
+        return createdAt == null ? LocalDate.now() : createdAt.toLocalDate();
+    }
+}
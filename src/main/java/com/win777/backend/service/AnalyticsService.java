@@ -1,11 +1,15 @@
 package com.win777.backend.service;
 
+import com.win777.backend.dto.SmsDayTotals;
+import com.win777.backend.dto.TaskDayTotals;
+import com.win777.backend.dto.TransactionTypeTotals;
+import com.win777.backend.dto.UniqueUsersEstimate;
 import com.win777.backend.entity.*;
 import com.win777.backend.repository.*;
+import com.win777.backend.util.HyperLogLog;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,7 +19,9 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Service for analytics data collection and aggregation
@@ -30,8 +36,8 @@ public class AnalyticsService {
     private final UserGrowthAnalyticsRepository userGrowthRepository;
     private final SmsMetricsAnalyticsRepository smsMetricsRepository;
     private final MetricsSnapshotRepository metricsSnapshotRepository;
+    private final AnalyticsCounterRepository analyticsCounterRepository;
     
-    private final BrandService brandService;
     private final UserRepository userRepository;
     private final TaskRepository taskRepository;
     private final TaskAssignmentRepository taskAssignmentRepository;
@@ -49,9 +55,11 @@ public class AnalyticsService {
     }
 
     /**
-     * Get wallet transaction analytics for a date range
+     * Get wallet transaction analytics for a date range. Ranges reaching today are still
+     * being streamed into and are not cached.
      */
-    @Cacheable(value = "analytics:wallet", key = "#brand.id + ':' + #startDate + ':' + #endDate")
+    @Cacheable(value = "analytics:wallet", key = "#brand.id + ':' + #startDate + ':' + #endDate",
+            condition = "#endDate.isBefore(T(java.time.LocalDate).now())")
     public List<WalletTransactionAnalytics> getWalletTransactionAnalytics(Brand brand, LocalDate startDate, LocalDate endDate) {
         log.debug("Getting wallet transaction analytics for brand: {} from {} to {}", brand.getBrandCode(), startDate, endDate);
         return walletTransactionRepository.findByBrandAndDateBetweenOrderByDateDesc(brand, startDate, endDate);
@@ -67,14 +75,36 @@ public class AnalyticsService {
     }
 
     /**
-     * Get SMS metrics analytics for a date range
+     * Get SMS metrics analytics for a date range. Ranges reaching today are still
+     * being streamed into and are not cached.
      */
-    @Cacheable(value = "analytics:sms", key = "#brand.id + ':' + #startDate + ':' + #endDate")
+    @Cacheable(value = "analytics:sms", key = "#brand.id + ':' + #startDate + ':' + #endDate",
+            condition = "#endDate.isBefore(T(java.time.LocalDate).now())")
     public List<SmsMetricsAnalytics> getSmsMetricsAnalytics(Brand brand, LocalDate startDate, LocalDate endDate) {
         log.debug("Getting SMS metrics analytics for brand: {} from {} to {}", brand.getBrandCode(), startDate, endDate);
         return smsMetricsRepository.findByBrandAndDateBetweenOrderByDateDesc(brand, startDate, endDate);
     }
 
+    /**
+     * Approximate distinct users (SMS senders or wallet users) over a date range,
+     * merged from the daily sketches in constant memory
+     */
+    public UniqueUsersEstimate getUniqueUsers(Brand brand, String metric, LocalDate startDate, LocalDate endDate) {
+        AnalyticsCounters.Metric sketchMetric;
+        try {
+            sketchMetric = AnalyticsCounters.Metric.valueOf(metric.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown unique users metric: " + metric);
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new RuntimeException("End date must not be before start date");
+        }
+        
+        HyperLogLog users = analyticsCounterRepository.mergeUniqueUsersBetween(
+                brand.getId(), sketchMetric.name(), startDate, endDate);
+        return new UniqueUsersEstimate(sketchMetric.name(), startDate, endDate, users.estimate(), users.standardError());
+    }
+
     /**
      * Get metrics snapshot for dashboard
      */
@@ -98,35 +128,22 @@ public class AnalyticsService {
     public void updateTaskEngagementAnalytics(Brand brand, Long taskId, LocalDate date) {
         log.debug("Updating task engagement analytics for task: {} on {}", taskId, date);
         
-        // Get task assignment stats
+        // Get task assignment stats, aggregated in the database
         LocalDateTime startOfDay = date.atStartOfDay();
         LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
         
-        List<TaskAssignment> assignments = taskAssignmentRepository
-                .findByTaskIdAndCreatedAtBetween(taskId, startOfDay, endOfDay);
-        
-        int totalAssignments = assignments.size();
-        int completedCount = (int) assignments.stream()
-                .filter(a -> "COMPLETED".equals(a.getStatus()))
-                .count();
+        TaskDayTotals totals = taskAssignmentRepository.summarizeBetween(taskId, startOfDay, endOfDay);
         
-        long uniqueUsers = assignments.stream()
-                .map(TaskAssignment::getUserId)
-                .distinct()
-                .count();
+        int totalAssignments = totals.getTotalAssignments().intValue();
+        int completedCount = totals.getCompletedCount().intValue();
+        long uniqueUsers = totals.getUniqueUsers();
         
         BigDecimal completionRate = totalAssignments > 0 
                 ? BigDecimal.valueOf(completedCount * 100.0 / totalAssignments).setScale(2, RoundingMode.HALF_UP)
                 : BigDecimal.ZERO;
         
-        // Calculate total rewards paid from wallet ledger
-        BigDecimal totalRewards = walletLedgerRepository
-                .findByTransactionTypeAndCreatedAtBetween("TASK_REWARD", startOfDay, endOfDay)
-                .stream()
-                .filter(ledger -> assignments.stream()
-                        .anyMatch(a -> a.getUserId().equals(ledger.getUserId()) && "COMPLETED".equals(a.getStatus())))
-                .map(WalletLedger::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Rewards paid today for this task's completed assignments, joined on the ledger reference
+        BigDecimal totalRewards = walletLedgerRepository.sumTaskRewardsBetween(taskId, startOfDay, endOfDay);
         
         // Get task entity
         Task task = taskRepository.findById(taskId).orElse(null);
@@ -191,23 +208,32 @@ public class AnalyticsService {
     }
 
     /**
-     * Update wallet transaction analytics for a specific date
+     * Update wallet transaction analytics for a specific date, one record per brand and transaction type
      */
     @Transactional
-    public void updateWalletTransactionAnalytics(Brand brand, LocalDate date, String transactionType) {
-        log.debug("Updating wallet transaction analytics for {} on {} - type: {}", brand.getBrandCode(), date, transactionType);
+    public void updateWalletTransactionAnalytics(List<Brand> brands, LocalDate date) {
+        log.debug("Updating wallet transaction analytics for {} brands on {}", brands.size(), date);
         
         LocalDateTime startOfDay = date.atStartOfDay();
         LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
         
-        // Get wallet transactions for this date and type
-        List<WalletLedger> transactions = walletLedgerRepository
-                .findByTransactionTypeAndCreatedAtBetween(transactionType, startOfDay, endOfDay);
+        // Count and total per brand and transaction type, aggregated in the database in one pass
+        Map<Long, List<TransactionTypeTotals>> totalsByBrand = walletLedgerRepository
+                .summarizeByBrandAndTypeBetween(startOfDay, endOfDay)
+                .stream()
+                .filter(totals -> totals.getBrandId() != null)
+                .collect(Collectors.groupingBy(TransactionTypeTotals::getBrandId));
         
-        int totalTransactions = transactions.size();
-        BigDecimal totalAmount = transactions.stream()
-                .map(WalletLedger::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        for (Brand brand : brands) {
+            for (TransactionTypeTotals totals : totalsByBrand.getOrDefault(brand.getId(), List.of())) {
+                saveWalletTransactionAnalytics(brand, date, totals);
+            }
+        }
+    }
+
+    private void saveWalletTransactionAnalytics(Brand brand, LocalDate date, TransactionTypeTotals totals) {
+        String transactionType = totals.getTransactionType();
+        int totalTransactions = totals.getTransactions().intValue();
         
         // For success/failure, we'd need additional status tracking in WalletLedger
         int successCount = totalTransactions; // Simplified
@@ -227,7 +253,7 @@ public class AnalyticsService {
                         .build());
         
         analytics.setTotalTransactions(totalTransactions);
-        analytics.setTotalAmount(totalAmount);
+        analytics.setTotalAmount(totals.getTotalAmount());
         analytics.setSuccessCount(successCount);
         analytics.setFailureCount(failureCount);
         analytics.setSuccessRate(successRate);
@@ -236,28 +262,57 @@ public class AnalyticsService {
     }
 
     /**
-     * Update SMS metrics analytics for a specific date
+     * Fold the users in the day's raw SMS logs and ledger entries into the stored daily
+     * sketches. Streamed sketches miss events that were dropped or never reached a flush;
+     * the raw rows are a superset of them, so after the merge the sketch is the one the
+     * raw rows alone would give. Each merge commits on its own and may be re-run.
+     */
+    public void rebuildUniqueUsers(List<Brand> brands, LocalDate date) {
+        LocalDateTime startOfDay = date.atStartOfDay();
+        LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
+        
+        for (AnalyticsCounters.Metric metric : AnalyticsCounters.Metric.values()) {
+            Map<Long, HyperLogLog> sketches = analyticsCounterRepository
+                    .sketchRawUsersBetween(metric.name(), startOfDay, endOfDay);
+            for (Brand brand : brands) {
+                HyperLogLog sketch = sketches.get(brand.getId());
+                if (sketch != null) {
+                    analyticsCounterRepository.mergeUniqueUsers(brand.getId(), metric.name(), date, sketch);
+                }
+            }
+        }
+        log.debug("Rebuilt unique user sketches for {} brands on {}", brands.size(), date);
+    }
+
+    /**
+     * Update SMS metrics analytics for a specific date, one record per brand
      */
     @Transactional
-    public void updateSmsMetricsAnalytics(Brand brand, LocalDate date) {
-        log.debug("Updating SMS metrics analytics for {} on {}", brand.getBrandCode(), date);
+    public void updateSmsMetricsAnalytics(List<Brand> brands, LocalDate date) {
+        log.debug("Updating SMS metrics analytics for {} brands on {}", brands.size(), date);
         
         LocalDateTime startOfDay = date.atStartOfDay();
         LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
         
-        // Get SMS logs for this date
-        List<SmsLog> smsLogs = smsLogRepository.findByCreatedAtBetween(startOfDay, endOfDay);
+        // Get SMS stats per brand for this date, aggregated in the database in one pass
+        Map<Long, SmsDayTotals> totalsByBrand = smsLogRepository
+                .summarizeByBrandBetween(startOfDay, endOfDay)
+                .stream()
+                .filter(totals -> totals.getBrandId() != null)
+                .collect(Collectors.toMap(SmsDayTotals::getBrandId, totals -> totals));
         
-        int totalSms = smsLogs.size();
-        int verifiedCount = (int) smsLogs.stream()
-                .filter(log -> log.getVerifiedAt() != null)
-                .count();
+        for (Brand brand : brands) {
+            saveSmsMetricsAnalytics(brand, date, totalsByBrand.get(brand.getId()));
+        }
+    }
+
+    private void saveSmsMetricsAnalytics(Brand brand, LocalDate date, SmsDayTotals totals) {
+        // A brand with no SMS that day still gets a zero record
+        int totalSms = totals != null ? totals.getTotalSms().intValue() : 0;
+        int verifiedCount = totals != null ? totals.getVerifiedCount().intValue() : 0;
         int failedCount = totalSms - verifiedCount;
         
-        long uniqueUsers = smsLogs.stream()
-                .map(SmsLog::getUserId)
-                .distinct()
-                .count();
+        long uniqueUsers = totals != null ? totals.getUniqueUsers() : 0;
         
         BigDecimal verificationRate = totalSms > 0 
                 ? BigDecimal.valueOf(verifiedCount * 100.0 / totalSms).setScale(2, RoundingMode.HALF_UP)
@@ -307,7 +362,7 @@ public class AnalyticsService {
         // Tasks completed today
         LocalDateTime endOfToday = LocalDate.now().plusDays(1).atStartOfDay();
         long tasksCompletedToday = taskAssignmentRepository
-                .countByStatusAndCreatedAtBetween("COMPLETED", startOfToday, endOfToday);
+                .countByStatusAndCompletedAtBetween("COMPLETED", startOfToday, endOfToday);
         updateSnapshot(brand, "tasks_completed_today", BigDecimal.valueOf(tasksCompletedToday));
     }
 
@@ -324,42 +379,4 @@ public class AnalyticsService {
         
         metricsSnapshotRepository.save(snapshot);
     }
-
-    /**
-     * Scheduled job to collect daily analytics
-     * Runs every day at 1 AM
-     */
-    @Scheduled(cron = "0 0 1 * * *")
-    @Transactional
-    public void collectDailyAnalytics() {
-        log.info("Starting daily analytics collection");
-        
-        LocalDate yesterday = LocalDate.now().minusDays(1);
-        List<Brand> brands = brandService.getAllActiveBrands();
-        
-        for (Brand brand : brands) {
-            try {
-                log.info("Collecting analytics for brand: {}", brand.getBrandCode());
-                
-                // Update user growth analytics
-                updateUserGrowthAnalytics(brand, yesterday);
-                
-                // Update wallet transaction analytics
-                updateWalletTransactionAnalytics(brand, yesterday, "REWARD");
-                updateWalletTransactionAnalytics(brand, yesterday, "WITHDRAWAL");
-                
-                // Update SMS metrics
-                updateSmsMetricsAnalytics(brand, yesterday);
-                
-                // Update metrics snapshot
-                updateMetricsSnapshot(brand);
-                
-                log.info("Analytics collection completed for brand: {}", brand.getBrandCode());
-            } catch (Exception e) {
-                log.error("Error collecting analytics for brand: {}", brand.getBrandCode(), e);
-            }
-        }
-        
-        log.info("Daily analytics collection completed");
-    }
 }
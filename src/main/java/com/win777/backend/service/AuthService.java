@@ -2,15 +2,20 @@ package com.win777.backend.service;
 
 import com.win777.backend.dto.*;
 import com.win777.backend.entity.User;
+import com.win777.backend.fraud.rules.RuleEvent;
 import com.win777.backend.repository.UserRepository;
+import com.win777.backend.exception.TooManyRequestsException;
 import com.win777.backend.security.JwtUtil;
+import com.win777.backend.security.PasswordHasher;
+import com.win777.backend.security.TokenRevocations;
+import com.win777.backend.util.TransactionHooks;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class AuthService {
@@ -19,7 +24,7 @@ public class AuthService {
     private UserRepository userRepository;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
     
     @Autowired
     private JwtUtil jwtUtil;
@@ -27,12 +32,31 @@ public class AuthService {
     @Autowired
     private FraudPreventionService fraudPreventionService;
     
-    @Transactional
+    @Autowired
+    private TokenRevocations tokenRevocations;
+    
+    @Autowired
+    private MobileRegistry mobileRegistry;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    /**
+     * Not transactional on purpose: the password is hashed first, and hashing can queue
+     * behind other logins, so no pooled connection may be held while it waits
+     */
     public AuthResponse register(RegisterRequest request) {
-        if (userRepository.existsByMobile(request.getMobile())) {
+        // Unknown numbers skip the lookup; the unique index on mobile still has the last word
+        if (mobileRegistry.mightBeRegistered(request.getMobile())
+                && userRepository.existsByMobile(request.getMobile())) {
             throw new RuntimeException("Mobile number already registered");
         }
         
+        String passwordHash = passwordHasher.encode(request.getPassword());
+        return transactionTemplate.execute(status -> createUser(request, passwordHash));
+    }
+    
+    private AuthResponse createUser(RegisterRequest request, String passwordHash) {
         // Check for emulator
         Map<String, String> deviceInfo = new HashMap<>();
         boolean isEmulator = fraudPreventionService.detectEmulator(
@@ -40,15 +64,17 @@ public class AuthService {
         
         User user = User.builder()
                 .mobile(request.getMobile())
-                .passwordHash(passwordEncoder.encode(request.getPassword()))
+                .passwordHash(passwordHash)
                 .deviceFingerprint(request.getDeviceFingerprint())
                 .status("ACTIVE")
                 .isEmulator(isEmulator)
                 .isBanned(false)
-                .deviceCount(1)
+                // Counted up as device mappings are claimed
+                .deviceCount(0)
                 .build();
         
         user = userRepository.save(user);
+        mobileRegistry.register(user.getMobile());
         
         // Create device mapping
         fraudPreventionService.validateDeviceMapping(user.getId(), request.getDeviceFingerprint());
@@ -59,15 +85,17 @@ public class AuthService {
                 "EMULATOR_DETECTED", "Emulator detected during registration", "MEDIUM");
         }
         
+        fraudPreventionService.applyFraudRules(RuleEvent.REGISTRATION, user.getId(), 0);
+        
         String token = jwtUtil.generateToken(user.getId(), user.getMobile());
         return new AuthResponse(token, user.getMobile(), user.getId());
     }
     
     public AuthResponse login(LoginRequest request) {
-        User user = userRepository.findByMobile(request.getMobile())
+        User user = findRegisteredUser(request.getMobile())
                 .orElseThrow(() -> new RuntimeException("Invalid credentials"));
         
-        if (!passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
+        if (!passwordHasher.matches(request.getPassword(), user.getPasswordHash())) {
             throw new RuntimeException("Invalid credentials");
         }
         
@@ -80,16 +108,55 @@ public class AuthService {
             throw new RuntimeException("Account is not active");
         }
         
+        upgradePasswordHash(user, request.getPassword());
+        
         String token = jwtUtil.generateToken(user.getId(), user.getMobile());
         return new AuthResponse(token, user.getMobile(), user.getId());
     }
     
-    @Transactional
+    /**
+     * Hashes before the transaction starts, as register does
+     */
     public void forgotPassword(ForgotPasswordRequest request) {
-        User user = userRepository.findByMobile(request.getMobile())
+        User user = findRegisteredUser(request.getMobile())
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
-        userRepository.save(user);
+        String passwordHash = passwordHasher.encode(request.getNewPassword());
+        transactionTemplate.executeWithoutResult(status -> {
+            user.setPasswordHash(passwordHash);
+            userRepository.save(user);
+            // Sign out every existing session once the new password is committed
+            Long userId = user.getId();
+            TransactionHooks.afterCommit(() -> tokenRevocations.revokeUser(userId));
+        });
+    }
+    
+    /**
+     * Look up a user by mobile, answering unregistered numbers from memory where possible
+     */
+    private Optional<User> findRegisteredUser(String mobile) {
+        if (!mobileRegistry.mightBeRegistered(mobile)) {
+            return Optional.empty();
+        }
+        Optional<User> user = userRepository.findByMobile(mobile);
+        if (user.isEmpty()) {
+            mobileRegistry.recordUnregistered(mobile);
+        }
+        return user;
+    }
+    
+    /**
+     * Rehash at the current work factor after a successful login, so raising
+     * auth.password.bcrypt-strength applies as users sign in; skipped if the hashing pool is busy
+     */
+    private void upgradePasswordHash(User user, String password) {
+        if (!passwordHasher.needsUpgrade(user.getPasswordHash())) {
+            return;
+        }
+        try {
+            userRepository.replacePasswordHash(user.getId(), user.getPasswordHash(), passwordHasher.encode(password));
+        } catch (TooManyRequestsException e) {
+            // Try again on a later login
+        }
     }
 }
@@ -0,0 +1,7 @@
+package com.win777.backend.service;
+
+/**
+ * Published by ConfigurationService when an app_config entry is set or deleted
+ */
+public record ConfigChangedEvent(String key) {
+}
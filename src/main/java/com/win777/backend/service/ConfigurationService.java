@@ -4,7 +4,9 @@ import com.win777.backend.entity.AppConfig;
 import com.win777.backend.entity.Banner;
 import com.win777.backend.repository.AppConfigRepository;
 import com.win777.backend.repository.BannerRepository;
+import com.win777.backend.resilience.RedisGuard;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,6 +28,12 @@ public class ConfigurationService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    @Autowired
+    private RedisGuard redisGuard;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     private static final String CONFIG_CACHE_PREFIX = "config:";
     private static final long CACHE_TTL_HOURS = 24;
     
@@ -35,8 +43,9 @@ public class ConfigurationService {
     public String getConfigValue(String key) {
         String cacheKey = CONFIG_CACHE_PREFIX + key;
         
-        // Try to get from cache first
-        Object cachedValue = redisTemplate.opsForValue().get(cacheKey);
+        // Try to get from cache first (skipped while Redis is unavailable)
+        Object cachedValue = redisGuard.call("config.get",
+            () -> redisTemplate.opsForValue().get(cacheKey), () -> null);
         if (cachedValue != null) {
             return cachedValue.toString();
         }
@@ -46,7 +55,8 @@ public class ConfigurationService {
         if (config.isPresent() && config.get().getIsActive()) {
             String value = config.get().getConfigValue();
             // Cache it
-            redisTemplate.opsForValue().set(cacheKey, value, CACHE_TTL_HOURS, TimeUnit.HOURS);
+            redisGuard.run("config.cache", 
+                () -> redisTemplate.opsForValue().set(cacheKey, value, CACHE_TTL_HOURS, TimeUnit.HOURS));
             return value;
         }
         
@@ -86,9 +96,11 @@ public class ConfigurationService {
         
         config = appConfigRepository.save(config);
         
-        // Update cache
+        // Evict rather than overwrite, so a write replayed after a Redis outage
+        // can never reinstate an older value
         String cacheKey = CONFIG_CACHE_PREFIX + key;
-        redisTemplate.opsForValue().set(cacheKey, value, CACHE_TTL_HOURS, TimeUnit.HOURS);
+        redisGuard.runOrDefer("config.evict", () -> redisTemplate.delete(cacheKey));
+        eventPublisher.publishEvent(new ConfigChangedEvent(key));
         
         return config;
     }
@@ -101,7 +113,8 @@ public class ConfigurationService {
         appConfigRepository.findByConfigKey(key).ifPresent(config -> {
             appConfigRepository.delete(config);
             // Remove from cache
-            redisTemplate.delete(CONFIG_CACHE_PREFIX + key);
+            redisGuard.runOrDefer("config.evict", () -> redisTemplate.delete(CONFIG_CACHE_PREFIX + key));
+            eventPublisher.publishEvent(new ConfigChangedEvent(key));
         });
     }
     
@@ -193,6 +206,7 @@ public class ConfigurationService {
      */
     public void clearConfigCache() {
         // Clear all config keys from Redis
-        redisTemplate.keys(CONFIG_CACHE_PREFIX + "*").forEach(key -> redisTemplate.delete(key));
+        redisGuard.run("config.clear",
+            () -> redisTemplate.keys(CONFIG_CACHE_PREFIX + "*").forEach(key -> redisTemplate.delete(key)));
     }
 }
@@ -0,0 +1,130 @@
+package com.win777.backend.service;
+
+import com.win777.backend.resilience.RedisGuard;
+import com.win777.backend.util.MessageHasher;
+import com.win777.backend.util.OffHeapLongLongMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Node-local cache of device fingerprint to owning user id, keyed by a 64-bit hash of
+ * the fingerprint and held off-heap. Mappings only change owner when an admin releases
+ * a device; that is broadcast over Redis pub/sub so every node drops its entry.
+ *
+ * Entries are only ever added from what the database returned, so a hit is as good as
+ * a lookup. (Two fingerprints sharing a 64-bit hash is possible in principle but far
+ * less likely than any other failure on this path.)
+ */
+@Service
+@Slf4j
+public class DeviceFingerprintIndex {
+    
+    static final String INVALIDATION_CHANNEL = "device-mappings:invalidate";
+    
+    private static final long MISSING = -1;
+    
+    @Value("${fraud.device-index.capacity:1048576}")
+    private int capacity;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    
+    @Autowired
+    private RedisGuard redisGuard;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private OffHeapLongLongMap owners;
+    private Counter hits;
+    private Counter misses;
+    private Counter resets;
+    
+    @PostConstruct
+    void start() {
+        owners = new OffHeapLongLongMap(capacity);
+        hits = lookups("hit");
+        misses = lookups("miss");
+        resets = Counter.builder("fraud.device_index.resets")
+            .description("Times the device index was cleared because it was full")
+            .register(meterRegistry);
+        Gauge.builder("fraud.device_index.size", this, index -> index.owners.size())
+            .register(meterRegistry);
+        
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                long key = Long.parseLong(new String(message.getBody(), StandardCharsets.US_ASCII));
+                owners.remove(key);
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed device index invalidation");
+            }
+        }, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+    
+    /**
+     * Cached owner of the device, or null if this node has not seen it
+     */
+    public Long ownerOf(String deviceFingerprint) {
+        long owner = owners.get(key(deviceFingerprint), MISSING);
+        if (owner == MISSING) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return owner;
+    }
+    
+    /**
+     * Remember the owner the database reported for the device
+     */
+    public void record(String deviceFingerprint, Long userId) {
+        long key = key(deviceFingerprint);
+        if (!owners.put(key, userId)) {
+            // Table full (it cannot evict single entries): empty it; every entry is a
+            // copy of a database row, so misses just go back to the database
+            resets.increment();
+            owners.clear();
+            owners.put(key, userId);
+        }
+    }
+    
+    /**
+     * Drop the device here and on every other node
+     */
+    public void invalidate(String deviceFingerprint) {
+        long key = key(deviceFingerprint);
+        owners.remove(key);
+        redisGuard.runOrDefer("device-index.invalidate",
+            () -> stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.valueOf(key)));
+    }
+    
+    private static long key(String deviceFingerprint) {
+        byte[] digest = MessageHasher.sha256(deviceFingerprint);
+        long key = 0;
+        for (int i = 0; i < 8; i++) {
+            key = (key << 8) | (digest[i] & 0xff);
+        }
+        // 0 marks an empty slot in the map
+        return key == 0 ? 1 : key;
+    }
+    
+    private Counter lookups(String result) {
+        return Counter.builder("fraud.device_index.lookups")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
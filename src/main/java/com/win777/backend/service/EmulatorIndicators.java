@@ -0,0 +1,83 @@
+package com.win777.backend.service;
+
+import com.win777.backend.entity.AppConfig;
+import com.win777.backend.repository.AppConfigRepository;
+import com.win777.backend.util.AhoCorasickMatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emulator signatures matched against device fingerprints and models.
+ *
+ * The list is read from app_config key fraud.emulator.indicators (separated by commas
+ * or newlines) and compiled into one matcher, which is swapped in atomically. Changes
+ * made on this node apply on commit; other nodes pick them up within a minute.
+ */
+@Service
+@Slf4j
+public class EmulatorIndicators {
+    
+    public static final String CONFIG_KEY = "fraud.emulator.indicators";
+    
+    static final List<String> DEFAULT_INDICATORS = List.of(
+        "generic", "unknown", "emulator", "sdk", "vbox", "genymotion",
+        "andy", "nox", "bluestacks", "memu"
+    );
+    
+    @Autowired
+    private AppConfigRepository appConfigRepository;
+    
+    private volatile Compiled current = new Compiled(null, new AhoCorasickMatcher(DEFAULT_INDICATORS));
+    
+    private record Compiled(String source, AhoCorasickMatcher matcher) {
+    }
+    
+    /**
+     * True if the input contains any indicator, ignoring case
+     */
+    public boolean matches(CharSequence input) {
+        return current.matcher().matches(input);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConfigChanged(ConfigChangedEvent event) {
+        if (CONFIG_KEY.equals(event.key())) {
+            refresh();
+        }
+    }
+    
+    @Scheduled(fixedDelay = 60, initialDelay = 0, timeUnit = TimeUnit.SECONDS)
+    public void refresh() {
+        try {
+            String source = appConfigRepository.findByConfigKey(CONFIG_KEY)
+                .filter(config -> Boolean.TRUE.equals(config.getIsActive()))
+                .map(AppConfig::getConfigValue)
+                .orElse(null);
+            if (Objects.equals(source, current.source())) {
+                return;
+            }
+            
+            List<String> indicators = source == null ? DEFAULT_INDICATORS : parse(source);
+            current = new Compiled(source, new AhoCorasickMatcher(indicators));
+            log.info("Loaded {} emulator indicators{}", indicators.size(), source == null ? " (defaults)" : "");
+        } catch (Exception e) {
+            log.warn("Could not reload emulator indicators, keeping the current set", e);
+        }
+    }
+    
+    static List<String> parse(String source) {
+        return Arrays.stream(source.split("[,\\n]"))
+            .map(String::trim)
+            .filter(indicator -> !indicator.isEmpty())
+            .distinct()
+            .toList();
+    }
+}
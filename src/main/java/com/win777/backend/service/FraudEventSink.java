@@ -0,0 +1,139 @@
+package com.win777.backend.service;
+
+import com.win777.backend.entity.FraudLog;
+import com.win777.backend.ingest.BatchWriter;
+import com.win777.backend.repository.FraudLogBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Asynchronous fraud log writer. Events go into a bounded in-memory queue and never
+ * block the caller; a background thread writes them in batches. Identical events
+ * (same user, device, type, severity and description) within one batch window are
+ * written as a single row with the number of occurrences in metadata.count.
+ *
+ * Events are dropped and counted when the queue is full, and lost if the node dies
+ * before they are flushed.
+ */
+@Service
+public class FraudEventSink {
+    
+    @Value("${fraud.log.queue-capacity:50000}")
+    private int queueCapacity;
+    
+    @Value("${fraud.log.batch-size:1000}")
+    private int batchSize;
+    
+    @Value("${fraud.log.coalesce-window-ms:1000}")
+    private long coalesceWindowMillis;
+    
+    @Autowired
+    private FraudLogBatchRepository fraudLogBatchRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private BatchWriter<FraudEvent> writer;
+    private Counter queuedCounter;
+    private Counter overflowCounter;
+    private Counter coalescedCounter;
+    
+    /**
+     * A detected fraud event, before coalescing
+     */
+    public record FraudEvent(Long userId, String deviceFingerprint, String fraudType,
+                             String description, String severity, LocalDateTime detectedAt) {
+    }
+    
+    private record CoalesceKey(Long userId, String deviceFingerprint, String fraudType,
+                               String description, String severity) {
+    }
+    
+    @PostConstruct
+    void start() {
+        queuedCounter = events("queued");
+        overflowCounter = events("overflow");
+        coalescedCounter = events("coalesced");
+        writer = new BatchWriter<>("fraud-logs", queueCapacity, batchSize,
+            Duration.ofMillis(coalesceWindowMillis), Duration.ZERO, this::write, meterRegistry);
+    }
+    
+    @PreDestroy
+    void stop() {
+        writer.close();
+    }
+    
+    /**
+     * Queue the event for writing; returns false if it was dropped because the queue is full
+     */
+    public boolean publish(FraudEvent event) {
+        if (writer.offer(event)) {
+            queuedCounter.increment();
+            return true;
+        }
+        // Counted rather than logged: overflow happens during the bursts we must not amplify
+        overflowCounter.increment();
+        return false;
+    }
+    
+    private boolean[] write(List<FraudEvent> batch) {
+        Map<CoalesceKey, FraudLog> rows = new LinkedHashMap<>();
+        for (FraudEvent event : batch) {
+            CoalesceKey key = new CoalesceKey(event.userId(), event.deviceFingerprint(), event.fraudType(),
+                event.description(), event.severity());
+            FraudLog row = rows.get(key);
+            if (row == null) {
+                rows.put(key, toFraudLog(event));
+                continue;
+            }
+            
+            Map<String, Object> metadata = row.getMetadata();
+            metadata.put("count", (Integer) metadata.get("count") + 1);
+            metadata.put("last_seen", event.detectedAt().toString());
+        }
+        
+        fraudLogBatchRepository.insertAll(List.copyOf(rows.values()));
+        coalescedCounter.increment(batch.size() - rows.size());
+        
+        boolean[] written = new boolean[batch.size()];
+        Arrays.fill(written, true);
+        return written;
+    }
+    
+    private static FraudLog toFraudLog(FraudEvent event) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("timestamp", event.detectedAt().toString());
+        metadata.put("count", 1);
+        
+        return FraudLog.builder()
+            .userId(event.userId())
+            .deviceFingerprint(event.deviceFingerprint())
+            .fraudType(event.fraudType())
+            .description(event.description())
+            .severity(Objects.requireNonNullElse(event.severity(), "LOW"))
+            .detectedAt(event.detectedAt())
+            .metadata(metadata)
+            .build();
+    }
+    
+    private Counter events(String outcome) {
+        return Counter.builder("fraud.events")
+            .description("Fraud events handed to the asynchronous sink")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
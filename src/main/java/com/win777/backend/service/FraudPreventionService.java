@@ -1,16 +1,31 @@
 package com.win777.backend.service;
 
+import com.win777.backend.dto.DeviceClaim;
 import com.win777.backend.entity.DeviceMapping;
 import com.win777.backend.entity.FraudLog;
 import com.win777.backend.entity.User;
 import com.win777.backend.entity.UserBan;
+import com.win777.backend.fraud.FraudRingIndex;
+import com.win777.backend.fraud.RingStats;
+import com.win777.backend.fraud.rules.CompiledRule;
+import com.win777.backend.fraud.rules.FeatureStore;
+import com.win777.backend.fraud.rules.FraudRulesEngine;
+import com.win777.backend.fraud.rules.RuleAction;
+import com.win777.backend.fraud.rules.RuleEvent;
+import com.win777.backend.ratelimit.LocalRateLimiter;
+import com.win777.backend.ratelimit.RateLimitDecision;
+import com.win777.backend.ratelimit.RateLimitPolicies;
+import com.win777.backend.ratelimit.RateLimitPolicy;
+import com.win777.backend.ratelimit.RateLimiter;
 import com.win777.backend.repository.DeviceMappingRepository;
 import com.win777.backend.repository.FraudLogRepository;
 import com.win777.backend.repository.UserBanRepository;
 import com.win777.backend.repository.UserRepository;
+import com.win777.backend.resilience.RedisGuard;
+import com.win777.backend.security.TokenRevocations;
+import com.win777.backend.util.TransactionHooks;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisCallback;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,11 +34,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class FraudPreventionService {
     
+    private static final String SMS_RATE_LIMIT = "sms";
+    
     @Autowired
     private DeviceMappingRepository deviceMappingRepository;
     
@@ -37,113 +54,167 @@ public class FraudPreventionService {
     private UserRepository userRepository;
     
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private RateLimiter rateLimiter;
+    
+    @Autowired
+    private RateLimitPolicies rateLimitPolicies;
+    
+    @Autowired
+    private LocalRateLimiter localRateLimiter;
+    
+    @Autowired
+    private RedisGuard redisGuard;
+    
+    @Autowired
+    private WithdrawalAdmissionService withdrawalAdmissionService;
+    
+    @Autowired
+    private FraudEventSink fraudEventSink;
+    
+    @Autowired
+    private EmulatorIndicators emulatorIndicators;
+    
+    @Autowired
+    private DeviceFingerprintIndex deviceFingerprintIndex;
+    
+    @Autowired
+    private FraudRingIndex fraudRingIndex;
+    
+    @Autowired
+    private FraudRulesEngine fraudRulesEngine;
+    
+    @Autowired
+    private FeatureStore featureStore;
+    
+    @Autowired
+    private TokenRevocations tokenRevocations;
+    
+    @Value("${fraud.log.async:true}")
+    private boolean asyncFraudLog;
+    
+    @Value("${fraud.brand-cache-size:100000}")
+    private int brandCacheSize;
     
     /**
-     * Validate device-to-account mapping to prevent multiple accounts on same device
+     * User -> brand for rate limit policy lookups; a user's brand does not change
+     */
+    private final Map<Long, Optional<Long>> brandIdByUser = new ConcurrentHashMap<>();
+    
+    /**
+     * Validate device-to-account mapping to prevent multiple accounts on same device.
+     * Devices the node-local index knows to be the caller's are answered with a touch;
+     * anything else goes through a single upsert that claims the device or reports its
+     * owner, so a stale index entry can never reject a legitimate claim.
      */
     @Transactional
     public void validateDeviceMapping(Long userId, String deviceFingerprint) {
-        Optional<DeviceMapping> existingMapping = deviceMappingRepository.findByDeviceFingerprint(deviceFingerprint);
+        Long cachedOwner = deviceFingerprintIndex.ownerOf(deviceFingerprint);
         
-        if (existingMapping.isPresent()) {
-            DeviceMapping mapping = existingMapping.get();
-            
-            // Check if device is already mapped to a different user
-            if (!mapping.getUserId().equals(userId)) {
-                // Log fraud attempt
-                logFraud(userId, deviceFingerprint, "DEVICE_REUSE", 
-                    "Device already mapped to user " + mapping.getUserId(), "HIGH");
-                throw new RuntimeException("Device already registered to another account");
-            }
-            
-            // Update last seen time
-            mapping.setLastSeenAt(LocalDateTime.now());
-            deviceMappingRepository.save(mapping);
-        } else {
-            // Create new device mapping
-            DeviceMapping newMapping = DeviceMapping.builder()
-                .deviceFingerprint(deviceFingerprint)
-                .userId(userId)
-                .firstSeenAt(LocalDateTime.now())
-                .lastSeenAt(LocalDateTime.now())
-                .isSuspicious(false)
-                .build();
-            deviceMappingRepository.save(newMapping);
+        // Same owner: just update last seen time (falls through if the mapping was removed)
+        if (userId.equals(cachedOwner) && deviceMappingRepository.touch(deviceFingerprint, userId) > 0) {
+            return;
         }
         
-        // Update device count for the user
-        long deviceCount = deviceMappingRepository.countByUserId(userId);
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        user.setDeviceCount((int) deviceCount);
-        userRepository.save(user);
+        // Another cached owner is only a hint (invalidation is lossy): confirm in the database
+        DeviceClaim claim = deviceMappingRepository.claim(deviceFingerprint, userId);
+        if (!claim.getUserId().equals(userId)) {
+            deviceFingerprintIndex.record(deviceFingerprint, claim.getUserId());
+            rejectDeviceReuse(userId, deviceFingerprint, claim.getUserId());
+        }
+        
+        // Maintain the device count incrementally: only the claim that inserted the row counts
+        if (Boolean.TRUE.equals(claim.getInserted())) {
+            userRepository.adjustDeviceCount(userId, 1);
+        }
+        
+        // A new mapping only becomes visible to the indexes once it is committed
+        TransactionHooks.afterCommit(() -> {
+            deviceFingerprintIndex.record(deviceFingerprint, userId);
+            fraudRingIndex.linkDevice(userId, deviceFingerprint).ifPresent(this::logFraudRing);
+        });
     }
     
     /**
-     * Check if SMS rate limit has been exceeded using Redis
-     * Uses Redis INCR with EXPIRE for atomic rate limiting
+     * Release a device so it can be registered to another account (admin action)
      */
-    public boolean checkSmsRateLimit(Long userId) {
-        String key = "sms:rate:" + userId;
+    @Transactional
+    public void releaseDeviceMapping(String deviceFingerprint) {
+        DeviceMapping mapping = deviceMappingRepository.findByDeviceFingerprint(deviceFingerprint)
+            .orElseThrow(() -> new RuntimeException("Device mapping not found"));
         
+        // Only the release whose DELETE removed the row counts down, so racing releases cannot double count
+        if (deviceMappingRepository.deleteMapping(mapping.getId()) > 0) {
+            userRepository.adjustDeviceCount(mapping.getUserId(), -1);
+        }
+        TransactionHooks.afterCommit(() -> deviceFingerprintIndex.invalidate(deviceFingerprint));
+    }
+    
+    private void logFraudRing(RingStats ring) {
+        logFraud(ring.userId(), null, "FRAUD_RING", 
+            "Account linked into a cluster of " + ring.users() + " accounts (" + ring.devices() + " devices, " 
+                + ring.payoutTargets() + " payout targets)", "HIGH");
+    }
+    
+    private void rejectDeviceReuse(Long userId, String deviceFingerprint, Long ownerId) {
+        logFraud(userId, deviceFingerprint, "DEVICE_REUSE", 
+            "Device already mapped to user " + ownerId, "HIGH");
+        throw new RuntimeException("Device already registered to another account");
+    }
+    
+    /**
+     * Check if SMS rate limit has been exceeded.
+     * The policy (algorithm, limit, window) comes from the user's brand config.
+     */
+    public boolean checkSmsRateLimit(Long userId) {
         try {
-            // Use Redis pipeline for atomic operations
-            Long count = redisTemplate.execute((RedisCallback<Long>) connection -> {
-                connection.openPipeline();
-                connection.incr(key.getBytes());
-                connection.expire(key.getBytes(), 3600); // 1 hour
-                List<Object> results = connection.closePipeline();
-                return results != null && !results.isEmpty() ? (Long) results.get(0) : 1L;
-            });
+            Long brandId = brandIdOf(userId);
+            RateLimitPolicy policy = rateLimitPolicies.resolve(SMS_RATE_LIMIT, brandId);
+            String key = SMS_RATE_LIMIT + ":" + userId;
+            // While Redis is unavailable an approximate per-node limiter takes over
+            RateLimitDecision decision = redisGuard.call("ratelimit.sms",
+                () -> rateLimiter.tryAcquire(key, policy),
+                () -> localRateLimiter.tryAcquire(key, policy));
             
-            // Maximum 10 SMS verifications per hour
-            if (count != null && count > 10) {
-                logFraud(userId, null, "SMS_RATE_LIMIT_EXCEEDED", 
-                    "User exceeded SMS rate limit: " + count + " attempts", "MEDIUM");
+            if (!decision.allowed()) {
+                // Near-cache denials were already logged when first seen; fallback-limiter
+                // denials are not logged, or an outage would write a row per request
+                if (!decision.local()) {
+                    logFraud(userId, null, "SMS_RATE_LIMIT_EXCEEDED", 
+                        "User exceeded SMS rate limit of " + policy.limit() + " per " + policy.window().toMinutes() + " minutes", "MEDIUM");
+                }
                 return false;
             }
             
             return true;
         } catch (Exception e) {
-            // If Redis fails, log and allow the operation (fail open for availability)
-            // In production, you might want to fail closed or have a circuit breaker
+            // Policy lookup failed; fail open for availability
             return true;
         }
     }
     
+    private Long brandIdOf(Long userId) {
+        Optional<Long> brandId = brandIdByUser.get(userId);
+        if (brandId == null) {
+            brandId = userRepository.findBrandIdById(userId);
+            if (brandIdByUser.size() >= brandCacheSize) {
+                // Full: drop it; a miss only costs one primary-key lookup of the brand id
+                brandIdByUser.clear();
+            }
+            brandIdByUser.put(userId, brandId);
+        }
+        return brandId.orElse(null);
+    }
+    
     /**
-     * Simple emulator detection heuristics
+     * Emulator detection: fingerprint and model are matched against the configured indicators
      */
     public boolean detectEmulator(String deviceFingerprint, Map<String, String> deviceInfo) {
         if (deviceFingerprint == null || deviceInfo == null) {
             return false;
         }
         
-        // Common emulator indicators
-        String[] emulatorIndicators = {
-            "generic", "unknown", "emulator", "sdk", "vbox", "genymotion",
-            "andy", "nox", "bluestacks", "memu"
-        };
-        
-        String deviceFingerprintLower = deviceFingerprint.toLowerCase();
-        for (String indicator : emulatorIndicators) {
-            if (deviceFingerprintLower.contains(indicator)) {
-                return true;
-            }
-        }
-        
-        // Check device info for emulator patterns
-        if (deviceInfo.containsKey("model")) {
-            String model = deviceInfo.get("model").toLowerCase();
-            for (String indicator : emulatorIndicators) {
-                if (model.contains(indicator)) {
-                    return true;
-                }
-            }
-        }
-        
-        return false;
+        return emulatorIndicators.matches(deviceFingerprint)
+            || emulatorIndicators.matches(deviceInfo.get("model"));
     }
     
     /**
@@ -156,12 +227,31 @@ public class FraudPreventionService {
             .orElseThrow(() -> new RuntimeException("User not found"));
         
         if (!user.getMobile().equals(mobile)) {
+            // Unverified: recorded on its own, never linked into the user's ring
+            int tried = fraudRingIndex.recordUnverifiedMobile(userId, mobile);
             logFraud(userId, null, "MULTI_SIM_DETECTED", 
-                "User attempting to use different mobile number: " + mobile, "MEDIUM");
+                "User attempting to use different mobile number: " + mobile + " (" + tried + " unverified so far)", "MEDIUM");
             throw new RuntimeException("Mobile number mismatch detected");
         }
     }
     
+    /**
+     * Evaluate the configured fraud rules for an event. Every match is logged as
+     * RULE_MATCH; the request is rejected if any matching rule blocks.
+     */
+    public void applyFraudRules(RuleEvent event, Long userId, double amount) {
+        List<CompiledRule> matched = fraudRulesEngine.evaluate(event, userId, amount);
+        boolean blocked = false;
+        for (CompiledRule rule : matched) {
+            logFraud(userId, null, "RULE_MATCH", 
+                "Fraud rule " + rule.id() + " (" + rule.name() + ") matched on " + event, rule.severity());
+            blocked |= rule.action() == RuleAction.BLOCK;
+        }
+        if (blocked) {
+            throw new RuntimeException("Request blocked by fraud checks");
+        }
+    }
+    
     /**
      * Check withdrawal cooldown period
      */
@@ -188,6 +278,15 @@ public class FraudPreventionService {
             .orElseThrow(() -> new RuntimeException("User not found"));
         user.setLastWithdrawalAt(LocalDateTime.now());
         userRepository.save(user);
+        
+        withdrawalAdmissionService.recordWithdrawal(userId, user.getLastWithdrawalAt());
+    }
+    
+    /**
+     * Link the payout destinations of a withdrawal into the fraud ring index once it commits
+     */
+    public void recordPayoutTargets(Long userId, Map<String, Object> requestData) {
+        TransactionHooks.afterCommit(() -> fraudRingIndex.linkPayoutTargets(userId, requestData).ifPresent(this::logFraudRing));
     }
     
     /**
@@ -201,6 +300,9 @@ public class FraudPreventionService {
         user.setIsBanned(true);
         user.setBanReason(reason);
         userRepository.save(user);
+        withdrawalAdmissionService.setBanned(userId, true);
+        // Cut off sessions already issued once the ban is committed; login refuses new ones while it lasts
+        TransactionHooks.afterCommit(() -> tokenRevocations.revokeUser(userId));
         
         UserBan ban = UserBan.builder()
             .userId(userId)
@@ -227,6 +329,7 @@ public class FraudPreventionService {
         user.setIsBanned(false);
         user.setBanReason(null);
         userRepository.save(user);
+        withdrawalAdmissionService.setBanned(userId, false);
         
         // Deactivate active bans
         Optional<UserBan> activeBan = userBanRepository.findByUserIdAndIsActiveTrue(userId);
@@ -247,11 +350,23 @@ public class FraudPreventionService {
     }
     
     /**
-     * Log fraud activity
+     * Log fraud activity. Detected events go through the asynchronous sink;
+     * CRITICAL events (admin actions) are still written synchronously. Rule matches
+     * stay out of the live fraud count so a rule cannot feed its own trigger.
      */
     @Transactional
     public void logFraud(Long userId, String deviceFingerprint, String fraudType, 
                         String description, String severity) {
+        if (!"RULE_MATCH".equals(fraudType)) {
+            featureStore.recordFraud(userId);
+        }
+        
+        if (asyncFraudLog && !"CRITICAL".equals(severity)) {
+            fraudEventSink.publish(new FraudEventSink.FraudEvent(userId, deviceFingerprint, fraudType,
+                description, severity, LocalDateTime.now()));
+            return;
+        }
+        
         Map<String, Object> metadata = new HashMap<>();
         metadata.put("timestamp", LocalDateTime.now().toString());
         
@@ -0,0 +1,278 @@
+package com.win777.backend.service;
+
+import com.win777.backend.dto.UserIdentifierRow;
+import com.win777.backend.repository.UserRepository;
+import com.win777.backend.resilience.RedisGuard;
+import com.win777.backend.util.BloomFilter;
+import com.win777.backend.util.TransactionHooks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers "is this mobile registered?" in memory for numbers that are not, so login and
+ * registration attempts for unknown numbers do not reach the database.
+ *
+ * A node-local Bloom filter holds every registered mobile (no false negatives); numbers
+ * it lets through that the database then shows to be unknown go into a short-lived
+ * negative cache. New registrations are added locally, broadcast over Redis pub/sub once
+ * committed, and also picked up by a catch-up query on users.created_at every few
+ * seconds, so a missed message delays a new account by seconds at most. The filter is
+ * built in the background after startup and rebuilt nightly; until it is built every
+ * lookup goes to the database.
+ */
+@Service
+@Slf4j
+public class MobileRegistry {
+    
+    static final String CHANNEL = "users:mobile-registered";
+    
+    private static final int BUILD_BATCH_SIZE = 1000;
+    
+    /** Catch-up queries overlap by this much so slow commits are not missed */
+    private static final long CATCH_UP_OVERLAP_SECONDS = 120;
+    
+    @Value("${auth.mobile-filter.expected-entries:1000000}")
+    private long expectedEntries;
+    
+    @Value("${auth.mobile-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    @Value("${auth.mobile-filter.negative-ttl-ms:30000}")
+    private long negativeTtlMillis;
+    
+    @Value("${auth.mobile-filter.negative-max-entries:100000}")
+    private int negativeMaxEntries;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    
+    @Autowired
+    private RedisGuard redisGuard;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private volatile LocalDateTime caughtUpTo;
+    private final Map<String, Long> unknownUntil = new ConcurrentHashMap<>();
+    
+    private Counter filterAnswered;
+    private Counter negativeCacheAnswered;
+    private Counter databaseLookups;
+    private Counter falsePositives;
+    
+    @PostConstruct
+    void start() {
+        filterAnswered = lookups("filter");
+        negativeCacheAnswered = lookups("negative_cache");
+        databaseLookups = lookups("database");
+        falsePositives = Counter.builder("auth.mobile_lookups.false_positives")
+            .description("Mobiles the filter let through that the database showed to be unregistered")
+            .register(meterRegistry);
+        Gauge.builder("auth.mobile_lookups.avoided_ratio", this, MobileRegistry::avoidedRatio)
+            .description("Share of mobile lookups answered without the database since startup")
+            .register(meterRegistry);
+        Gauge.builder("auth.mobile_lookups.negative_cache_size", unknownUntil, Map::size)
+            .register(meterRegistry);
+        
+        listenerContainer.addMessageListener((message, pattern) ->
+            added(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+    }
+    
+    /**
+     * False if the mobile is certainly not registered; true means ask the database
+     */
+    public boolean mightBeRegistered(String mobile) {
+        BloomFilter current = filter;
+        if (current == null) {
+            databaseLookups.increment();
+            return true;
+        }
+        if (!current.mightContain(mobile)) {
+            filterAnswered.increment();
+            return false;
+        }
+        Long until = unknownUntil.get(mobile);
+        if (until != null) {
+            if (until > System.currentTimeMillis()) {
+                negativeCacheAnswered.increment();
+                return false;
+            }
+            unknownUntil.remove(mobile, until);
+        }
+        databaseLookups.increment();
+        return true;
+    }
+    
+    /**
+     * The database showed a mobile let through by mightBeRegistered to be unregistered
+     */
+    public void recordUnregistered(String mobile) {
+        if (filter == null) {
+            return;
+        }
+        falsePositives.increment();
+        if (unknownUntil.size() >= negativeMaxEntries) {
+            long now = System.currentTimeMillis();
+            unknownUntil.values().removeIf(until -> until <= now);
+            if (unknownUntil.size() >= negativeMaxEntries) {
+                return;
+            }
+        }
+        unknownUntil.put(mobile, System.currentTimeMillis() + negativeTtlMillis);
+    }
+    
+    /**
+     * Add a newly registered mobile. The filter is updated at once (a false positive at
+     * worst if the registration rolls back); negative entries are cleared and other nodes
+     * told once it commits, so none of them can cache the number as unknown in between.
+     */
+    public void register(String mobile) {
+        addToFilters(mobile);
+        Runnable publish = () -> {
+            unknownUntil.remove(mobile);
+            redisGuard.run("mobile-registry.publish", () -> stringRedisTemplate.convertAndSend(CHANNEL, mobile));
+        };
+        TransactionHooks.afterCommit(publish);
+    }
+    
+    /**
+     * First build off the startup thread; lookups go to the database until it completes
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+    
+    /**
+     * Build a filter from every user and swap it in. Mobiles added while it builds go to
+     * both filters, and registrations committed meanwhile are picked up by the catch-up.
+     */
+    @Scheduled(cron = "${auth.mobile-filter.rebuild-cron:0 15 4 * * *}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDateTime startedAt = LocalDateTime.now();
+        long users;
+        try {
+            users = userRepository.count();
+        } catch (RuntimeException e) {
+            log.error("Could not size the mobile filter, keeping the current one", e);
+            return;
+        }
+        synchronized (this) {
+            if (building != null) {
+                log.info("Mobile filter build already running");
+                return;
+            }
+            // Sized for growth; the nightly rebuild resizes as the user base grows
+            building = new BloomFilter(Math.max(expectedEntries, users * 2), falsePositiveRate);
+        }
+        BloomFilter next = building;
+        try {
+            
+            PageRequest batch = PageRequest.of(0, BUILD_BATCH_SIZE);
+            long afterId = 0;
+            List<UserIdentifierRow> rows;
+            do {
+                rows = userRepository.findMobilesAfter(afterId, batch);
+                for (UserIdentifierRow row : rows) {
+                    next.put(row.getIdentifier());
+                }
+                if (!rows.isEmpty()) {
+                    afterId = rows.get(rows.size() - 1).getId();
+                }
+            } while (rows.size() == BUILD_BATCH_SIZE);
+            
+            caughtUpTo = startedAt;
+            catchUp(next);
+            filter = next;
+            log.info("Built mobile filter from {} users ({} bits, {} hashes) in {} ms",
+                users, next.bitCount(), next.hashCount(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Mobile filter build failed, {}",
+                filter == null ? "lookups will use the database" : "keeping the current filter", e);
+        } finally {
+            synchronized (this) {
+                building = null;
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${auth.mobile-filter.catch-up-ms:5000}")
+    public void catchUp() {
+        BloomFilter current = filter;
+        if (current != null) {
+            try {
+                catchUp(current);
+            } catch (RuntimeException e) {
+                log.warn("Mobile filter catch-up failed: {}", e.toString());
+            }
+        }
+    }
+    
+    private synchronized void catchUp(BloomFilter target) {
+        LocalDateTime now = LocalDateTime.now();
+        for (String mobile : userRepository.findMobilesCreatedSince(caughtUpTo.minusSeconds(CATCH_UP_OVERLAP_SECONDS))) {
+            target.put(mobile);
+            unknownUntil.remove(mobile);
+        }
+        caughtUpTo = now;
+    }
+    
+    private void added(String mobile) {
+        addToFilters(mobile);
+        unknownUntil.remove(mobile);
+    }
+    
+    private void addToFilters(String mobile) {
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(mobile);
+        }
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(mobile);
+        }
+    }
+    
+    private double avoidedRatio() {
+        double avoided = filterAnswered.count() + negativeCacheAnswered.count();
+        double total = avoided + databaseLookups.count();
+        return total == 0 ? 0 : avoided / total;
+    }
+    
+    private Counter lookups(String answeredBy) {
+        return Counter.builder("auth.mobile_lookups")
+            .description("Mobile registration lookups by where they were answered")
+            .tag("answered_by", answeredBy)
+            .register(meterRegistry);
+    }
+}
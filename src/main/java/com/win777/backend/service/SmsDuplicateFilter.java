@@ -0,0 +1,354 @@
+package com.win777.backend.service;
+
+import com.win777.backend.dto.MessageHashRow;
+import com.win777.backend.lock.DistributedLock;
+import com.win777.backend.lock.LockHandle;
+import com.win777.backend.repository.SmsLogRepository;
+import com.win777.backend.util.TransactionHooks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Scalable Bloom filter over sms_logs.message_hash, held as Redis bitsets and shared by all nodes.
+ * A "new" verdict is definite and lets the caller skip the database; a possible duplicate
+ * still has to be confirmed against the unique index. Hashes are only added once the row
+ * holding them has committed, so a rolled-back insert does not block a retry.
+ *
+ * The filter is built from the table on startup (if missing) and rebuilt nightly into a new
+ * generation, which is swapped in once complete. Each generation sizes its first layer from
+ * the sms_logs row count and records it, together with how many layers fit in a Redis
+ * bitset, in its own hash.
+ */
+@Service
+@Slf4j
+public class SmsDuplicateFilter {
+    
+    private static final String KEY_PREFIX = "{sms-bloom}";
+    private static final String META_KEY = KEY_PREFIX + ":meta";
+    private static final String REBUILD_LOCK_KEY = KEY_PREFIX + ":rebuild";
+    private static final Duration REBUILD_LOCK_TTL = Duration.ofMinutes(5);
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    // Layer i holds capacity * 2^i items; the scripts only touch keys passed in KEYS
+    private static final int MAX_LAYERS = 16;
+    // SETBIT offsets stop at 2^32 - 1, so no layer may need more bits than this
+    private static final double MAX_LAYER_BITS = 4294967296d;
+    private static final long STALE_GENERATION = -2;
+    
+    private static final RedisScript<Long> CHECK_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/bloom_check.lua"), Long.class);
+    private static final RedisScript<Long> ADD_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/bloom_add.lua"), Long.class);
+    private static final RedisScript<Long> ADD_ALL_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/bloom_add_all.lua"), Long.class);
+    
+    @Value("${sms.dedup.bloom.capacity:1000000}")
+    private long capacity;
+    
+    @Value("${sms.dedup.bloom.error-rate:0.001}")
+    private double errorRate;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private SmsLogRepository smsLogRepository;
+    
+    @Autowired
+    private DistributedLock distributedLock;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Counter newCounter;
+    private Counter possibleDuplicateCounter;
+    private Counter unavailableCounter;
+    private Counter falsePositiveCounter;
+    
+    /**
+     * Generations last read from the metadata hash; the scripts report when they moved on
+     */
+    private record Generations(String active, String building) {
+    }
+    
+    private volatile Generations generations;
+    
+    public enum Verdict {
+        NEW,
+        POSSIBLE_DUPLICATE,
+        UNAVAILABLE
+    }
+    
+    @PostConstruct
+    void registerMetrics() {
+        newCounter = checks("new");
+        possibleDuplicateCounter = checks("possible_duplicate");
+        unavailableCounter = checks("unavailable");
+        falsePositiveCounter = Counter.builder("sms.dedup.bloom.false_positives")
+            .description("Possible duplicates that the database showed to be new")
+            .register(meterRegistry);
+        Gauge.builder("sms.dedup.bloom.false_positive_rate", this, SmsDuplicateFilter::falsePositiveRate)
+            .description("False positives as a share of new hashes checked since startup")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Check the hash against the filter without adding it. Falls back to UNAVAILABLE (consult
+     * the database) if the filter is not built yet or Redis cannot be reached.
+     */
+    public Verdict check(String messageHash) {
+        Long result;
+        try {
+            result = null;
+            for (int attempt = 0; attempt < 2; attempt++) {
+                Generations current = generations(attempt > 0);
+                if (current.active() == null) {
+                    break;
+                }
+                List<String> keys = new ArrayList<>();
+                keys.add(META_KEY);
+                keys.addAll(generationKeys(current.active()));
+                result = stringRedisTemplate.execute(CHECK_SCRIPT, keys,
+                    current.active(), String.valueOf(errorRate),
+                    String.valueOf(h1(messageHash)), String.valueOf(h2(messageHash)));
+                if (result == null || result != STALE_GENERATION) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("SMS Bloom filter unavailable, falling back to database", e);
+            result = null;
+        }
+        
+        if (result == null || result < 0) {
+            unavailableCounter.increment();
+            return Verdict.UNAVAILABLE;
+        }
+        if (result == 1) {
+            newCounter.increment();
+            return Verdict.NEW;
+        }
+        possibleDuplicateCounter.increment();
+        return Verdict.POSSIBLE_DUPLICATE;
+    }
+    
+    /**
+     * Add the hash of a stored SMS log, after the surrounding transaction (if any) commits.
+     * A failed add only means a later duplicate is confirmed by the database.
+     */
+    public void add(String messageHash) {
+        TransactionHooks.afterCommit(() -> {
+            try {
+                for (int attempt = 0; attempt < 2; attempt++) {
+                    Generations current = generations(attempt > 0);
+                    if (current.active() == null) {
+                        return;
+                    }
+                    List<String> keys = new ArrayList<>();
+                    keys.add(META_KEY);
+                    keys.addAll(generationKeys(current.active()));
+                    if (current.building() != null) {
+                        keys.addAll(generationKeys(current.building()));
+                    }
+                    Long result = stringRedisTemplate.execute(ADD_SCRIPT, keys,
+                        current.active(), current.building() == null ? "" : current.building(),
+                        String.valueOf(MAX_LAYERS), String.valueOf(errorRate),
+                        String.valueOf(h1(messageHash)), String.valueOf(h2(messageHash)));
+                    if (result == null || result != STALE_GENERATION) {
+                        return;
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Could not add message hash to SMS Bloom filter", e);
+            }
+        });
+    }
+    
+    /**
+     * Called when a POSSIBLE_DUPLICATE turned out not to exist in the database
+     */
+    public void recordFalsePositive() {
+        falsePositiveCounter.increment();
+    }
+    
+    /**
+     * Build the filter if there is none, or if the active generation predates per-generation
+     * sizing. Runs off the startup thread; checks use the database until it is built.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            HashOperations<String, String, String> meta = stringRedisTemplate.opsForHash();
+            String active = meta.get(META_KEY, "active");
+            if (active == null || !meta.hasKey(generationKey(active), "capacity")) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.warn("Could not warm up SMS Bloom filter; duplicate checks will use the database", e);
+        }
+    }
+    
+    /**
+     * Build a fresh generation from sms_logs and swap it in. New hashes seen while the
+     * build runs are written to both generations. Only one node rebuilds at a time.
+     */
+    @Scheduled(cron = "${sms.dedup.bloom.rebuild-cron:0 0 4 * * *}")
+    public void rebuild() {
+        Optional<LockHandle> lock = distributedLock.tryAcquire(REBUILD_LOCK_KEY, REBUILD_LOCK_TTL);
+        if (lock.isEmpty()) {
+            log.info("SMS Bloom filter rebuild already running on another node");
+            return;
+        }
+        
+        HashOperations<String, String, String> meta = stringRedisTemplate.opsForHash();
+        String generation = String.valueOf(meta.increment(META_KEY, "sequence", 1));
+        try (LockHandle ignored = lock.get()) {
+            // Room for the table to double before a second layer opens
+            long layerCapacity = Math.max(capacity, smsLogRepository.count() * 2);
+            int maxLayers = maxLayers(layerCapacity);
+            if (maxLayers == 0) {
+                throw new IllegalStateException("SMS Bloom filter capacity " + layerCapacity
+                    + " does not fit in one Redis bitset");
+            }
+            meta.putAll(generationKey(generation), Map.of(
+                "capacity", String.valueOf(layerCapacity),
+                "maxLayers", String.valueOf(maxLayers)));
+            meta.put(META_KEY, "building", generation);
+            long loaded = load(generation);
+            
+            String previous = meta.get(META_KEY, "active");
+            meta.put(META_KEY, "active", generation);
+            meta.delete(META_KEY, "building");
+            generations = null;
+            if (previous != null) {
+                dropGeneration(previous);
+            }
+            log.info("Rebuilt SMS Bloom filter generation {} from {} message hashes", generation, loaded);
+        } catch (RuntimeException e) {
+            log.error("SMS Bloom filter rebuild failed, keeping current generation", e);
+            meta.delete(META_KEY, "building");
+            dropGeneration(generation);
+        }
+    }
+    
+    private long load(String generation) {
+        long loaded = 0;
+        long afterId = 0;
+        PageRequest batch = PageRequest.of(0, REBUILD_BATCH_SIZE);
+        List<MessageHashRow> rows;
+        do {
+            rows = smsLogRepository.findMessageHashesAfter(afterId, batch);
+            if (rows.isEmpty()) {
+                break;
+            }
+            
+            List<String> args = new ArrayList<>(1 + rows.size() * 2);
+            args.add(String.valueOf(errorRate));
+            for (MessageHashRow row : rows) {
+                args.add(String.valueOf(h1(row.getMessageHash())));
+                args.add(String.valueOf(h2(row.getMessageHash())));
+            }
+            stringRedisTemplate.execute(ADD_ALL_SCRIPT, generationKeys(generation), args.toArray());
+            
+            loaded += rows.size();
+            afterId = rows.get(rows.size() - 1).getId();
+        } while (rows.size() == REBUILD_BATCH_SIZE);
+        return loaded;
+    }
+    
+    /**
+     * Layers a generation may grow to before every layer bitset would pass 2^32 bits.
+     * Sizing matches the scripts' layerParams.
+     */
+    private int maxLayers(long layerCapacity) {
+        int layers = 0;
+        while (layers < MAX_LAYERS) {
+            double items = layerCapacity * Math.pow(2, layers);
+            double layerErrorRate = errorRate * Math.pow(0.5, layers + 1);
+            double bits = Math.ceil(-items * Math.log(layerErrorRate) / (Math.log(2) * Math.log(2)));
+            if (bits > MAX_LAYER_BITS) {
+                break;
+            }
+            layers++;
+        }
+        return layers;
+    }
+    
+    private void dropGeneration(String generation) {
+        stringRedisTemplate.unlink(generationKeys(generation));
+    }
+    
+    private Generations generations(boolean refresh) {
+        Generations current = generations;
+        if (current == null || refresh) {
+            HashOperations<String, String, String> meta = stringRedisTemplate.opsForHash();
+            List<String> values = meta.multiGet(META_KEY, List.of("active", "building"));
+            current = new Generations(values.get(0), values.get(1));
+            // Not built yet: look again on the next call
+            generations = current.active() == null ? null : current;
+        }
+        return current;
+    }
+    
+    /**
+     * The generation hash followed by every layer bitset it may grow into
+     */
+    private static List<String> generationKeys(String generation) {
+        String generationKey = generationKey(generation);
+        List<String> keys = new ArrayList<>(MAX_LAYERS + 1);
+        keys.add(generationKey);
+        for (int layer = 0; layer < MAX_LAYERS; layer++) {
+            keys.add(generationKey + ":" + layer);
+        }
+        return keys;
+    }
+    
+    private static String generationKey(String generation) {
+        return KEY_PREFIX + ":g:" + generation;
+    }
+    
+    private Counter checks(String result) {
+        return Counter.builder("sms.dedup.bloom.checks")
+            .description("SMS duplicate checks answered by the Bloom filter")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+    
+    private double falsePositiveRate() {
+        double negatives = newCounter.count() + falsePositiveCounter.count();
+        return negatives == 0 ? 0 : falsePositiveCounter.count() / negatives;
+    }
+    
+    /**
+     * Double hashing inputs for the filter, taken from the SHA-256 hex (already uniform).
+     * Kept to 31 bits so Lua's doubles compute bit positions exactly.
+     */
+    private static long h1(String messageHash) {
+        return Integer.parseUnsignedInt(messageHash, 0, 8, 16) >>> 1;
+    }
+    
+    private static long h2(String messageHash) {
+        return (Integer.parseUnsignedInt(messageHash, 8, 16, 16) >>> 1) | 1;
+    }
+}
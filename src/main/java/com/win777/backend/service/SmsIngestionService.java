@@ -0,0 +1,141 @@
+package com.win777.backend.service;
+
+import com.win777.backend.entity.SmsLog;
+import com.win777.backend.ingest.BatchWriter;
+import com.win777.backend.repository.SmsLogBatchRepository;
+import com.win777.backend.repository.SmsLogRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Persists verified SMS logs according to sms.ingest.mode:
+ * <ul>
+ *   <li>direct - one save per request (previous behaviour)</li>
+ *   <li>group-commit - queued into a shared multi-row insert; the request waits until its batch is committed
+ *   (or reports it pending after commit-timeout-ms)</li>
+ *   <li>async - queued and acknowledged immediately; records still queued are lost if the node dies</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class SmsIngestionService {
+    
+    public enum Mode {
+        DIRECT,
+        GROUP_COMMIT,
+        ASYNC
+    }
+    
+    @Value("${sms.ingest.mode:direct}")
+    private String mode;
+    
+    @Value("${sms.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+    
+    @Value("${sms.ingest.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${sms.ingest.max-delay-ms:20}")
+    private long maxDelayMillis;
+    
+    @Value("${sms.ingest.offer-timeout-ms:50}")
+    private long offerTimeoutMillis;
+    
+    @Value("${sms.ingest.commit-timeout-ms:5000}")
+    private long commitTimeoutMillis;
+    
+    @Autowired
+    private SmsLogRepository smsLogRepository;
+    
+    @Autowired
+    private SmsLogBatchRepository smsLogBatchRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private AnalyticsCounters analyticsCounters;
+    
+    @Autowired
+    private SmsDuplicateFilter smsDuplicateFilter;
+    
+    private Mode ingestMode;
+    private BatchWriter<SmsLog> writer;
+    
+    @PostConstruct
+    void start() {
+        ingestMode = Mode.valueOf(mode.trim().toUpperCase().replace('-', '_'));
+        if (ingestMode != Mode.DIRECT) {
+            writer = new BatchWriter<>("sms-logs", queueCapacity, batchSize,
+                Duration.ofMillis(maxDelayMillis), Duration.ofMillis(offerTimeoutMillis),
+                smsLogBatchRepository::insertIgnoringDuplicates, meterRegistry);
+        }
+        log.info("SMS log ingestion mode: {}", ingestMode);
+    }
+    
+    @PreDestroy
+    void stop() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+    
+    /**
+     * Store the log. In async mode, or when a group commit is still pending after
+     * commit-timeout-ms, the returned log has no id yet.
+     */
+    public SmsLog ingest(SmsLog smsLog) {
+        if (ingestMode == Mode.DIRECT) {
+            SmsLog saved = smsLogRepository.save(smsLog);
+            recordStored(saved);
+            return saved;
+        }
+        
+        // Auditing does not run on the JDBC path
+        smsLog.setCreatedAt(LocalDateTime.now());
+        var written = writer.submit(smsLog);
+        // Duplicates are dropped by the batch insert and not recorded
+        written.thenAccept(stored -> {
+            if (stored) {
+                recordStored(smsLog);
+            }
+        });
+        if (ingestMode == Mode.ASYNC) {
+            return smsLog;
+        }
+        
+        try {
+            if (!written.get(commitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Duplicate SMS detected");
+            }
+            return smsLog;
+        } catch (TimeoutException e) {
+            // Still queued and may yet be written: report it as accepted, as in async mode,
+            // rather than have the client retry into a duplicate
+            log.warn("SMS log for user {} not committed within {} ms, left pending", smsLog.getUserId(), commitTimeoutMillis);
+            return smsLog;
+        } catch (ExecutionException e) {
+            log.error("SMS log for user {} was not committed", smsLog.getUserId(), e);
+            throw new RuntimeException("Could not record SMS verification. Please try again.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Could not record SMS verification. Please try again.");
+        }
+    }
+    
+    private void recordStored(SmsLog smsLog) {
+        smsDuplicateFilter.add(smsLog.getMessageHash());
+        analyticsCounters.recordSms(smsLog.getUserId(), smsLog.getVerifiedAt() != null, smsLog.getCreatedAt());
+    }
+}
@@ -2,69 +2,87 @@ package com.win777.backend.service;
 
 import com.win777.backend.dto.SmsVerifyRequest;
 import com.win777.backend.entity.SmsLog;
+import com.win777.backend.fraud.rules.RuleEvent;
 import com.win777.backend.repository.SmsLogRepository;
+import com.win777.backend.util.MessageHasher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 
 @Service
 public class SmsService {
     
+    /**
+     * Also store the 32-byte message_digest; off by default so inserts only maintain the hex index
+     */
+    @Value("${sms.hash.binary-storage:false}")
+    private boolean binaryStorage;
+    
+    /**
+     * Look duplicates up by message_digest instead of the hex message_hash; only honoured
+     * while binary storage is on
+     */
+    @Value("${sms.hash.binary-lookup:false}")
+    private boolean binaryLookup;
+    
     @Autowired
     private SmsLogRepository smsLogRepository;
     
     @Autowired
     private FraudPreventionService fraudPreventionService;
     
-    @Transactional
+    @Autowired
+    private SmsDuplicateFilter smsDuplicateFilter;
+    
+    @Autowired
+    private SmsIngestionService smsIngestionService;
+    
+    /**
+     * Not transactional on purpose: in group-commit mode the request waits for the batch
+     * writer, and must not hold a pooled connection while it does
+     */
     public SmsLog verifyAndLog(SmsVerifyRequest request) {
         // Check SMS rate limit
         if (!fraudPreventionService.checkSmsRateLimit(request.getUserId())) {
             throw new RuntimeException("SMS rate limit exceeded. Please try again later.");
         }
         
-        String messageHash = generateHash(request.getMessageContent());
+        byte[] messageDigest = MessageHasher.sha256(request.getMessageContent());
+        String messageHash = MessageHasher.toHex(messageDigest);
         
-        // Check for duplicate SMS (already implemented in Phase 1)
-        if (smsLogRepository.existsByMessageHash(messageHash)) {
-            fraudPreventionService.logFraud(request.getUserId(), null, "DUPLICATE_SMS", 
-                "Duplicate SMS submission detected", "HIGH");
-            throw new RuntimeException("Duplicate SMS detected");
+        // Check for duplicate SMS; the database is only consulted when the Bloom filter
+        // reports a possible hit (or is unavailable). The hash is added once the log is stored.
+        SmsDuplicateFilter.Verdict verdict = smsDuplicateFilter.check(messageHash);
+        if (verdict != SmsDuplicateFilter.Verdict.NEW) {
+            boolean duplicate = binaryStorage && binaryLookup
+                    ? smsLogRepository.existsByMessageDigest(messageDigest)
+                    : smsLogRepository.existsByMessageHash(messageHash);
+            if (duplicate) {
+                fraudPreventionService.logFraud(request.getUserId(), null, "DUPLICATE_SMS", 
+                    "Duplicate SMS submission detected", "HIGH");
+                throw new RuntimeException("Duplicate SMS detected");
+            }
+            if (verdict == SmsDuplicateFilter.Verdict.POSSIBLE_DUPLICATE) {
+                smsDuplicateFilter.recordFalsePositive();
+            }
         }
         
         // Check multi-SIM pattern
         fraudPreventionService.checkMultiSimPattern(request.getUserId(), request.getMobile());
+        fraudPreventionService.applyFraudRules(RuleEvent.SMS_VERIFIED, request.getUserId(), 0);
         
         SmsLog smsLog = SmsLog.builder()
                 .userId(request.getUserId())
                 .mobile(request.getMobile())
                 .messageHash(messageHash)
+                .messageDigest(binaryStorage ? messageDigest : null)
                 .verificationCode(request.getVerificationCode())
                 .status("VERIFIED")
                 .verifiedAt(LocalDateTime.now())
                 .build();
         
-        return smsLogRepository.save(smsLog);
-    }
-    
-    private String generateHash(String message) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(message.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error generating hash", e);
-        }
+        return smsIngestionService.ingest(smsLog);
     }
 }
@@ -0,0 +1,49 @@
+package com.win777.backend.service;
+
+import com.win777.backend.repository.WalletBalanceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Checks the materialized wallet_balances table against wallet_ledger
+ */
+@Service
+@Slf4j
+public class WalletReconciliationService {
+    
+    @Autowired
+    private WalletBalanceRepository walletBalanceRepository;
+    
+    @Autowired
+    private WalletService walletService;
+    
+    /**
+     * Scheduled reconciliation of materialized balances
+     * Runs every day at 2:30 AM
+     */
+    @Scheduled(cron = "0 30 2 * * *")
+    public int reconcileBalances() {
+        log.info("Starting wallet balance reconciliation");
+        
+        List<Long> driftedUserIds = walletBalanceRepository.findDriftedUserIds();
+        int repaired = 0;
+        
+        for (Long userId : driftedUserIds) {
+            try {
+                // Each repair runs in its own transaction and re-checks under a row lock
+                if (walletService.repairBalance(userId)) {
+                    repaired++;
+                }
+            } catch (Exception e) {
+                log.error("Error repairing wallet balance for user: {}", userId, e);
+            }
+        }
+        
+        log.info("Wallet balance reconciliation completed: {} drifted, {} repaired", driftedUserIds.size(), repaired);
+        return repaired;
+    }
+}
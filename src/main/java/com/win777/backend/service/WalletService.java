@@ -1,33 +1,114 @@
 package com.win777.backend.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.win777.backend.dto.LedgerEntryView;
+import com.win777.backend.dto.LedgerPage;
+import com.win777.backend.dto.LedgerTotals;
 import com.win777.backend.dto.WalletSummary;
+import com.win777.backend.entity.WalletBalance;
 import com.win777.backend.entity.WalletLedger;
+import com.win777.backend.repository.WalletBalanceRepository;
 import com.win777.backend.repository.WalletLedgerRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
+@Slf4j
 public class WalletService {
     
+    private static final int MAX_LEDGER_PAGE_SIZE = 200;
+    
     @Autowired
     private WalletLedgerRepository walletLedgerRepository;
     
+    @Autowired
+    private WalletBalanceRepository walletBalanceRepository;
+    
+    @Autowired
+    private WithdrawalAdmissionService withdrawalAdmissionService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private AnalyticsCounters analyticsCounters;
+    
+    /**
+     * Wallet summary served from the materialized balance row (single primary-key lookup)
+     */
     public WalletSummary getWalletSummary(Long userId) {
-        BigDecimal balance = walletLedgerRepository.calculateBalance(userId);
-        List<WalletLedger> ledger = walletLedgerRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return new WalletSummary(userId, balance, (long) ledger.size());
+        return walletBalanceRepository.findById(userId)
+                .map(balance -> new WalletSummary(userId, balance.getBalance(), balance.getEntryCount()))
+                .orElseGet(() -> computeSummaryFromLedger(userId));
     }
     
-    public List<WalletLedger> getWalletLedger(Long userId) {
-        return walletLedgerRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    /**
+     * Current balance from the materialized balance row
+     */
+    public BigDecimal getBalance(Long userId) {
+        return walletBalanceRepository.findById(userId)
+                .map(WalletBalance::getBalance)
+                .orElseGet(() -> walletLedgerRepository.calculateBalance(userId));
+    }
+    
+    /**
+     * One page of the ledger, newest first. The cursor is the (createdAt, id) of the
+     * last entry of the previous page, so each page is an index range scan.
+     */
+    public LedgerPage getLedgerPage(Long userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_LEDGER_PAGE_SIZE));
+        // Fetch one extra row to know whether another page follows
+        PageRequest window = PageRequest.of(0, pageSize + 1);
+        
+        List<LedgerEntryView> entries;
+        if (cursor == null || cursor.isBlank()) {
+            entries = walletLedgerRepository.findLedgerPage(userId, window);
+        } else {
+            LedgerCursor position = LedgerCursor.decode(cursor);
+            entries = walletLedgerRepository.findLedgerPageBefore(userId, position.createdAt(), position.id(), window);
+        }
+        
+        if (entries.size() <= pageSize) {
+            return new LedgerPage(entries, null);
+        }
+        
+        List<LedgerEntryView> page = entries.subList(0, pageSize);
+        LedgerEntryView last = page.get(pageSize - 1);
+        return new LedgerPage(page, new LedgerCursor(last.getCreatedAt(), last.getId()).encode());
+    }
+    
+    /**
+     * Stream the full ledger as NDJSON straight from a JDBC cursor, one entry per line
+     */
+    @Transactional(readOnly = true)
+    public void exportLedger(Long userId, OutputStream out) throws IOException {
+        try (Stream<LedgerEntryView> entries = walletLedgerRepository.streamByUserId(userId);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<LedgerEntryView> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                objectMapper.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+            }
+        }
     }
     
     @Transactional
-    public WalletLedger addTransaction(Long userId, String transactionType, BigDecimal amount, 
+    public WalletLedger addTransaction(Long userId, String transactionType, BigDecimal amount,
                                        String referenceType, Long referenceId, String description) {
         WalletLedger entry = WalletLedger.builder()
                 .userId(userId)
@@ -38,6 +119,95 @@ public class WalletService {
                 .description(description)
                 .build();
         
-        return walletLedgerRepository.save(entry);
+        entry = walletLedgerRepository.save(entry);
+        
+        // Keep the materialized balance in step with the ledger, in the same transaction
+        walletBalanceRepository.applyEntry(userId, amount);
+        withdrawalAdmissionService.invalidateBalance(userId);
+        analyticsCounters.recordWalletTransaction(userId, transactionType, amount, entry.getCreatedAt());
+        
+        return entry;
+    }
+    
+    /**
+     * Accept a withdrawal fencing token for this transaction. Returns false if a newer
+     * token was already accepted, i.e. the caller's lock lease has expired.
+     */
+    @Transactional
+    public boolean claimWithdrawalFence(Long userId, long fence) {
+        return walletBalanceRepository.advanceWithdrawalFence(userId, fence) > 0;
+    }
+    
+    /**
+     * Lock the user's balance row for the rest of the surrounding transaction
+     */
+    @Transactional
+    public void lockBalanceRow(Long userId) {
+        walletBalanceRepository.findByUserIdForUpdate(userId);
+    }
+    
+    public long getWithdrawalFence(Long userId) {
+        return walletBalanceRepository.findWithdrawalFence(userId).orElse(0L);
+    }
+    
+    /**
+     * Recompute a user's materialized balance from the ledger.
+     * The balance row is created if missing and locked first, so concurrent
+     * ledger inserts either complete before the recount or apply their delta
+     * after it; the row is only reset if it still differs from the ledger
+     * under that lock. Returns whether a repair was needed.
+     */
+    @Transactional
+    public boolean repairBalance(Long userId) {
+        // A missing row cannot be locked, so an insert racing the recount would go unseen
+        walletBalanceRepository.createIfAbsent(userId);
+        WalletBalance stored = walletBalanceRepository.findByUserIdForUpdate(userId)
+                .orElseThrow(() -> new RuntimeException("Wallet balance not found for user: " + userId));
+        WalletSummary actual = computeSummaryFromLedger(userId);
+        
+        boolean inSync = stored.getBalance().compareTo(actual.getBalance()) == 0
+                && actual.getTransactionCount().equals(stored.getEntryCount());
+        if (inSync) {
+            // The drift seen by the scan was an in-flight entry that has since been applied
+            return false;
+        }
+        
+        log.warn("Wallet balance drift for user {}: stored={} / {} entries, ledger={} / {} entries",
+                userId,
+                stored.getBalance(), stored.getEntryCount(),
+                actual.getBalance(), actual.getTransactionCount());
+        
+        walletBalanceRepository.resetBalance(userId, actual.getBalance(), actual.getTransactionCount());
+        return true;
+    }
+    
+    /**
+     * Opaque keyset position: base64url of "createdAt|id"
+     */
+    private record LedgerCursor(LocalDateTime createdAt, Long id) {
+        
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static LedgerCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new LedgerCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid ledger cursor");
+            }
+        }
+    }
+    
+    /**
+     * Balance and entry count in one aggregate query, without hydrating ledger rows
+     */
+    private WalletSummary computeSummaryFromLedger(Long userId) {
+        LedgerTotals totals = walletLedgerRepository.summarizeByUserId(userId);
+        return new WalletSummary(userId, totals.getBalance(), totals.getEntryCount());
     }
 }
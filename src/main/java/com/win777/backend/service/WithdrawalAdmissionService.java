@@ -0,0 +1,247 @@
+package com.win777.backend.service;
+
+import com.win777.backend.entity.User;
+import com.win777.backend.lock.DistributedLock;
+import com.win777.backend.lock.LockHandle;
+import com.win777.backend.repository.UserRepository;
+import com.win777.backend.resilience.RedisGuard;
+import com.win777.backend.util.TransactionHooks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single round-trip withdrawal admission backed by a Redis Lua script.
+ * Ban flags, last-withdrawal timestamps and balances are mirrored into Redis
+ * so the script can check them together and reserve the amount atomically.
+ */
+@Service
+@Slf4j
+public class WithdrawalAdmissionService {
+    
+    public static final long COOLDOWN_HOURS = 24;
+    
+    private static final Duration LOCK_TTL = Duration.ofSeconds(30);
+    private static final long BALANCE_CACHE_TTL_MINUTES = 10;
+    
+    private static final RedisScript<Long> ADMISSION_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/withdrawal_admission.lua"), Long.class);
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private DistributedLock distributedLock;
+    
+    @Autowired
+    private RedisGuard redisGuard;
+    
+    public enum Result {
+        ADMITTED,
+        BALANCE_NOT_CACHED,
+        BANNED,
+        COOLDOWN,
+        IN_PROGRESS,
+        INSUFFICIENT_BALANCE,
+        /** Redis is unavailable; the caller has to admit against the database */
+        UNAVAILABLE
+    }
+    
+    /**
+     * Outcome of an admission attempt; the lock is only set when ADMITTED
+     */
+    public record Admission(Result result, LockHandle lock) {
+    }
+    
+    /**
+     * Check ban, cooldown, in-flight lock and cached balance, and on success take the
+     * lock, reserve the amount and issue a fencing token - all in one EVALSHA
+     */
+    public Admission admit(Long userId, BigDecimal amount) {
+        // Converted outside the guard: an amount that does not fit is the caller's error, not Redis's
+        long minorUnits = toMinorUnits(amount);
+        return redisGuard.call("withdrawal.admit", () -> admitInRedis(userId, minorUnits),
+            () -> new Admission(Result.UNAVAILABLE, null));
+    }
+    
+    private Admission admitInRedis(Long userId, long minorUnits) {
+        String lockKey = lockKey(userId);
+        String owner = DistributedLock.newOwnerToken();
+        List<String> keys = List.of(banKey(userId), cooldownKey(userId), lockKey, balanceKey(userId),
+            DistributedLock.fenceKey(lockKey));
+        Long code = stringRedisTemplate.execute(ADMISSION_SCRIPT, keys,
+            String.valueOf(minorUnits),
+            String.valueOf(System.currentTimeMillis()),
+            String.valueOf(TimeUnit.HOURS.toMillis(COOLDOWN_HOURS)),
+            String.valueOf(LOCK_TTL.toMillis()),
+            owner);
+        
+        if (code == null) {
+            throw new RedisSystemException("Empty reply from withdrawal admission script", null);
+        }
+        
+        if (code > 0) {
+            return new Admission(Result.ADMITTED, distributedLock.adopt(lockKey, owner, code, LOCK_TTL));
+        }
+        
+        Result result = switch (code.intValue()) {
+            case 0 -> Result.BALANCE_NOT_CACHED;
+            case -1 -> Result.BANNED;
+            case -2 -> Result.COOLDOWN;
+            case -3 -> Result.IN_PROGRESS;
+            case -4 -> Result.INSUFFICIENT_BALANCE;
+            default -> throw new IllegalStateException("Unexpected admission result: " + code);
+        };
+        return new Admission(result, null);
+    }
+    
+    /**
+     * Seed the cached balance after a miss; an existing value is never overwritten
+     */
+    public void primeBalance(Long userId, BigDecimal balance) {
+        redisGuard.run("wallet.balance.prime", () -> stringRedisTemplate.opsForValue().setIfAbsent(balanceKey(userId),
+            String.valueOf(toMinorUnits(balance)), BALANCE_CACHE_TTL_MINUTES, TimeUnit.MINUTES));
+    }
+    
+    /**
+     * Release the in-flight lock taken by admit() only once the surrounding transaction
+     * has committed or rolled back, so a slow commit cannot let a second request in
+     */
+    public void releaseAfterCompletion(LockHandle lock) {
+        TransactionHooks.afterCompletion(() -> redisGuard.run("withdrawal.release", lock::close));
+    }
+    
+    /**
+     * Move the withdrawal fencing counter past the last token the database accepted
+     */
+    public void raiseFence(Long userId, long floor) {
+        redisGuard.run("withdrawal.fence", () -> distributedLock.raiseFence(lockKey(userId), floor));
+    }
+    
+    /**
+     * Drop the cached balance once the surrounding transaction commits (or rolls back),
+     * so the next admission reloads it from wallet_balances
+     */
+    public void invalidateBalance(Long userId) {
+        TransactionHooks.afterCompletion(() -> redisGuard.runOrDefer("wallet.balance.invalidate",
+            () -> stringRedisTemplate.delete(balanceKey(userId))));
+    }
+    
+    /**
+     * Record a committed withdrawal so the cooldown is enforced by the script.
+     * If Redis is down the write is replayed later from the database's current value.
+     */
+    public void recordWithdrawal(Long userId, LocalDateTime at) {
+        TransactionHooks.afterCommit(() -> redisGuard.runOrDefer("withdrawal.cooldown",
+            () -> writeCooldown(userId, at),
+            () -> userRepository.findById(userId)
+                .filter(user -> user.getLastWithdrawalAt() != null)
+                .ifPresent(user -> writeCooldown(userId, user.getLastWithdrawalAt()))));
+    }
+    
+    public void setBanned(Long userId, boolean banned) {
+        TransactionHooks.afterCommit(() -> redisGuard.runOrDefer("user.banned",
+            () -> writeBanned(userId, banned),
+            () -> userRepository.findById(userId)
+                .ifPresent(user -> writeBanned(userId, Boolean.TRUE.equals(user.getIsBanned())))));
+    }
+    
+    /**
+     * Rewrite one user's ban flag and cooldown from the database right away, used when
+     * the database rejects a request the Redis mirror admitted
+     */
+    public void resyncUser(Long userId) {
+        redisGuard.runOrDefer("withdrawal.resync",
+            () -> userRepository.findById(userId).ifPresent(user -> {
+                writeBanned(userId, Boolean.TRUE.equals(user.getIsBanned()));
+                if (user.getLastWithdrawalAt() != null) {
+                    writeCooldown(userId, user.getLastWithdrawalAt());
+                }
+            }));
+    }
+    
+    /**
+     * Mirror ban flags and active cooldowns from the database into Redis.
+     * Runs at startup and periodically in case Redis lost its data.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelay = 15, initialDelay = 15, timeUnit = TimeUnit.MINUTES)
+    public void syncFromDatabase() {
+        try {
+            List<Long> bannedUserIds = userRepository.findBannedUserIds();
+            for (Long userId : bannedUserIds) {
+                stringRedisTemplate.opsForValue().set(banKey(userId), "1");
+            }
+            
+            List<User> recentWithdrawals = userRepository
+                .findByLastWithdrawalAtAfter(LocalDateTime.now().minusHours(COOLDOWN_HOURS));
+            for (User user : recentWithdrawals) {
+                writeCooldown(user.getId(), user.getLastWithdrawalAt());
+            }
+            
+            log.info("Synced withdrawal admission state: {} banned users, {} active cooldowns",
+                bannedUserIds.size(), recentWithdrawals.size());
+        } catch (Exception e) {
+            log.warn("Could not sync withdrawal admission state to Redis", e);
+        }
+    }
+    
+    private void writeBanned(Long userId, boolean banned) {
+        if (banned) {
+            stringRedisTemplate.opsForValue().set(banKey(userId), "1");
+        } else {
+            stringRedisTemplate.delete(banKey(userId));
+        }
+    }
+    
+    private void writeCooldown(Long userId, LocalDateTime at) {
+        long timestamp = at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long remaining = timestamp + TimeUnit.HOURS.toMillis(COOLDOWN_HOURS) - System.currentTimeMillis();
+        if (remaining > 0) {
+            stringRedisTemplate.opsForValue().set(cooldownKey(userId), String.valueOf(timestamp),
+                remaining, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private static long toMinorUnits(BigDecimal amount) {
+        try {
+            return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("Invalid withdrawal amount");
+        }
+    }
+    
+    static String banKey(Long userId) {
+        return "user:banned:" + userId;
+    }
+    
+    static String cooldownKey(Long userId) {
+        return "withdrawal:cooldown:" + userId;
+    }
+    
+    static String lockKey(Long userId) {
+        return "withdrawal:lock:" + userId;
+    }
+    
+    static String balanceKey(Long userId) {
+        return "wallet:balance:" + userId;
+    }
+}
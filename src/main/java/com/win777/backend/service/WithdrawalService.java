@@ -2,16 +2,16 @@ package com.win777.backend.service;
 
 import com.win777.backend.dto.WithdrawRequest;
 import com.win777.backend.entity.Withdrawal;
+import com.win777.backend.fraud.rules.RuleEvent;
+import com.win777.backend.lock.LockHandle;
 import com.win777.backend.repository.WithdrawalRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 @Service
 public class WithdrawalService {
@@ -23,63 +23,110 @@ public class WithdrawalService {
     private WalletService walletService;
     
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private WithdrawalAdmissionService admissionService;
     
     @Autowired
     private FraudPreventionService fraudPreventionService;
     
     @Transactional
     public Withdrawal requestWithdrawal(Long userId, WithdrawRequest request) {
-        // Check if user is banned
-        if (fraudPreventionService.isUserBanned(userId)) {
-            throw new RuntimeException("Account is banned. Cannot process withdrawal.");
-        }
+        // Ban, cooldown, in-flight lock and balance reservation in one Redis round-trip
+        WithdrawalAdmissionService.Admission admission = admissionService.admit(userId, request.getAmount());
         
-        // Check withdrawal cooldown period
-        if (!fraudPreventionService.checkWithdrawalCooldown(userId)) {
-            throw new RuntimeException("Withdrawal cooldown period active. Please try again later.");
+        if (admission.result() == WithdrawalAdmissionService.Result.BALANCE_NOT_CACHED) {
+            admissionService.primeBalance(userId, walletService.getBalance(userId));
+            admission = admissionService.admit(userId, request.getAmount());
         }
         
-        String lockKey = "withdrawal:lock:" + userId;
-        
-        Boolean lockAcquired = redisTemplate.opsForValue().setIfAbsent(lockKey, "locked", 30, TimeUnit.SECONDS);
+        if (admission.result() == WithdrawalAdmissionService.Result.UNAVAILABLE) {
+            return requestWithdrawalWithoutRedis(userId, request);
+        }
         
-        if (Boolean.FALSE.equals(lockAcquired)) {
-            throw new RuntimeException("Another withdrawal is in progress");
+        switch (admission.result()) {
+            case ADMITTED -> { }
+            case BANNED -> throw new RuntimeException("Account is banned. Cannot process withdrawal.");
+            case COOLDOWN -> throw new RuntimeException("Withdrawal cooldown period active. Please try again later.");
+            case IN_PROGRESS -> throw new RuntimeException("Another withdrawal is in progress");
+            case INSUFFICIENT_BALANCE -> throw new RuntimeException("Insufficient balance");
+            default -> throw new RuntimeException("Withdrawal admission unavailable. Please try again later.");
         }
         
+        LockHandle lock = admission.lock();
+        // The lock is renewed until commit or rollback, then released if still ours
+        admissionService.releaseAfterCompletion(lock);
+        
         try {
-            BigDecimal currentBalance = walletService.getWalletSummary(userId).getBalance();
-            
-            if (currentBalance.compareTo(request.getAmount()) < 0) {
-                throw new RuntimeException("Insufficient balance");
+            // A newer token already accepted means our lease expired and someone else went ahead
+            if (!walletService.claimWithdrawalFence(userId, lock.getFence())) {
+                admissionService.raiseFence(userId, walletService.getWithdrawalFence(userId));
+                throw new RuntimeException("Another withdrawal is in progress");
             }
             
-            Withdrawal withdrawal = Withdrawal.builder()
-                    .userId(userId)
-                    .amount(request.getAmount())
-                    .status("PENDING")
-                    .requestData(request.getAdditionalData())
-                    .build();
-            
-            withdrawal = withdrawalRepository.save(withdrawal);
-            
-            walletService.addTransaction(
-                userId, 
-                "WITHDRAWAL", 
-                request.getAmount().negate(), 
-                "WITHDRAWAL", 
-                withdrawal.getId(), 
-                "Withdrawal request"
-            );
-            
-            // Update last withdrawal timestamp
-            fraudPreventionService.updateLastWithdrawal(userId);
-            
-            return withdrawal;
-        } finally {
-            redisTemplate.delete(lockKey);
+            return createWithdrawal(userId, request);
+        } catch (RuntimeException e) {
+            // Drop the reserved amount; the next admission reloads the real balance
+            admissionService.invalidateBalance(userId);
+            throw e;
+        }
+    }
+    
+    /**
+     * Degraded admission while Redis is unavailable: the user's wallet_balances row lock
+     * stands in for the Redis lock (Redis-admitted requests on other nodes take the same
+     * row lock when claiming their fence)
+     */
+    private Withdrawal requestWithdrawalWithoutRedis(Long userId, WithdrawRequest request) {
+        walletService.lockBalanceRow(userId);
+        return createWithdrawal(userId, request);
+    }
+    
+    /**
+     * Runs with the user's wallet_balances row locked (fence claim or degraded lock).
+     * Ban and cooldown are re-read from the database here: the Redis mirror only
+     * rejects early and may have lost a key or not yet replayed a write.
+     */
+    private Withdrawal createWithdrawal(Long userId, WithdrawRequest request) {
+        if (fraudPreventionService.isUserBanned(userId)) {
+            admissionService.resyncUser(userId);
+            throw new RuntimeException("Account is banned. Cannot process withdrawal.");
+        }
+        if (!fraudPreventionService.checkWithdrawalCooldown(userId)) {
+            admissionService.resyncUser(userId);
+            throw new RuntimeException("Withdrawal cooldown period active. Please try again later.");
+        }
+        
+        // The ledger remains authoritative; the Redis reservation only gates admission
+        BigDecimal currentBalance = walletService.getBalance(userId);
+        
+        if (currentBalance.compareTo(request.getAmount()) < 0) {
+            throw new RuntimeException("Insufficient balance");
         }
+        
+        fraudPreventionService.applyFraudRules(RuleEvent.WITHDRAWAL_REQUESTED, userId, request.getAmount().doubleValue());
+        
+        Withdrawal withdrawal = Withdrawal.builder()
+                .userId(userId)
+                .amount(request.getAmount())
+                .status("PENDING")
+                .requestData(request.getAdditionalData())
+                .build();
+        
+        withdrawal = withdrawalRepository.save(withdrawal);
+        
+        walletService.addTransaction(
+            userId, 
+            "WITHDRAWAL", 
+            request.getAmount().negate(), 
+            "WITHDRAWAL", 
+            withdrawal.getId(), 
+            "Withdrawal request"
+        );
+        
+        // Update last withdrawal timestamp
+        fraudPreventionService.updateLastWithdrawal(userId);
+        fraudPreventionService.recordPayoutTargets(userId, request.getAdditionalData());
+        
+        return withdrawal;
     }
     
     @Transactional
@@ -0,0 +1,151 @@
+package com.win777.backend.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.TreeSet;
+
+/**
+ * Case-insensitive multi-pattern substring matcher (Aho-Corasick compiled to a DFA).
+ * Scans the input once, folding case per character, so no lowercased copy is made.
+ *
+ * Immutable and thread-safe once built; build a new instance to change the patterns.
+ */
+public final class AhoCorasickMatcher {
+    
+    private static final int ROOT = 0;
+    private static final int ASCII = 128;
+    
+    /** Character class per ASCII char; 0 = not used by any pattern */
+    private final int[] asciiClasses = new int[ASCII];
+    /** Non-ASCII pattern characters, sorted; class = index + 1 + asciiClassCount */
+    private final char[] otherChars;
+    private final int asciiClassCount;
+    private final int classCount;
+    
+    /** delta[state * classCount + class] = next state */
+    private final int[] delta;
+    /** True if some pattern ends at the state or on its failure chain */
+    private final boolean[] accepting;
+    private final int patternCount;
+    
+    public AhoCorasickMatcher(Collection<String> patterns) {
+        TreeSet<Character> others = new TreeSet<>();
+        int nextClass = 1;
+        int trieSize = 1;
+        int count = 0;
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            count++;
+            trieSize += pattern.length();
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i));
+                if (c < ASCII) {
+                    if (asciiClasses[c] == 0) {
+                        asciiClasses[c] = nextClass++;
+                    }
+                } else {
+                    others.add(c);
+                }
+            }
+        }
+        this.patternCount = count;
+        this.asciiClassCount = nextClass - 1;
+        this.otherChars = new char[others.size()];
+        int index = 0;
+        for (char c : others) {
+            otherChars[index++] = c;
+        }
+        this.classCount = 1 + asciiClassCount + otherChars.length;
+        
+        // Build the trie directly in the transition table; -1 = no edge yet
+        int[] table = new int[trieSize * classCount];
+        Arrays.fill(table, -1);
+        boolean[] terminal = new boolean[trieSize];
+        int states = 1;
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                int slot = state * classCount + classOf(fold(pattern.charAt(i)));
+                if (table[slot] < 0) {
+                    table[slot] = states++;
+                }
+                state = table[slot];
+            }
+            terminal[state] = true;
+        }
+        
+        // Breadth-first: fill missing edges from the failure state, which is always
+        // processed earlier, turning the trie into a DFA
+        int[] failure = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < classCount; c++) {
+            int next = table[c];
+            if (next < 0) {
+                table[c] = ROOT;
+            } else {
+                failure[next] = ROOT;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            terminal[state] |= terminal[failure[state]];
+            for (int c = 0; c < classCount; c++) {
+                int slot = state * classCount + c;
+                int fallback = table[failure[state] * classCount + c];
+                if (table[slot] < 0) {
+                    table[slot] = fallback;
+                } else {
+                    failure[table[slot]] = fallback;
+                    queue.add(table[slot]);
+                }
+            }
+        }
+        
+        this.delta = Arrays.copyOf(table, states * classCount);
+        this.accepting = Arrays.copyOf(terminal, states);
+    }
+    
+    /**
+     * True if any pattern occurs in the input, ignoring case
+     */
+    public boolean matches(CharSequence input) {
+        if (input == null || patternCount == 0) {
+            return false;
+        }
+        int state = ROOT;
+        for (int i = 0, length = input.length(); i < length; i++) {
+            state = delta[state * classCount + classOf(fold(input.charAt(i)))];
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public int patternCount() {
+        return patternCount;
+    }
+    
+    private int classOf(char c) {
+        if (c < ASCII) {
+            return asciiClasses[c];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? 0 : 1 + asciiClassCount + index;
+    }
+    
+    private static char fold(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c < ASCII ? c : Character.toLowerCase(c);
+    }
+}
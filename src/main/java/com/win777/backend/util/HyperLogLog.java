@@ -0,0 +1,150 @@
+package com.win777.backend.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * HyperLogLog sketch of distinct long ids. 2^precision one-byte registers hold the longest
+ * run of leading zeros seen per hash bucket; the estimate has a standard error of about
+ * 1.04 / sqrt(2^precision) whatever the cardinality. Sketches of the same precision merge
+ * by taking the register maximum, so per-day sketches combine into any date range.
+ * Additions are lock-free, so it can be read and written from any thread.
+ */
+public final class HyperLogLog {
+    
+    public static final int DEFAULT_PRECISION = 14;
+    
+    // Eight registers packed per word
+    private final AtomicLongArray words;
+    private final int precision;
+    private final int registerCount;
+    
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+    
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Invalid HyperLogLog precision: " + precision);
+        }
+        this.precision = precision;
+        this.registerCount = 1 << precision;
+        this.words = new AtomicLongArray(registerCount / 8);
+    }
+    
+    /**
+     * Returns true if the sketch changed, i.e. a register was raised
+     */
+    public boolean add(long value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        // Sentinel bit caps the rank at 64 - precision + 1
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        return raise(index, rank);
+    }
+    
+    /**
+     * Fold another sketch of the same precision into this one
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog of precision " + other.precision + " into " + precision);
+        }
+        for (int i = 0; i < registerCount; i++) {
+            int rank = other.register(i);
+            if (rank > 0) {
+                raise(i, rank);
+            }
+        }
+    }
+    
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < registerCount; i++) {
+            int rank = register(i);
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha() * registerCount * registerCount / sum;
+        // Linear counting is more accurate while many registers are still empty
+        if (estimate <= 2.5 * registerCount && zeros > 0) {
+            estimate = registerCount * Math.log((double) registerCount / zeros);
+        }
+        return Math.round(estimate);
+    }
+    
+    public double standardError() {
+        return 1.04 / Math.sqrt(registerCount);
+    }
+    
+    public int precision() {
+        return precision;
+    }
+    
+    /**
+     * Precision byte followed by one byte per register
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[registerCount + 1];
+        bytes[0] = (byte) precision;
+        for (int i = 0; i < registerCount; i++) {
+            bytes[i + 1] = (byte) register(i);
+        }
+        return bytes;
+    }
+    
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < 1) {
+            throw new IllegalArgumentException("Empty HyperLogLog sketch");
+        }
+        HyperLogLog sketch = new HyperLogLog(bytes[0]);
+        if (bytes.length != sketch.registerCount + 1) {
+            throw new IllegalArgumentException("Corrupt HyperLogLog sketch of " + bytes.length + " bytes");
+        }
+        for (int i = 0; i < sketch.registerCount; i++) {
+            if (bytes[i + 1] != 0) {
+                sketch.raise(i, bytes[i + 1]);
+            }
+        }
+        return sketch;
+    }
+    
+    private int register(int index) {
+        return (int) (words.get(index >>> 3) >>> ((index & 7) << 3)) & 0xff;
+    }
+    
+    private boolean raise(int index, int rank) {
+        int word = index >>> 3;
+        int shift = (index & 7) << 3;
+        long current = words.get(word);
+        while ((int) (current >>> shift & 0xff) < rank) {
+            long updated = current & ~(0xffL << shift) | ((long) rank << shift);
+            if (words.compareAndSet(word, current, updated)) {
+                return true;
+            }
+            current = words.get(word);
+        }
+        return false;
+    }
+    
+    private double alpha() {
+        return switch (registerCount) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / registerCount);
+        };
+    }
+    
+    /**
+     * SplitMix64 mixer, so sequential ids spread over all registers
+     */
+    private static long hash(long value) {
+        long hash = value + 0x9e3779b97f4a7c15L;
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
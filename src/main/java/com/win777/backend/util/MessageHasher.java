@@ -0,0 +1,106 @@
+package com.win777.backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 hashing for SMS messages without per-call garbage.
+ * Each thread keeps its own digest, input buffer, digest buffer and hex buffer,
+ * so a call allocates only the returned String (or byte[]).
+ */
+public final class MessageHasher {
+    
+    public static final int DIGEST_LENGTH = 32;
+    
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+    
+    private MessageHasher() {
+    }
+    
+    /**
+     * Lowercase hex SHA-256 of the UTF-8 encoded message (64 chars)
+     */
+    public static String sha256Hex(String message) {
+        Buffers buffers = BUFFERS.get();
+        return buffers.hex(buffers.digest(message));
+    }
+    
+    /**
+     * Raw SHA-256 of the UTF-8 encoded message (32 bytes)
+     */
+    public static byte[] sha256(String message) {
+        return BUFFERS.get().digest(message).clone();
+    }
+    
+    /**
+     * Lowercase hex of a digest, through the thread's reusable char buffer
+     */
+    public static String toHex(byte[] digest) {
+        return BUFFERS.get().hex(digest);
+    }
+    
+    private static final class Buffers {
+        
+        private final MessageDigest messageDigest;
+        private final byte[] digest = new byte[DIGEST_LENGTH];
+        private final char[] hex = new char[DIGEST_LENGTH * 2];
+        private byte[] input = new byte[256];
+        
+        Buffers() {
+            try {
+                messageDigest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+        
+        String hex(byte[] bytes) {
+            char[] out = bytes.length == DIGEST_LENGTH ? hex : new char[bytes.length * 2];
+            for (int i = 0, j = 0; i < bytes.length; i++) {
+                int b = bytes[i] & 0xff;
+                out[j++] = HEX[b >>> 4];
+                out[j++] = HEX[b & 0x0f];
+            }
+            return new String(out);
+        }
+        
+        byte[] digest(String message) {
+            int length = encodeAscii(message);
+            if (length >= 0) {
+                messageDigest.update(input, 0, length);
+            } else {
+                // Non-ASCII text is rare for verification SMS; take the JDK encoder
+                messageDigest.update(message.getBytes(StandardCharsets.UTF_8));
+            }
+            try {
+                messageDigest.digest(digest, 0, DIGEST_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException("Error generating hash", e);
+            }
+            return digest;
+        }
+        
+        /**
+         * Copy an ASCII message into the reusable input buffer (ASCII is its own UTF-8).
+         * Returns -1 if the message contains a non-ASCII char.
+         */
+        private int encodeAscii(String message) {
+            int length = message.length();
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = message.charAt(i);
+                if (c >= 0x80) {
+                    return -1;
+                }
+                input[i] = (byte) c;
+            }
+            return length;
+        }
+    }
+}
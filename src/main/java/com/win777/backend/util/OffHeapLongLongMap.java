@@ -0,0 +1,167 @@
+package com.win777.backend.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Fixed-capacity long-to-long hash map stored in a direct buffer (16 bytes per slot),
+ * so large caches add nothing to the heap the collector has to trace.
+ *
+ * Open addressing with linear probing and backward-shift deletion. Key 0 marks an
+ * empty slot and cannot be stored. put() refuses new keys once the map is 75% full;
+ * the caller decides what to evict. Thread-safe.
+ */
+public final class OffHeapLongLongMap {
+    
+    private static final long EMPTY = 0;
+    private static final int SLOT_BYTES = 16;
+    
+    private final ByteBuffer slots;
+    private final int mask;
+    private final int maxSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int size;
+    
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public OffHeapLongLongMap(int capacity) {
+        if (capacity < 2 || capacity > (1 << 26)) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^26: " + capacity);
+        }
+        int slotCount = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = ByteBuffer.allocateDirect(slotCount * SLOT_BYTES);
+        this.mask = slotCount - 1;
+        this.maxSize = slotCount / 4 * 3;
+    }
+    
+    /**
+     * Value for the key, or missingValue if absent
+     */
+    public long get(long key, long missingValue) {
+        checkKey(key);
+        lock.readLock().lock();
+        try {
+            for (int slot = home(key); ; slot = (slot + 1) & mask) {
+                long current = keyAt(slot);
+                if (current == key) {
+                    return valueAt(slot);
+                }
+                if (current == EMPTY) {
+                    return missingValue;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Insert or overwrite; returns false if the key is new and the map is full
+     */
+    public boolean put(long key, long value) {
+        checkKey(key);
+        lock.writeLock().lock();
+        try {
+            int slot = home(key);
+            while (true) {
+                long current = keyAt(slot);
+                if (current == key) {
+                    slots.putLong(slot * SLOT_BYTES + 8, value);
+                    return true;
+                }
+                if (current == EMPTY) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size >= maxSize) {
+                return false;
+            }
+            slots.putLong(slot * SLOT_BYTES, key);
+            slots.putLong(slot * SLOT_BYTES + 8, value);
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove the key; returns whether it was present
+     */
+    public boolean remove(long key) {
+        checkKey(key);
+        lock.writeLock().lock();
+        try {
+            int slot = home(key);
+            while (true) {
+                long current = keyAt(slot);
+                if (current == EMPTY) {
+                    return false;
+                }
+                if (current == key) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            
+            // Shift later entries of the probe run back so lookups never stop early
+            int hole = slot;
+            for (int next = (hole + 1) & mask; keyAt(next) != EMPTY; next = (next + 1) & mask) {
+                int ideal = home(keyAt(next));
+                if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                    slots.putLong(hole * SLOT_BYTES, keyAt(next));
+                    slots.putLong(hole * SLOT_BYTES + 8, valueAt(next));
+                    hole = next;
+                }
+            }
+            slots.putLong(hole * SLOT_BYTES, EMPTY);
+            size--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (int slot = 0; slot <= mask; slot++) {
+                slots.putLong(slot * SLOT_BYTES, EMPTY);
+            }
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private long keyAt(int slot) {
+        return slots.getLong(slot * SLOT_BYTES);
+    }
+    
+    private long valueAt(int slot) {
+        return slots.getLong(slot * SLOT_BYTES + 8);
+    }
+    
+    private int home(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+    
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+-- Pooled id allocation: entities take ids from their table sequence 50 at a time
+-- (Hibernate pooled-lo optimizer), which lets Hibernate batch inserts instead of
+-- needing a round-trip per row to read back an IDENTITY value.
+-- Column defaults still call nextval, so plain SQL inserts keep working; each such
+-- insert simply skips the rest of its block of 50.
+
+ALTER SEQUENCE admin_audit_logs_id_seq INCREMENT BY 50;
+SELECT setval('admin_audit_logs_id_seq', COALESCE((SELECT MAX(id) FROM admin_audit_logs), 0) + 1, false);
+
+ALTER SEQUENCE admin_users_id_seq INCREMENT BY 50;
+SELECT setval('admin_users_id_seq', COALESCE((SELECT MAX(id) FROM admin_users), 0) + 1, false);
+
+ALTER SEQUENCE api_request_logs_id_seq INCREMENT BY 50;
+SELECT setval('api_request_logs_id_seq', COALESCE((SELECT MAX(id) FROM api_request_logs), 0) + 1, false);
+
+ALTER SEQUENCE app_config_id_seq INCREMENT BY 50;
+SELECT setval('app_config_id_seq', COALESCE((SELECT MAX(id) FROM app_config), 0) + 1, false);
+
+ALTER SEQUENCE banners_id_seq INCREMENT BY 50;
+SELECT setval('banners_id_seq', COALESCE((SELECT MAX(id) FROM banners), 0) + 1, false);
+
+ALTER SEQUENCE brands_id_seq INCREMENT BY 50;
+SELECT setval('brands_id_seq', COALESCE((SELECT MAX(id) FROM brands), 0) + 1, false);
+
+ALTER SEQUENCE brand_configs_id_seq INCREMENT BY 50;
+SELECT setval('brand_configs_id_seq', COALESCE((SELECT MAX(id) FROM brand_configs), 0) + 1, false);
+
+ALTER SEQUENCE cache_config_id_seq INCREMENT BY 50;
+SELECT setval('cache_config_id_seq', COALESCE((SELECT MAX(id) FROM cache_config), 0) + 1, false);
+
+ALTER SEQUENCE device_mappings_id_seq INCREMENT BY 50;
+SELECT setval('device_mappings_id_seq', COALESCE((SELECT MAX(id) FROM device_mappings), 0) + 1, false);
+
+ALTER SEQUENCE fraud_logs_id_seq INCREMENT BY 50;
+SELECT setval('fraud_logs_id_seq', COALESCE((SELECT MAX(id) FROM fraud_logs), 0) + 1, false);
+
+ALTER SEQUENCE analytics_metrics_snapshot_id_seq INCREMENT BY 50;
+SELECT setval('analytics_metrics_snapshot_id_seq', COALESCE((SELECT MAX(id) FROM analytics_metrics_snapshot), 0) + 1, false);
+
+ALTER SEQUENCE sms_logs_id_seq INCREMENT BY 50;
+SELECT setval('sms_logs_id_seq', COALESCE((SELECT MAX(id) FROM sms_logs), 0) + 1, false);
+
+ALTER SEQUENCE analytics_sms_metrics_id_seq INCREMENT BY 50;
+SELECT setval('analytics_sms_metrics_id_seq', COALESCE((SELECT MAX(id) FROM analytics_sms_metrics), 0) + 1, false);
+
+ALTER SEQUENCE system_health_metrics_id_seq INCREMENT BY 50;
+SELECT setval('system_health_metrics_id_seq', COALESCE((SELECT MAX(id) FROM system_health_metrics), 0) + 1, false);
+
+ALTER SEQUENCE tasks_id_seq INCREMENT BY 50;
+SELECT setval('tasks_id_seq', COALESCE((SELECT MAX(id) FROM tasks), 0) + 1, false);
+
+ALTER SEQUENCE task_assignments_id_seq INCREMENT BY 50;
+SELECT setval('task_assignments_id_seq', COALESCE((SELECT MAX(id) FROM task_assignments), 0) + 1, false);
+
+ALTER SEQUENCE analytics_task_engagement_id_seq INCREMENT BY 50;
+SELECT setval('analytics_task_engagement_id_seq', COALESCE((SELECT MAX(id) FROM analytics_task_engagement), 0) + 1, false);
+
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+SELECT setval('users_id_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 1, false);
+
+ALTER SEQUENCE user_bans_id_seq INCREMENT BY 50;
+SELECT setval('user_bans_id_seq', COALESCE((SELECT MAX(id) FROM user_bans), 0) + 1, false);
+
+ALTER SEQUENCE analytics_user_growth_id_seq INCREMENT BY 50;
+SELECT setval('analytics_user_growth_id_seq', COALESCE((SELECT MAX(id) FROM analytics_user_growth), 0) + 1, false);
+
+ALTER SEQUENCE wallet_ledger_id_seq INCREMENT BY 50;
+SELECT setval('wallet_ledger_id_seq', COALESCE((SELECT MAX(id) FROM wallet_ledger), 0) + 1, false);
+
+ALTER SEQUENCE analytics_wallet_transactions_id_seq INCREMENT BY 50;
+SELECT setval('analytics_wallet_transactions_id_seq', COALESCE((SELECT MAX(id) FROM analytics_wallet_transactions), 0) + 1, false);
+
+ALTER SEQUENCE withdrawals_id_seq INCREMENT BY 50;
+SELECT setval('withdrawals_id_seq', COALESCE((SELECT MAX(id) FROM withdrawals), 0) + 1, false);
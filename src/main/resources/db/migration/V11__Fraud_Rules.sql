@@ -0,0 +1,21 @@
+-- Fraud rules evaluated in-process on registrations, SMS verifications and withdrawal
+-- requests. brand_id NULL means the rule applies to every brand.
+-- expression is a boolean condition over per-user features, e.g.
+--   sms_1h > 10 AND (device_count >= 3 OR emulator == 1)
+
+CREATE TABLE fraud_rules (
+    id BIGSERIAL PRIMARY KEY,
+    brand_id BIGINT REFERENCES brands(id) ON DELETE CASCADE,
+    name VARCHAR(100) NOT NULL,
+    event_type VARCHAR(30) NOT NULL,
+    expression TEXT NOT NULL,
+    action VARCHAR(20) NOT NULL DEFAULT 'LOG',
+    severity VARCHAR(20) NOT NULL DEFAULT 'MEDIUM',
+    is_active BOOLEAN DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_fraud_rules_active ON fraud_rules(is_active);
+
+ALTER SEQUENCE fraud_rules_id_seq INCREMENT BY 50;
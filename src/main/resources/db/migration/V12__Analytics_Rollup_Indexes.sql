@@ -0,0 +1,5 @@
+-- Range indexes for the nightly analytics rollups, which aggregate one day of
+-- sms_logs and one day of a task's assignments in the database.
+
+CREATE INDEX idx_sms_logs_created_at ON sms_logs(created_at);
+CREATE INDEX idx_task_assignments_task_assigned ON task_assignments(task_id, assigned_at);
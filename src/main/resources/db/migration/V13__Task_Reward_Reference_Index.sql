@@ -0,0 +1,6 @@
+-- Task rewards reference the assignment they pay for (reference_type TASK_ASSIGNMENT,
+-- reference_id = task_assignments.id). Lets the engagement rollup join a task's
+-- assignments to their rewards instead of scanning every reward of the day.
+
+CREATE INDEX idx_wallet_ledger_task_reward_ref ON wallet_ledger(reference_id)
+    WHERE transaction_type = 'TASK_REWARD' AND reference_type = 'TASK_ASSIGNMENT';
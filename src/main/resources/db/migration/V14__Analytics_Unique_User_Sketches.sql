@@ -0,0 +1,12 @@
+-- HyperLogLog sketches of the distinct users behind each brand/day metric (SMS senders,
+-- wallet users). Sketches merge by register maximum, so a date range is answered by
+-- merging its daily rows instead of counting distinct ids over the raw tables.
+
+CREATE TABLE analytics_unique_users (
+    brand_id BIGINT NOT NULL REFERENCES brands(id) ON DELETE CASCADE,
+    metric VARCHAR(20) NOT NULL,
+    date DATE NOT NULL,
+    sketch BYTEA NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (brand_id, metric, date)
+);
@@ -0,0 +1,16 @@
+-- Materialized per-user wallet balance
+-- wallet_ledger stays the source of truth; this table is a derived projection
+-- updated in the same transaction as every ledger insert and reconciled nightly.
+
+CREATE TABLE wallet_balances (
+    user_id BIGINT PRIMARY KEY REFERENCES users(id),
+    balance DECIMAL(15, 2) NOT NULL DEFAULT 0,
+    entry_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Backfill from the existing ledger
+INSERT INTO wallet_balances (user_id, balance, entry_count, updated_at)
+SELECT user_id, SUM(amount), COUNT(*), CURRENT_TIMESTAMP
+FROM wallet_ledger
+GROUP BY user_id;
@@ -0,0 +1,5 @@
+-- Last fencing token accepted for a withdrawal per user.
+-- A withdrawal may only write to the ledger while holding a token greater than this,
+-- so a request whose Redis lock lease expired (GC pause, slow commit) is rejected.
+
+ALTER TABLE wallet_balances ADD COLUMN withdrawal_fence BIGINT NOT NULL DEFAULT 0;
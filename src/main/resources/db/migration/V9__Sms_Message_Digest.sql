@@ -0,0 +1,28 @@
+-- Optional binary SHA-256 of each SMS message (32 bytes vs 64 hex chars in message_hash).
+-- Only written when sms.hash.binary-storage=true; duplicate lookups use it when
+-- sms.hash.binary-lookup=true as well.
+--
+-- Runs outside a transaction (see the .conf file): the backfill commits every batch and
+-- the index is built concurrently, so sms_logs stays writable throughout.
+
+ALTER TABLE sms_logs ADD COLUMN IF NOT EXISTS message_digest BYTEA;
+
+DO $$
+DECLARE
+    batch_size CONSTANT BIGINT := 10000;
+    last_id BIGINT := 0;
+    max_id BIGINT;
+BEGIN
+    SELECT COALESCE(MAX(id), 0) INTO max_id FROM sms_logs;
+    WHILE last_id < max_id LOOP
+        UPDATE sms_logs SET message_digest = decode(message_hash, 'hex')
+        WHERE id > last_id AND id <= last_id + batch_size
+          AND message_digest IS NULL AND message_hash ~ '^[0-9a-f]{64}$';
+        last_id := last_id + batch_size;
+        COMMIT;
+    END LOOP;
+END $$;
+
+-- Partial, so rows stored without a digest add no index entries
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS idx_sms_logs_message_digest ON sms_logs(message_digest)
+    WHERE message_digest IS NOT NULL;
@@ -0,0 +1,95 @@
+-- Add an item to the scalable Bloom filter once the row holding it has committed.
+-- Layer sizing must match bloom_check.lua.
+--
+-- KEYS[1] filter metadata hash (fields: active, building)
+-- KEYS[2] active generation hash, KEYS[3 .. 2 + keyLayers] its layer bitsets
+-- KEYS[3 + keyLayers] building generation hash and the next keyLayers keys its layer
+-- bitsets (only when a rebuild is running)
+-- ARGV[1] active generation, ARGV[2] building generation or '', ARGV[3] layer keys passed
+-- per generation, ARGV[4] error rate, ARGV[5] h1, ARGV[6] h2 (31-bit hashes)
+-- Returns 1 if added, 0 if the active generation already contained it,
+-- -1 if no filter has been built yet, -2 if the generations are not ARGV[1] / ARGV[2]
+
+local keyLayers = tonumber(ARGV[3])
+local errorRate = tonumber(ARGV[4])
+local h1 = tonumber(ARGV[5])
+local h2 = tonumber(ARGV[6])
+
+local active = redis.call('HGET', KEYS[1], 'active')
+if not active then
+    return -1
+end
+local building = redis.call('HGET', KEYS[1], 'building') or ''
+if active ~= ARGV[1] or building ~= ARGV[2] then
+    return -2
+end
+if not redis.call('HGET', KEYS[2], 'capacity') then
+    return -1
+end
+
+local function layerParams(capacity, layer)
+    local n = capacity * 2 ^ layer
+    local p = errorRate * 0.5 ^ (layer + 1)
+    local m = math.ceil(-n * math.log(p) / (math.log(2) ^ 2))
+    if m > 4294967296 then
+        error('Bloom filter layer ' .. layer .. ' needs more than 2^32 bits')
+    end
+    local k = math.ceil(m / n * math.log(2))
+    return n, m, k
+end
+
+-- base is the index of the generation hash in KEYS; its layers follow it
+local function contains(base)
+    local capacity = tonumber(redis.call('HGET', KEYS[base], 'capacity'))
+    local layers = tonumber(redis.call('HGET', KEYS[base], 'layers') or '0')
+    for layer = 0, layers - 1 do
+        local _, m, k = layerParams(capacity, layer)
+        local found = true
+        for i = 0, k - 1 do
+            if redis.call('GETBIT', KEYS[base + 1 + layer], (h1 + i * h2) % m) == 0 then
+                found = false
+                break
+            end
+        end
+        if found then
+            return true
+        end
+    end
+    return false
+end
+
+local function add(base)
+    local capacity = tonumber(redis.call('HGET', KEYS[base], 'capacity'))
+    local maxLayers = tonumber(redis.call('HGET', KEYS[base], 'maxLayers'))
+    local layers = tonumber(redis.call('HGET', KEYS[base], 'layers') or '0')
+    local count = tonumber(redis.call('HGET', KEYS[base], 'count') or '0')
+    if layers == 0 then
+        layers = 1
+        count = 0
+    end
+    local n, m, k = layerParams(capacity, layers - 1)
+    if count >= n then
+        if layers >= maxLayers then
+            error('Bloom filter is full at ' .. maxLayers .. ' layers')
+        end
+        layers = layers + 1
+        count = 0
+        n, m, k = layerParams(capacity, layers - 1)
+    end
+    for i = 0, k - 1 do
+        redis.call('SETBIT', KEYS[base + layers], (h1 + i * h2) % m, 1)
+    end
+    redis.call('HSET', KEYS[base], 'layers', layers, 'count', count + 1)
+end
+
+-- Items committed while a rebuild runs go into the new generation as well,
+-- so rows committed after the rebuild's snapshot are not lost
+if building ~= '' then
+    add(3 + keyLayers)
+end
+
+if contains(2) then
+    return 0
+end
+add(2)
+return 1
@@ -0,0 +1,54 @@
+-- Bulk-add items to one generation of the scalable Bloom filter (used to build it).
+-- Layer sizing must match bloom_check.lua.
+--
+-- KEYS[1] generation hash (fields: capacity, maxLayers, layers, count),
+-- KEYS[2 .. 1 + maxLayers] its layer bitsets
+-- ARGV[1] error rate, ARGV[2..] pairs of h1, h2 (31-bit hashes)
+-- Returns the number of items added
+
+local errorRate = tonumber(ARGV[1])
+local meta = KEYS[1]
+local capacity = tonumber(redis.call('HGET', meta, 'capacity'))
+local maxLayers = tonumber(redis.call('HGET', meta, 'maxLayers'))
+
+local function layerParams(layer)
+    local n = capacity * 2 ^ layer
+    local p = errorRate * 0.5 ^ (layer + 1)
+    local m = math.ceil(-n * math.log(p) / (math.log(2) ^ 2))
+    if m > 4294967296 then
+        error('Bloom filter layer ' .. layer .. ' needs more than 2^32 bits')
+    end
+    local k = math.ceil(m / n * math.log(2))
+    return n, m, k
+end
+
+local layers = tonumber(redis.call('HGET', meta, 'layers') or '0')
+local count = tonumber(redis.call('HGET', meta, 'count') or '0')
+if layers == 0 then
+    layers = 1
+    count = 0
+end
+local n, m, k = layerParams(layers - 1)
+
+local added = 0
+for a = 2, #ARGV, 2 do
+    if count >= n then
+        if layers >= maxLayers then
+            error('Bloom filter is full at ' .. maxLayers .. ' layers')
+        end
+        layers = layers + 1
+        count = 0
+        n, m, k = layerParams(layers - 1)
+    end
+    local h1 = tonumber(ARGV[a])
+    local h2 = tonumber(ARGV[a + 1])
+    local bits = KEYS[1 + layers]
+    for i = 0, k - 1 do
+        redis.call('SETBIT', bits, (h1 + i * h2) % m, 1)
+    end
+    count = count + 1
+    added = added + 1
+end
+
+redis.call('HSET', meta, 'layers', layers, 'count', count)
+return added
@@ -0,0 +1,58 @@
+-- Scalable Bloom filter held as Redis bitsets: check whether an item may have been added.
+-- Layer i holds capacity * 2^i items at error rate * 0.5^(i+1), so the compound
+-- false-positive rate stays below the configured rate as the filter grows.
+-- Each generation records the capacity of its first layer and how many layers fit under
+-- Redis's 2^32-bit SETBIT limit. All keys share the prefix hash tag, so they live in one
+-- cluster slot.
+--
+-- KEYS[1] filter metadata hash (fields: active, building)
+-- KEYS[2] active generation hash (fields: capacity, maxLayers, layers, count),
+-- KEYS[3..] its layer bitsets
+-- ARGV[1] active generation the caller expects, ARGV[2] error rate,
+-- ARGV[3] h1, ARGV[4] h2 (31-bit hashes)
+-- Returns 1 if the item is definitely new, 0 if it may have been added before,
+-- -1 if no filter has been built yet, -2 if the active generation is not ARGV[1]
+
+local errorRate = tonumber(ARGV[2])
+local h1 = tonumber(ARGV[3])
+local h2 = tonumber(ARGV[4])
+
+local active = redis.call('HGET', KEYS[1], 'active')
+if not active then
+    return -1
+end
+if active ~= ARGV[1] then
+    return -2
+end
+
+local function layerParams(capacity, layer)
+    local n = capacity * 2 ^ layer
+    local p = errorRate * 0.5 ^ (layer + 1)
+    local m = math.ceil(-n * math.log(p) / (math.log(2) ^ 2))
+    if m > 4294967296 then
+        error('Bloom filter layer ' .. layer .. ' needs more than 2^32 bits')
+    end
+    local k = math.ceil(m / n * math.log(2))
+    return n, m, k
+end
+
+local capacity = tonumber(redis.call('HGET', KEYS[2], 'capacity') or '0')
+if capacity == 0 then
+    return -1
+end
+local layers = tonumber(redis.call('HGET', KEYS[2], 'layers') or '0')
+for layer = 0, layers - 1 do
+    local _, m, k = layerParams(capacity, layer)
+    local bits = KEYS[3 + layer]
+    local found = true
+    for i = 0, k - 1 do
+        if redis.call('GETBIT', bits, (h1 + i * h2) % m) == 0 then
+            found = false
+            break
+        end
+    end
+    if found then
+        return 0
+    end
+end
+return 1
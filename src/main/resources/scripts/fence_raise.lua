@@ -0,0 +1,10 @@
+-- Raise a fencing counter to at least the given floor (never lowers it)
+-- KEYS[1] fence counter, ARGV[1] floor
+-- Returns the counter value after the call
+
+local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+if current < tonumber(ARGV[1]) then
+    redis.call('SET', KEYS[1], ARGV[1])
+    return tonumber(ARGV[1])
+end
+return current
@@ -0,0 +1,9 @@
+-- Acquire a lock and issue a fencing token
+-- KEYS[1] lock, KEYS[2] fence counter
+-- ARGV[1] owner token, ARGV[2] ttl (ms)
+-- Returns the new fencing token, or 0 if the lock is held by someone else
+
+if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+    return redis.call('INCR', KEYS[2])
+end
+return 0
@@ -0,0 +1,8 @@
+-- Compare-and-extend: push out the lease only while still the owner
+-- KEYS[1] lock, ARGV[1] owner token, ARGV[2] ttl (ms)
+-- Returns 1 if renewed, 0 if the lock was lost
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+end
+return 0
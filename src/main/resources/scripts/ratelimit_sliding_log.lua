@@ -0,0 +1,25 @@
+-- Sliding-log rate limiter: one sorted-set member per admitted request
+-- KEYS[1] log key
+-- ARGV[1] limit, ARGV[2] window (ms), ARGV[3] unique member id
+-- Returns {allowed (1/0), remaining, retry after (ms)}
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+local count = redis.call('ZCARD', KEYS[1])
+
+if count < limit then
+    redis.call('ZADD', KEYS[1], now, ARGV[3])
+    redis.call('PEXPIRE', KEYS[1], window)
+    return {1, limit - count - 1, 0}
+end
+
+local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+local retryAfter = window
+if oldest[2] then
+    retryAfter = math.max(tonumber(oldest[2]) + window - now, 1)
+end
+return {0, 0, retryAfter}
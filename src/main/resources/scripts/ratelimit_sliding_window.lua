@@ -0,0 +1,41 @@
+-- Sliding-window-counter rate limiter: the previous fixed window's count is weighted
+-- by how much of it still overlaps the sliding window. Both windows' counters are
+-- fields of one hash, so the script touches only the key it is given.
+-- KEYS[1] counter hash (field: window index)
+-- ARGV[1] limit, ARGV[2] window (ms)
+-- Returns {allowed (1/0), remaining, retry after (ms)}
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+
+local index = math.floor(now / window)
+local elapsed = now - index * window
+
+local counts = redis.call('HMGET', KEYS[1], index, index - 1)
+local current = tonumber(counts[1] or '0')
+local previous = tonumber(counts[2] or '0')
+local estimate = previous * (window - elapsed) / window + current
+
+if estimate + 1 <= limit then
+    redis.call('HINCRBY', KEYS[1], index, 1)
+    -- When a window's counter is created, drop older windows and extend the expiry
+    if current == 0 then
+        for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do
+            if tonumber(field) < index - 1 then
+                redis.call('HDEL', KEYS[1], field)
+            end
+        end
+        redis.call('PEXPIRE', KEYS[1], window * 2)
+    end
+    return {1, math.floor(limit - estimate - 1), 0}
+end
+
+-- Time until enough of the previous window has slid out, or the next window starts
+local retryAfter = window - elapsed
+if previous > 0 and current < limit then
+    local needed = (estimate + 1 - limit) * window / previous
+    retryAfter = math.min(retryAfter, math.ceil(needed))
+end
+return {0, 0, math.max(retryAfter, 1)}
@@ -0,0 +1,29 @@
+-- Token-bucket rate limiter: capacity tokens, refilled continuously over the window
+-- KEYS[1] bucket hash (fields: tokens, ts)
+-- ARGV[1] capacity, ARGV[2] window (ms) in which a full bucket refills
+-- Returns {allowed (1/0), remaining, retry after (ms)}
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local capacity = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local rate = capacity / window
+
+local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(bucket[1]) or capacity
+local ts = tonumber(bucket[2]) or now
+tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)
+
+local allowed = 0
+local retryAfter = 0
+if tokens >= 1 then
+    tokens = tokens - 1
+    allowed = 1
+else
+    retryAfter = math.ceil((1 - tokens) / rate)
+end
+
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)
+-- Idle buckets are full again after one window; no need to keep them
+redis.call('PEXPIRE', KEYS[1], window)
+return {allowed, math.floor(tokens), retryAfter}
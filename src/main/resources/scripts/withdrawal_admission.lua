@@ -0,0 +1,30 @@
+-- Atomic withdrawal admission: ban flag, cooldown, in-flight lock and balance reservation
+-- KEYS[1] ban flag, KEYS[2] last withdrawal timestamp, KEYS[3] in-flight lock, KEYS[4] cached balance (minor units),
+-- KEYS[5] lock fencing counter
+-- ARGV[1] amount (minor units), ARGV[2] now (epoch ms), ARGV[3] cooldown (ms), ARGV[4] lock ttl (ms), ARGV[5] lock owner
+-- Returns the fencing token (>= 1) when admitted, 0 balance not cached, -1 banned, -2 cooldown, -3 in progress, -4 insufficient balance
+
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return -1
+end
+
+local lastWithdrawal = redis.call('GET', KEYS[2])
+if lastWithdrawal and tonumber(ARGV[2]) - tonumber(lastWithdrawal) < tonumber(ARGV[3]) then
+    return -2
+end
+
+if redis.call('EXISTS', KEYS[3]) == 1 then
+    return -3
+end
+
+local balance = redis.call('GET', KEYS[4])
+if not balance then
+    return 0
+end
+if tonumber(balance) < tonumber(ARGV[1]) then
+    return -4
+end
+
+redis.call('SET', KEYS[3], ARGV[5], 'PX', ARGV[4])
+redis.call('DECRBY', KEYS[4], ARGV[1])
+return redis.call('INCR', KEYS[5])
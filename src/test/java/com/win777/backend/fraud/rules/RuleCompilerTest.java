@@ -0,0 +1,49 @@
+package com.win777.backend.fraud.rules;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleCompilerTest {
+
+    private static double[] features(double sms1h, double withdrawals24h, double emulator) {
+        double[] features = new double[Feature.COUNT];
+        features[Feature.SMS_1H.ordinal()] = sms1h;
+        features[Feature.WITHDRAWALS_24H.ordinal()] = withdrawals24h;
+        features[Feature.EMULATOR.ordinal()] = emulator;
+        return features;
+    }
+
+    @Test
+    void testCompile_Precedence() {
+        // AND binds tighter than OR; NOT applies to the parenthesised group
+        RuleCondition condition = RuleCompiler.compile(
+            "sms_1h > 10 or withdrawals_24h >= 3 AND NOT (emulator == 0)");
+
+        assertTrue(condition.test(features(11, 0, 0)));
+        assertTrue(condition.test(features(0, 3, 1)));
+        assertFalse(condition.test(features(0, 3, 0)));
+        assertFalse(condition.test(features(10, 2, 1)));
+    }
+
+    @Test
+    void testCompile_Operators() {
+        assertTrue(RuleCompiler.compile("sms_1h<=2.5").test(features(2.5, 0, 0)));
+        assertFalse(RuleCompiler.compile("sms_1h < 2.5").test(features(2.5, 0, 0)));
+        assertTrue(RuleCompiler.compile("emulator != 0").test(features(0, 0, 1)));
+        assertTrue(RuleCompiler.compile("((sms_1h > -1))").test(features(0, 0, 0)));
+    }
+
+    @Test
+    void testCompile_InvalidExpressions() {
+        IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class,
+            () -> RuleCompiler.compile("sms_1h > 1 AND logins > 2"));
+        assertEquals("Invalid rule expression at position 16: Unknown feature 'logins'", unknown.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> RuleCompiler.compile("sms_1h >"));
+        assertThrows(IllegalArgumentException.class, () -> RuleCompiler.compile("(sms_1h > 1"));
+        assertThrows(IllegalArgumentException.class, () -> RuleCompiler.compile("sms_1h > 1 sms_24h > 2"));
+        assertThrows(IllegalArgumentException.class, () -> RuleCompiler.compile("sms_1h => 1"));
+        assertThrows(IllegalArgumentException.class, () -> RuleCompiler.compile(" "));
+    }
+}
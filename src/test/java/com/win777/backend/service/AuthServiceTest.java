@@ -6,13 +6,17 @@ import com.win777.backend.dto.AuthResponse;
 import com.win777.backend.entity.User;
 import com.win777.backend.repository.UserRepository;
 import com.win777.backend.security.JwtUtil;
+import com.win777.backend.security.PasswordHasher;
+import com.win777.backend.security.TokenRevocations;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -28,11 +32,23 @@ class AuthServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Mock
     private JwtUtil jwtUtil;
 
+    @Mock
+    private FraudPreventionService fraudPreventionService;
+
+    @Mock
+    private TokenRevocations tokenRevocations;
+
+    @Mock
+    private MobileRegistry mobileRegistry;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private AuthService authService;
 
@@ -58,12 +74,16 @@ class AuthServiceTest {
                 .deviceFingerprint("device-123")
                 .status("ACTIVE")
                 .build();
+
+        lenient().when(mobileRegistry.mightBeRegistered(anyString())).thenReturn(true);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     @Test
     void testRegister_Success() {
         when(userRepository.existsByMobile(anyString())).thenReturn(false);
-        when(passwordEncoder.encode(anyString())).thenReturn("hashedPassword");
+        when(passwordHasher.encode(anyString())).thenReturn("hashedPassword");
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(jwtUtil.generateToken(anyLong(), anyString())).thenReturn("jwt-token");
 
@@ -76,6 +96,11 @@ class AuthServiceTest {
 
         verify(userRepository, times(1)).existsByMobile("1234567890");
         verify(userRepository, times(1)).save(any(User.class));
+
+        // The password is hashed before the transaction takes a connection
+        InOrder inOrder = inOrder(passwordHasher, transactionTemplate);
+        inOrder.verify(passwordHasher).encode("password123");
+        inOrder.verify(transactionTemplate).execute(any());
     }
 
     @Test
@@ -93,7 +118,7 @@ class AuthServiceTest {
     @Test
     void testLogin_Success() {
         when(userRepository.findByMobile(anyString())).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches(anyString(), anyString())).thenReturn(true);
+        when(passwordHasher.matches(anyString(), anyString())).thenReturn(true);
         when(jwtUtil.generateToken(anyLong(), anyString())).thenReturn("jwt-token");
 
         AuthResponse response = authService.login(loginRequest);
@@ -104,6 +129,20 @@ class AuthServiceTest {
         assertEquals(1L, response.getUserId());
 
         verify(userRepository, times(1)).findByMobile("1234567890");
+        verify(userRepository, never()).replacePasswordHash(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void testLogin_UpgradesWeakHash() {
+        when(userRepository.findByMobile(anyString())).thenReturn(Optional.of(user));
+        when(passwordHasher.matches(anyString(), anyString())).thenReturn(true);
+        when(passwordHasher.needsUpgrade("hashedPassword")).thenReturn(true);
+        when(passwordHasher.encode("password123")).thenReturn("strongerHash");
+        when(jwtUtil.generateToken(anyLong(), anyString())).thenReturn("jwt-token");
+
+        authService.login(loginRequest);
+
+        verify(userRepository).replacePasswordHash(1L, "hashedPassword", "strongerHash");
     }
 
     @Test
@@ -117,10 +156,22 @@ class AuthServiceTest {
         assertEquals("Invalid credentials", exception.getMessage());
     }
 
+    @Test
+    void testLogin_UnknownMobileSkipsDatabase() {
+        when(mobileRegistry.mightBeRegistered("1234567890")).thenReturn(false);
+
+        Exception exception = assertThrows(RuntimeException.class, () -> {
+            authService.login(loginRequest);
+        });
+
+        assertEquals("Invalid credentials", exception.getMessage());
+        verify(userRepository, never()).findByMobile(anyString());
+    }
+
     @Test
     void testLogin_WrongPassword() {
         when(userRepository.findByMobile(anyString())).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches(anyString(), anyString())).thenReturn(false);
+        when(passwordHasher.matches(anyString(), anyString())).thenReturn(false);
 
         Exception exception = assertThrows(RuntimeException.class, () -> {
             authService.login(loginRequest);
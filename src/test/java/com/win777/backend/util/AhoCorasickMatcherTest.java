@@ -0,0 +1,41 @@
+package com.win777.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickMatcherTest {
+
+    @Test
+    void testMatches_IgnoresCase() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("generic", "BlueStacks", "nox"));
+
+        assertTrue(matcher.matches("Android/GENERIC_x86/build"));
+        assertTrue(matcher.matches("bluestacks 5"));
+        assertTrue(matcher.matches("NoxPlayer"));
+        assertFalse(matcher.matches("Samsung/beyond1lteXX"));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    void testMatches_OverlappingPatterns() {
+        // "dk" inside "usdk" is only reached through the failure link out of "sd" (prefix of "sdxy")
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("sdxy", "dk", "she", "hers"));
+
+        assertTrue(matcher.matches("usdk"));
+        assertTrue(matcher.matches("ushers"));
+        assertTrue(matcher.matches("sdxdk"));
+        assertFalse(matcher.matches("sdx"));
+    }
+
+    @Test
+    void testMatches_NonAsciiAndEmptySet() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("émulateur"));
+
+        assertTrue(matcher.matches("Un ÉMULATEUR"));
+        assertFalse(matcher.matches("emulateur"));
+        assertFalse(new AhoCorasickMatcher(List.of()).matches("anything"));
+    }
+}
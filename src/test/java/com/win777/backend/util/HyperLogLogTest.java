@@ -0,0 +1,61 @@
+package com.win777.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void testEstimate_WithinErrorBounds() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long userId = 1; userId <= 200_000; userId++) {
+            sketch.add(userId);
+            // Repeat visits must not count again
+            sketch.add(userId);
+        }
+
+        // Standard error is 0.8% at the default precision; allow for variance
+        assertEquals(200_000, sketch.estimate(), 200_000 * 0.03);
+    }
+
+    @Test
+    void testEstimate_SmallCardinality() {
+        HyperLogLog sketch = new HyperLogLog();
+        assertEquals(0, sketch.estimate());
+
+        for (long userId = 1; userId <= 100; userId++) {
+            sketch.add(userId);
+        }
+        assertEquals(100, sketch.estimate(), 2);
+    }
+
+    @Test
+    void testMerge_CountsUnionOnce() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        for (long userId = 1; userId <= 60_000; userId++) {
+            monday.add(userId);
+        }
+        for (long userId = 40_001; userId <= 100_000; userId++) {
+            tuesday.add(userId);
+        }
+
+        monday.merge(tuesday);
+        assertEquals(100_000, monday.estimate(), 100_000 * 0.03);
+        assertThrows(IllegalArgumentException.class, () -> monday.merge(new HyperLogLog(12)));
+    }
+
+    @Test
+    void testToBytes_RoundTrip() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (long userId = 1; userId <= 10_000; userId++) {
+            sketch.add(userId * 7919);
+        }
+
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+        assertEquals(12, restored.precision());
+        assertEquals(sketch.estimate(), restored.estimate());
+        assertArrayEquals(sketch.toBytes(), restored.toBytes());
+    }
+}